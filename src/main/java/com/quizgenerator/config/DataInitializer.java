@@ -1,5 +1,12 @@
 package com.quizgenerator.config;
 
+import com.quizgenerator.service.ActiveSessionRegistry;
+import com.quizgenerator.service.AnswerIngestionService;
+import com.quizgenerator.service.QuestionCalibrationService;
+import com.quizgenerator.service.QuestionDedupIndex;
+import com.quizgenerator.service.QuestionInventoryService;
+import com.quizgenerator.service.QuestionSelectionService;
+import com.quizgenerator.service.LegacyStorageMigration;
 import com.quizgenerator.service.StandardsService;
 import lombok.AllArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,9 +18,23 @@ import org.springframework.stereotype.Component;
 public class DataInitializer implements CommandLineRunner {
 
     private StandardsService standardsService;
+    private LegacyStorageMigration legacyStorageMigration;
+    private QuestionDedupIndex questionDedupIndex;
+    private QuestionSelectionService questionSelectionService;
+    private QuestionInventoryService questionInventoryService;
+    private QuestionCalibrationService questionCalibrationService;
+    private AnswerIngestionService answerIngestionService;
+    private ActiveSessionRegistry activeSessionRegistry;
     
     @Override
     public void run(String... args) {
         standardsService.initializeStandards();
+        legacyStorageMigration.migrate();
+        answerIngestionService.recover();
+        activeSessionRegistry.expireIdleStoredSessions();
+        questionDedupIndex.rebuild();
+        questionSelectionService.rebuild();
+        questionInventoryService.seed();
+        questionCalibrationService.load();
     }
 }
\ No newline at end of file
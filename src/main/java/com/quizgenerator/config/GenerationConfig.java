@@ -0,0 +1,52 @@
+package com.quizgenerator.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class GenerationConfig {
+
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService questionGenerationExecutor(
+            @Value("${app.generation.executor-threads:8}") int threads,
+            @Value("${app.generation.queue-capacity:64}") int queueCapacity) {
+        return boundedExecutor("question-gen-", threads, queueCapacity);
+    }
+
+    /**
+     * Streamed generation blocks a thread for the whole Claude stream, so it gets its own pool rather than starving
+     * batch generation.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService questionStreamExecutor(
+            @Value("${app.generation.stream-threads:8}") int threads,
+            @Value("${app.generation.stream-queue-capacity:16}") int queueCapacity) {
+        return boundedExecutor("question-stream-", threads, queueCapacity);
+    }
+
+    private static ExecutorService boundedExecutor(String threadPrefix, int threads, int queueCapacity) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, threadPrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                threads, threads,
+                60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                threadFactory,
+                new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
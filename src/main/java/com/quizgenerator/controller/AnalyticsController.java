@@ -1,10 +1,14 @@
 package com.quizgenerator.controller;
 
+import com.quizgenerator.dto.QuestionStatsResponse;
 import com.quizgenerator.dto.StudentAnalytics;
 import com.quizgenerator.dto.TargetedQuizRequest;
-import com.quizgenerator.dto.TargetedQuizResponse;
 import com.quizgenerator.exception.StudentNotFoundException;
+import com.quizgenerator.model.QuestionCalibration;
 import com.quizgenerator.service.AnalyticsService;
+import com.quizgenerator.service.QuestionCalibrationService;
+import com.quizgenerator.service.QuestionCalibrationService.RecomputeResult;
+import com.quizgenerator.service.QuestionStatsService;
 import com.quizgenerator.service.QuizService;
 import lombok.AllArgsConstructor;
 import lombok.RequiredArgsConstructor;
@@ -13,6 +17,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/analytics")
@@ -22,6 +28,8 @@ public class AnalyticsController {
     
     private final AnalyticsService analyticsService;
     private final QuizService quizService;
+    private final QuestionCalibrationService questionCalibrationService;
+    private final QuestionStatsService questionStatsService;
     
     @GetMapping("/student/{studentId}")
     public ResponseEntity<StudentAnalytics> getStudentAnalytics(@PathVariable String studentId) {
@@ -33,15 +41,41 @@ public class AnalyticsController {
         }
     }
     
+    @GetMapping("/questions/{questionId}/stats")
+    public ResponseEntity<QuestionStatsResponse> getQuestionStats(@PathVariable Long questionId) {
+        return questionStatsService.getStats(questionId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @GetMapping("/questions/stats")
+    public ResponseEntity<List<QuestionStatsResponse>> getQuestionStats(@RequestParam List<Long> ids) {
+        return ResponseEntity.ok(questionStatsService.getStats(ids));
+    }
+    
+    @GetMapping("/questions/{questionId}/calibration")
+    public ResponseEntity<QuestionCalibration> getQuestionCalibration(@PathVariable Long questionId) {
+        return questionCalibrationService.getCalibration(questionId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+    
+    @PostMapping("/calibration/recompute")
+    public ResponseEntity<RecomputeResult> recomputeCalibration() {
+        return ResponseEntity.ok(questionCalibrationService.recompute());
+    }
+    
     @PostMapping("/quiz/generate/targeted")
-    public ResponseEntity<?> generateTargetedQuiz(@Valid @RequestBody TargetedQuizRequest request) {
+    public CompletableFuture<ResponseEntity<?>> generateTargetedQuiz(@Valid @RequestBody TargetedQuizRequest request) {
         try {
-            TargetedQuizResponse response = quizService.generateTargetedQuiz(request);
-            return ResponseEntity.ok(response);
+            return quizService.generateTargetedQuizAsync(request)
+                    .<ResponseEntity<?>>thenApply(ResponseEntity::ok)
+                    .exceptionally(e -> ResponseEntity.badRequest().body("Failed to generate targeted quiz: " + e.getMessage()));
         } catch (StudentNotFoundException e) {
-            return ResponseEntity.notFound().build();
+            return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
         } catch (Exception e) {
-            return ResponseEntity.badRequest().body("Failed to generate targeted quiz: " + e.getMessage());
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body("Failed to generate targeted quiz: " + e.getMessage()));
         }
     }
 }
\ No newline at end of file
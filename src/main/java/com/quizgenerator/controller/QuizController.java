@@ -11,17 +11,25 @@ import com.quizgenerator.dto.ErrorResponse;
 import com.quizgenerator.model.Question;
 import com.quizgenerator.exception.StudentNotFoundException;
 import com.quizgenerator.service.AdaptiveService;
+import com.quizgenerator.service.QuestionListingService;
+import com.quizgenerator.service.QuestionListingService.QuestionPage;
 import com.quizgenerator.service.QuizService;
 import com.quizgenerator.service.QuizSessionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/quiz")
@@ -30,12 +38,43 @@ import java.util.Optional;
 @Slf4j
 public class QuizController {
     
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String NDJSON = "application/x-ndjson";
+    
     private final QuizService quizService;
     private final AdaptiveService adaptiveService;
     private final QuizSessionService quizSessionService;
+    private final QuestionListingService questionListingService;
+    
+    @Value("${app.generation.stream-timeout-ms:120000}")
+    private long streamTimeoutMs;
     
     @PostMapping("/generate")
-    public ResponseEntity<QuizResponse> generateQuiz(@Valid @RequestBody QuizGenerationRequest request) {
+    public CompletableFuture<ResponseEntity<QuizResponse>> generateQuiz(@Valid @RequestBody QuizGenerationRequest request) {
+        try {
+            if (request.getStudentId() != null) {
+                int adaptedDifficulty = adaptiveService.determineNextDifficulty(
+                    request.getStudentId(), 
+                    request.getDifficulty()
+                );
+                request.setDifficulty(adaptedDifficulty);
+            }
+            
+            return quizService.generateQuizAsync(request)
+                .thenApply(ResponseEntity::ok)
+                .exceptionally(e -> {
+                    log.error("Error generating quiz for standard {}: {}", request.getStandardCode(), e.getMessage());
+                    return ResponseEntity.badRequest().build();
+                });
+        } catch (RuntimeException e) {
+            return CompletableFuture.completedFuture(ResponseEntity.badRequest().build());
+        }
+    }
+    
+    @PostMapping(value = "/generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamQuiz(@Valid @RequestBody QuizGenerationRequest request) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        
         try {
             if (request.getStudentId() != null) {
                 int adaptedDifficulty = adaptiveService.determineNextDifficulty(
@@ -45,10 +84,29 @@ public class QuizController {
                 request.setDifficulty(adaptedDifficulty);
             }
             
-            QuizResponse quiz = quizService.generateQuiz(request);
-            return ResponseEntity.ok(quiz);
+            quizService.streamQuiz(request, question -> sendEvent(emitter, "question", question))
+                .whenComplete((quiz, error) -> {
+                    if (error != null) {
+                        log.error("Error streaming quiz for standard {}: {}", request.getStandardCode(), error.getMessage());
+                        sendEvent(emitter, "error", new ErrorResponse("generation_error", error.getMessage()));
+                    } else {
+                        sendEvent(emitter, "complete", quiz);
+                    }
+                    emitter.complete();
+                });
         } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().build();
+            sendEvent(emitter, "error", new ErrorResponse("validation_error", e.getMessage()));
+            emitter.complete();
+        }
+        
+        return emitter;
+    }
+    
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping {} event for closed quiz stream: {}", name, e.getMessage());
         }
     }
     
@@ -60,9 +118,27 @@ public class QuizController {
     }
     
     @GetMapping("/standard/{standardCode}")
-    public ResponseEntity<List<Question>> getQuestionsByStandard(@PathVariable String standardCode) {
-        List<Question> questions = quizService.getQuestionsByStandard(standardCode);
-        return ResponseEntity.ok(questions);
+    public ResponseEntity<List<Question>> getQuestionsByStandard(@PathVariable String standardCode,
+                                                                 @RequestParam(required = false) Long after,
+                                                                 @RequestParam(required = false) Integer limit,
+                                                                 @RequestParam(required = false) Integer difficulty,
+                                                                 @RequestParam(required = false) String type,
+                                                                 @RequestParam(required = false) String subSkill) {
+        QuestionPage page = questionListingService.page(standardCode, after, difficulty, type, subSkill, limit);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, String.valueOf(page.nextCursor()));
+        }
+        return response.body(page.questions());
+    }
+    
+    @GetMapping(value = "/standard/{standardCode}/export", produces = NDJSON)
+    public ResponseEntity<StreamingResponseBody> exportQuestionsByStandard(@PathVariable String standardCode,
+                                                                           @RequestParam(required = false) Integer difficulty,
+                                                                           @RequestParam(required = false) String type,
+                                                                           @RequestParam(required = false) String subSkill) {
+        StreamingResponseBody body = out -> questionListingService.export(standardCode, difficulty, type, subSkill, out);
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON)).body(body);
     }
     
     @PostMapping("/session/start")
@@ -0,0 +1,19 @@
+package com.quizgenerator.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuestionStatsResponse {
+    private Long questionId;
+    private Long attempts;
+    private Long correctAnswers;
+    private Double percentCorrect;
+    private Map<String, Long> choiceDistribution;
+    private Long averageTimeMs;
+    private Long medianTimeMs;
+}
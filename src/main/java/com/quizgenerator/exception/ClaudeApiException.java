@@ -0,0 +1,34 @@
+package com.quizgenerator.exception;
+
+public class ClaudeApiException extends RuntimeException {
+    
+    private final int statusCode;
+    private final boolean retryable;
+    private final Long retryAfterMs;
+    
+    public ClaudeApiException(String message, int statusCode, boolean retryable, Long retryAfterMs) {
+        super(message);
+        this.statusCode = statusCode;
+        this.retryable = retryable;
+        this.retryAfterMs = retryAfterMs;
+    }
+    
+    public ClaudeApiException(String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = 0;
+        this.retryable = false;
+        this.retryAfterMs = null;
+    }
+    
+    public int getStatusCode() {
+        return statusCode;
+    }
+    
+    public boolean isRetryable() {
+        return retryable;
+    }
+    
+    public Long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+}
@@ -0,0 +1,68 @@
+package com.quizgenerator.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * One row per submitted answer. The {@link QuizAnswer} and {@link StudentAnswer} views read from this table.
+ */
+@Entity
+@Table(name = "answer_events", indexes = {
+        @Index(name = "idx_answer_events_session_question", columnList = "session_id, question_id"),
+        @Index(name = "idx_answer_events_student_answered", columnList = "student_id, answered_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnswerEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "answer_event_seq")
+    @SequenceGenerator(name = "answer_event_seq", sequenceName = "answer_event_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(name = "session_id", nullable = false)
+    private String sessionId;
+    
+    @Column(name = "student_id", nullable = false)
+    private String studentId;
+    
+    @Column(name = "quiz_id", nullable = false)
+    private String quizId;
+    
+    @Column(name = "question_id", nullable = false)
+    private String questionId;
+    
+    @Column(name = "answer", nullable = false)
+    private Integer answer;
+    
+    @Column(name = "is_correct", nullable = false)
+    private Boolean isCorrect;
+    
+    @Column(name = "time_spent_ms", nullable = false)
+    private Long timeSpentMs;
+    
+    @Column(name = "answered_at", nullable = false)
+    private LocalDateTime answeredAt;
+    
+    public AnswerEvent(String sessionId, String studentId, String quizId, String questionId,
+                       Integer answer, Boolean isCorrect, Long timeSpentMs) {
+        this.sessionId = sessionId;
+        this.studentId = studentId;
+        this.quizId = quizId;
+        this.questionId = questionId;
+        this.answer = answer;
+        this.isCorrect = isCorrect;
+        this.timeSpentMs = timeSpentMs;
+        this.answeredAt = LocalDateTime.now();
+    }
+    
+    @PrePersist
+    private void prePersist() {
+        if (this.answeredAt == null) {
+            this.answeredAt = LocalDateTime.now();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.quizgenerator.model;
+
+import jakarta.persistence.Converter;
+
+/**
+ * Stores a choice-keyed map such as {A=..., B=...} in its owning row.
+ */
+@Converter
+public class ChoiceMapConverter extends JsonMapConverter<String, String> {
+
+    @Override
+    protected String parseKey(String key) {
+        return key;
+    }
+
+    @Override
+    protected String parseValue(String value) {
+        return value;
+    }
+}
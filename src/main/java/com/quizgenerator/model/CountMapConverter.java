@@ -0,0 +1,20 @@
+package com.quizgenerator.model;
+
+import jakarta.persistence.Converter;
+
+/**
+ * Stores a map of names to counts in its owning row.
+ */
+@Converter
+public class CountMapConverter extends JsonMapConverter<String, Integer> {
+
+    @Override
+    protected String parseKey(String key) {
+        return key;
+    }
+
+    @Override
+    protected Integer parseValue(String value) {
+        return Integer.valueOf(value);
+    }
+}
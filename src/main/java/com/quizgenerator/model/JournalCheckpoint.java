@@ -0,0 +1,29 @@
+package com.quizgenerator.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "journal_checkpoints")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalCheckpoint {
+    @Id
+    @Column(name = "journal_name")
+    private String journalName;
+    
+    @Column(name = "last_sequence", nullable = false)
+    private Long lastSequence = 0L;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    public JournalCheckpoint(String journalName) {
+        this.journalName = journalName;
+        this.updatedAt = LocalDateTime.now();
+    }
+}
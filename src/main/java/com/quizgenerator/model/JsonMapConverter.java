@@ -0,0 +1,88 @@
+package com.quizgenerator.model;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import jakarta.persistence.AttributeConverter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stores a small map as one compact JSON object in the owning row, instead of one row per entry in a collection
+ * table. Subclasses say how keys and values are read back from their text form; numeric values are written as JSON
+ * numbers.
+ */
+public abstract class JsonMapConverter<K, V> implements AttributeConverter<Map<K, V>, String> {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    protected abstract K parseKey(String key);
+
+    protected abstract V parseValue(String value);
+
+    @Override
+    public String convertToDatabaseColumn(Map<K, V> map) {
+        if (map == null) {
+            return null;
+        }
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            for (Map.Entry<K, V> entry : map.entrySet()) {
+                if (entry.getKey() == null || entry.getValue() == null) {
+                    continue;
+                }
+                generator.writeFieldName(entry.getKey().toString());
+                if (entry.getValue() instanceof Number number) {
+                    generator.writeNumber(number.toString());
+                } else {
+                    generator.writeString(entry.getValue().toString());
+                }
+            }
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    @Override
+    public Map<K, V> convertToEntityAttribute(String column) {
+        if (column == null) {
+            return null;
+        }
+        Map<K, V> map = new LinkedHashMap<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(column)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalStateException("Stored map is not a JSON object: " + column);
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                K key = parseKey(parser.currentName());
+                parser.nextToken();
+                map.put(key, parseValue(parser.getValueAsString()));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return map;
+    }
+
+    /**
+     * Encodes entries read as text from a legacy collection table.
+     */
+    public String convertText(Map<String, String> entries) {
+        Map<K, V> map = new HashMap<>();
+        entries.forEach((key, value) -> {
+            if (key != null && value != null) {
+                map.put(parseKey(key), parseValue(value));
+            }
+        });
+        return convertToDatabaseColumn(map);
+    }
+}
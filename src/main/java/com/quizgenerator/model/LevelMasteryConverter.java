@@ -0,0 +1,24 @@
+package com.quizgenerator.model;
+
+import jakarta.persistence.Converter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Stores mastery state keyed by difficulty level.
+ */
+@Converter
+public class LevelMasteryConverter extends MasteryMapConverter<Integer> {
+
+    @Override
+    protected void writeKey(DataOutputStream out, Integer key) throws IOException {
+        out.writeInt(key);
+    }
+
+    @Override
+    protected Integer readKey(DataInputStream in) throws IOException {
+        return in.readInt();
+    }
+}
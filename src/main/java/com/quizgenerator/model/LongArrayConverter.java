@@ -0,0 +1,30 @@
+package com.quizgenerator.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Stores a small array of counts as one comma-separated column.
+ */
+@Converter
+public class LongArrayConverter implements AttributeConverter<long[], String> {
+
+    @Override
+    public String convertToDatabaseColumn(long[] values) {
+        if (values == null) {
+            return null;
+        }
+        return Arrays.stream(values).mapToObj(Long::toString).collect(Collectors.joining(","));
+    }
+
+    @Override
+    public long[] convertToEntityAttribute(String column) {
+        if (column == null || column.isEmpty()) {
+            return new long[0];
+        }
+        return Arrays.stream(column.split(",")).mapToLong(Long::parseLong).toArray();
+    }
+}
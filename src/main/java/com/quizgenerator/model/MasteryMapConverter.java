@@ -0,0 +1,78 @@
+package com.quizgenerator.model;
+
+import jakarta.persistence.AttributeConverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Stores a map of {@link MasteryState}s as one binary column: a format version, the entry count, then each key
+ * followed by its attempted and correct counts and one byte holding the recent-window length and results.
+ */
+public abstract class MasteryMapConverter<K> implements AttributeConverter<Map<K, MasteryState>, byte[]> {
+
+    private static final int FORMAT_VERSION = 1;
+
+    protected abstract void writeKey(DataOutputStream out, K key) throws IOException;
+
+    protected abstract K readKey(DataInputStream in) throws IOException;
+
+    @Override
+    public byte[] convertToDatabaseColumn(Map<K, MasteryState> map) {
+        if (map == null) {
+            return null;
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(8 + map.size() * 24);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(FORMAT_VERSION);
+            long entries = map.entrySet().stream().filter(entry -> entry.getKey() != null && entry.getValue() != null)
+                    .count();
+            out.writeInt((int) entries);
+            for (Map.Entry<K, MasteryState> entry : map.entrySet()) {
+                if (entry.getKey() == null || entry.getValue() == null) {
+                    continue;
+                }
+                MasteryState state = entry.getValue();
+                writeKey(out, entry.getKey());
+                out.writeInt(state.getAttempted());
+                out.writeInt(state.getCorrect());
+                out.writeByte(state.getRecentCount() << MasteryState.RECENT_WINDOW | state.getRecentResults());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public Map<K, MasteryState> convertToEntityAttribute(byte[] column) {
+        if (column == null) {
+            return null;
+        }
+        Map<K, MasteryState> map = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(column))) {
+            int version = in.readUnsignedByte();
+            if (version != FORMAT_VERSION) {
+                throw new IllegalStateException("Unsupported mastery state format version " + version);
+            }
+            int entries = in.readInt();
+            for (int i = 0; i < entries; i++) {
+                K key = readKey(in);
+                int attempted = in.readInt();
+                int correct = in.readInt();
+                int recent = in.readUnsignedByte();
+                map.put(key, new MasteryState(attempted, correct, recent & ((1 << MasteryState.RECENT_WINDOW) - 1),
+                        recent >>> MasteryState.RECENT_WINDOW));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,105 @@
+package com.quizgenerator.model;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Answer counts for one sub-skill or difficulty level, plus the outcomes of the last {@link #RECENT_WINDOW} answers
+ * packed into the low bits of an int with the newest answer in bit 0. Recording an answer and classifying mastery
+ * only touch these primitives.
+ */
+@Getter
+@EqualsAndHashCode
+@NoArgsConstructor
+public class MasteryState {
+
+    public static final int RECENT_WINDOW = 5;
+    private static final int RECENT_MASK = (1 << RECENT_WINDOW) - 1;
+
+    public enum MasteryLevel {
+        UNKNOWN("unknown"), STRUGGLING("struggling"), DEVELOPING("developing"), MASTERED("mastered");
+
+        private final String label;
+
+        MasteryLevel(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    private int attempted;
+    private int correct;
+    private int recentResults;
+    private int recentCount;
+
+    public MasteryState(int attempted, int correct, int recentResults, int recentCount) {
+        this.attempted = attempted;
+        this.correct = correct;
+        this.recentCount = Math.max(0, Math.min(recentCount, RECENT_WINDOW));
+        this.recentResults = recentResults & ((1 << this.recentCount) - 1);
+    }
+
+    public void record(boolean isCorrect) {
+        attempted++;
+        if (isCorrect) {
+            correct++;
+        }
+        recentResults = ((recentResults << 1) | (isCorrect ? 1 : 0)) & RECENT_MASK;
+        if (recentCount < RECENT_WINDOW) {
+            recentCount++;
+        }
+    }
+
+    /**
+     * Outcome of a recent answer, where 0 is the oldest answer still in the window.
+     */
+    public boolean isRecentCorrect(int index) {
+        return ((recentResults >>> (recentCount - 1 - index)) & 1) == 1;
+    }
+
+    public int getRecentCorrect() {
+        return Integer.bitCount(recentResults);
+    }
+
+    public double getAccuracy() {
+        return attempted > 0 ? (double) correct / attempted : 0.0;
+    }
+
+    /**
+     * Mastered needs at least 80% both overall and across the recent window, developing at least 60%. The ratios are
+     * compared in integer arithmetic.
+     */
+    public MasteryLevel getMasteryLevel() {
+        if (attempted == 0) {
+            return MasteryLevel.UNKNOWN;
+        }
+        int recentCorrect = getRecentCorrect();
+        if (correct * 5 >= attempted * 4 && recentCorrect * 5 >= recentCount * 4) {
+            return MasteryLevel.MASTERED;
+        } else if (correct * 5 >= attempted * 3 && recentCorrect * 5 >= recentCount * 3) {
+            return MasteryLevel.DEVELOPING;
+        }
+        return MasteryLevel.STRUGGLING;
+    }
+
+    /**
+     * Renders the state in the JSON layout profiles used before mastery state was typed, optionally with the recent
+     * results and mastery level.
+     */
+    public String toJson(boolean withRecent) {
+        StringBuilder json = new StringBuilder("{\"attempted\":").append(attempted)
+                .append(",\"correct\":").append(correct);
+        if (withRecent) {
+            json.append(",\"recentPerformance\":[");
+            for (int i = 0; i < recentCount; i++) {
+                json.append(i > 0 ? "," : "").append(isRecentCorrect(i));
+            }
+            json.append("],\"masteryLevel\":\"").append(getMasteryLevel().label()).append('"');
+        }
+        return json.append('}').toString();
+    }
+}
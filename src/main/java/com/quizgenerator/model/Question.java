@@ -8,22 +8,24 @@ import java.time.LocalDateTime;
 import java.util.Map;
 
 @Entity
-@Table(name = "questions")
+@Table(name = "questions", indexes = {
+        @Index(name = "idx_questions_standard_difficulty_type", columnList = "standard_code, difficulty, type"),
+        @Index(name = "idx_questions_standard_id", columnList = "standard_code, id")
+})
 @Data
 @NoArgsConstructor
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Question {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "question_seq")
+    @SequenceGenerator(name = "question_seq", sequenceName = "question_seq", allocationSize = 50)
     private Long id;
     
     @Column(nullable = false, columnDefinition = "TEXT")
     private String question;
     
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "question_choices", joinColumns = @JoinColumn(name = "question_id"))
-    @MapKeyColumn(name = "choice_key")
-    @Column(name = "choice_value", columnDefinition = "TEXT")
+    @Convert(converter = ChoiceMapConverter.class)
+    @Column(name = "choices_data", columnDefinition = "TEXT")
     private Map<String, String> choices;
     
     @Column(nullable = false)
@@ -44,10 +46,8 @@ public class Question {
     @Column(nullable = false)
     private String type;
     
-    @ElementCollection(fetch = FetchType.EAGER)
-    @CollectionTable(name = "question_misconceptions", joinColumns = @JoinColumn(name = "question_id"))
-    @MapKeyColumn(name = "choice_key")
-    @Column(name = "misconception", columnDefinition = "TEXT")
+    @Convert(converter = ChoiceMapConverter.class)
+    @Column(name = "misconceptions_data", columnDefinition = "TEXT")
     private Map<String, String> misconceptions;
     
     @Column(nullable = false)
@@ -0,0 +1,36 @@
+package com.quizgenerator.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "question_calibrations")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class QuestionCalibration {
+    @Id
+    @Column(name = "question_id")
+    private Long questionId;
+    
+    @Column(name = "attempts", nullable = false)
+    private Long attempts = 0L;
+    
+    @Column(name = "correct_answers", nullable = false)
+    private Long correctAnswers = 0L;
+    
+    @Column(name = "difficulty", nullable = false)
+    private Double difficulty = 0.0;
+    
+    @Column(name = "discrimination", nullable = false)
+    private Double discrimination = 1.0;
+    
+    @Column(name = "calibrated_level")
+    private Integer calibratedLevel;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
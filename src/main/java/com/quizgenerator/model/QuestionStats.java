@@ -0,0 +1,42 @@
+package com.quizgenerator.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "question_stats")
+@Data
+@NoArgsConstructor
+public class QuestionStats {
+    @Id
+    @Column(name = "question_id")
+    private Long questionId;
+    
+    @Column(name = "attempts", nullable = false)
+    private Long attempts = 0L;
+    
+    @Column(name = "correct_answers", nullable = false)
+    private Long correctAnswers = 0L;
+    
+    @Convert(converter = LongArrayConverter.class)
+    @Column(name = "choice_counts", nullable = false)
+    private long[] choiceCounts;
+    
+    @Column(name = "total_time_ms", nullable = false)
+    private Long totalTimeMs = 0L;
+    
+    @Convert(converter = LongArrayConverter.class)
+    @Column(name = "time_histogram", nullable = false)
+    private long[] timeHistogram;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    public QuestionStats(Long questionId, int choices, int timeBuckets) {
+        this.questionId = questionId;
+        this.choiceCounts = new long[choices];
+        this.timeHistogram = new long[timeBuckets];
+    }
+}
@@ -3,17 +3,23 @@ package com.quizgenerator.model;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import lombok.AllArgsConstructor;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Subselect;
+import org.hibernate.annotations.Synchronize;
 import java.time.LocalDateTime;
 
+/**
+ * Session-side read view of {@link AnswerEvent}. Answers are written as answer events only.
+ */
 @Entity
-@Table(name = "quiz_answers")
+@Immutable
+@Subselect("SELECT id, session_id, question_id, answer AS student_answer, is_correct, time_spent_ms, answered_at "
+        + "FROM answer_events")
+@Synchronize("answer_events")
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class QuizAnswer {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
     @Column(name = "session_id", nullable = false)
@@ -33,21 +39,4 @@ public class QuizAnswer {
     
     @Column(name = "answered_at", nullable = false)
     private LocalDateTime answeredAt;
-    
-    public QuizAnswer(String sessionId, String questionId, Integer studentAnswer, 
-                     Boolean isCorrect, Long timeSpentMs) {
-        this.sessionId = sessionId;
-        this.questionId = questionId;
-        this.studentAnswer = studentAnswer;
-        this.isCorrect = isCorrect;
-        this.timeSpentMs = timeSpentMs;
-        this.answeredAt = LocalDateTime.now();
-    }
-    
-    @PrePersist
-    private void prePersist() {
-        if (this.answeredAt == null) {
-            this.answeredAt = LocalDateTime.now();
-        }
-    }
-}
\ No newline at end of file
+}
@@ -8,7 +8,7 @@ import java.time.LocalDateTime;
 import java.math.BigDecimal;
 
 @Entity
-@Table(name = "quiz_sessions")
+@Table(name = "quiz_sessions", indexes = @Index(name = "idx_quiz_sessions_student", columnList = "student_id"))
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -31,6 +31,9 @@ public class QuizSession {
     @Column(name = "completed_at")
     private LocalDateTime completedAt;
     
+    @Column(name = "last_activity_at")
+    private LocalDateTime lastActivityAt;
+    
     @Column(name = "total_questions", nullable = false)
     private Integer totalQuestions = 0;
     
@@ -52,7 +55,7 @@ public class QuizSession {
     private MasteryLevel masteryLevel = MasteryLevel.DEVELOPING;
     
     public enum SessionStatus {
-        ACTIVE, COMPLETED
+        ACTIVE, COMPLETED, EXPIRED
     }
     
     public enum MasteryLevel {
@@ -81,12 +84,10 @@ public class QuizSession {
         }
     }
     
-    public void addAnswer(boolean isCorrect, long timeSpentMs) {
-        this.totalQuestions++;
-        if (isCorrect) {
-            this.correctAnswers++;
-        }
-        this.totalTimeMs += timeSpentMs;
+    public void applyTotals(int totalQuestions, int correctAnswers, long totalTimeMs) {
+        this.totalQuestions = totalQuestions;
+        this.correctAnswers = correctAnswers;
+        this.totalTimeMs = totalTimeMs;
         
         if (this.totalQuestions > 0) {
             this.accuracy = BigDecimal.valueOf((double) this.correctAnswers / this.totalQuestions * 100)
@@ -111,6 +112,10 @@ public class QuizSession {
         this.completedAt = LocalDateTime.now();
     }
     
+    public void expireSession() {
+        this.status = SessionStatus.EXPIRED;
+    }
+    
     public double getAccuracy() {
         return totalQuestions > 0 ? (double) correctAnswers / totalQuestions : 0.0;
     }
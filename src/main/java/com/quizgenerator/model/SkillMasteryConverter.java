@@ -0,0 +1,24 @@
+package com.quizgenerator.model;
+
+import jakarta.persistence.Converter;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Stores mastery state keyed by sub-skill name.
+ */
+@Converter
+public class SkillMasteryConverter extends MasteryMapConverter<String> {
+
+    @Override
+    protected void writeKey(DataOutputStream out, String key) throws IOException {
+        out.writeUTF(key);
+    }
+
+    @Override
+    protected String readKey(DataInputStream in) throws IOException {
+        return in.readUTF();
+    }
+}
@@ -0,0 +1,27 @@
+package com.quizgenerator.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "student_abilities")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StudentAbility {
+    @Id
+    @Column(name = "student_id")
+    private String studentId;
+    
+    @Column(name = "theta", nullable = false)
+    private Double theta = 0.0;
+    
+    @Column(name = "answers", nullable = false)
+    private Long answers = 0L;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
@@ -3,17 +3,23 @@ package com.quizgenerator.model;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import lombok.AllArgsConstructor;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Subselect;
+import org.hibernate.annotations.Synchronize;
 import java.time.LocalDateTime;
 
+/**
+ * Student-side read view of {@link AnswerEvent}. Answers are written as answer events only.
+ */
 @Entity
-@Table(name = "student_answers")
+@Immutable
+@Subselect("SELECT id, student_id, question_id, quiz_id, answer, is_correct, time_spent_ms AS time_spent, "
+        + "answered_at AS submitted_at FROM answer_events")
+@Synchronize("answer_events")
 @Data
 @NoArgsConstructor
-@AllArgsConstructor
 public class StudentAnswer {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
     
     @Column(nullable = false)
@@ -36,22 +42,4 @@ public class StudentAnswer {
     
     @Column(nullable = false)
     private LocalDateTime submittedAt;
-    
-    @PrePersist
-    private void prePersist() {
-        if (this.submittedAt == null) {
-            this.submittedAt = LocalDateTime.now();
-        }
-    }
-    
-    public StudentAnswer(String studentId, String questionId, String quizId, 
-                        Integer answer, Boolean isCorrect, Long timeSpent) {
-        this.studentId = studentId;
-        this.questionId = questionId;
-        this.quizId = quizId;
-        this.answer = answer;
-        this.isCorrect = isCorrect;
-        this.timeSpent = timeSpent;
-        this.submittedAt = LocalDateTime.now();
-    }
-}
\ No newline at end of file
+}
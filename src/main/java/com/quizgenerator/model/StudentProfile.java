@@ -1,10 +1,13 @@
 package com.quizgenerator.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Entity
@@ -25,22 +28,18 @@ public class StudentProfile {
     @Column(nullable = false)
     private Integer correctAnswers = 0;
     
-    @ElementCollection
-    @CollectionTable(name = "student_skill_mastery", joinColumns = @JoinColumn(name = "student_profile_id"))
-    @MapKeyColumn(name = "skill_name")
-    @Column(name = "mastery_data", columnDefinition = "TEXT")
-    private Map<String, String> subSkillMasteryJson = new HashMap<>();
+    @JsonIgnore
+    @Convert(converter = SkillMasteryConverter.class)
+    @Column(name = "skill_mastery_state", length = 65535)
+    private Map<String, MasteryState> subSkillMastery = new HashMap<>();
     
-    @ElementCollection
-    @CollectionTable(name = "student_difficulty_performance", joinColumns = @JoinColumn(name = "student_profile_id"))
-    @MapKeyColumn(name = "difficulty_level")
-    @Column(name = "performance_data", columnDefinition = "TEXT")
-    private Map<Integer, String> difficultyPerformanceJson = new HashMap<>();
+    @JsonIgnore
+    @Convert(converter = LevelMasteryConverter.class)
+    @Column(name = "difficulty_mastery_state", length = 65535)
+    private Map<Integer, MasteryState> difficultyPerformance = new HashMap<>();
     
-    @ElementCollection
-    @CollectionTable(name = "student_misconceptions", joinColumns = @JoinColumn(name = "student_profile_id"))
-    @MapKeyColumn(name = "misconception")
-    @Column(name = "count")
+    @Convert(converter = CountMapConverter.class)
+    @Column(name = "misconceptions_data", columnDefinition = "TEXT")
     private Map<String, Integer> misconceptions = new HashMap<>();
     
     @Column(nullable = false)
@@ -60,8 +59,41 @@ public class StudentProfile {
             this.lastUpdated = LocalDateTime.now();
         }
     }
-    
+
+    @PostLoad
+    private void postLoad() {
+        if (this.subSkillMastery == null) {
+            this.subSkillMastery = new HashMap<>();
+        }
+        if (this.difficultyPerformance == null) {
+            this.difficultyPerformance = new HashMap<>();
+        }
+        if (this.misconceptions == null) {
+            this.misconceptions = new HashMap<>();
+        }
+    }
+
     public double getAccuracy() {
         return totalQuestions > 0 ? (double) correctAnswers / totalQuestions : 0.0;
     }
+    
+    /**
+     * Sub-skill mastery in the JSON-string form API clients already parse.
+     */
+    @JsonProperty("subSkillMasteryJson")
+    public Map<String, String> getSubSkillMasteryJson() {
+        Map<String, String> json = new LinkedHashMap<>();
+        subSkillMastery.forEach((skill, state) -> json.put(skill, state.toJson(true)));
+        return json;
+    }
+    
+    /**
+     * Per-difficulty performance in the JSON-string form API clients already parse.
+     */
+    @JsonProperty("difficultyPerformanceJson")
+    public Map<Integer, String> getDifficultyPerformanceJson() {
+        Map<Integer, String> json = new LinkedHashMap<>();
+        difficultyPerformance.forEach((level, state) -> json.put(level, state.toJson(false)));
+        return json;
+    }
 }
\ No newline at end of file
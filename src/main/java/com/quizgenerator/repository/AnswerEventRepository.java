@@ -0,0 +1,38 @@
+package com.quizgenerator.repository;
+
+import com.quizgenerator.model.AnswerEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+@Repository
+public interface AnswerEventRepository extends JpaRepository<AnswerEvent, Long> {
+    
+    @Query("SELECT ae.questionId FROM AnswerEvent ae WHERE ae.studentId = :studentId")
+    List<String> findQuestionIdsByStudentId(@Param("studentId") String studentId);
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT DISTINCT ae.questionId FROM AnswerEvent ae")
+    Stream<String> streamAnsweredQuestionIds();
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("SELECT ae.studentId AS studentId, ae.questionId AS questionId, ae.isCorrect AS isCorrect " +
+           "FROM AnswerEvent ae ORDER BY ae.answeredAt")
+    Stream<AnswerOutcome> streamAnswerOutcomes();
+    
+    interface AnswerOutcome {
+        String getStudentId();
+        
+        String getQuestionId();
+        
+        Boolean getIsCorrect();
+    }
+}
@@ -1,12 +1,19 @@
 package com.quizgenerator.repository;
 
 import com.quizgenerator.model.Question;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public interface QuestionRepository extends JpaRepository<Question, Long> {
@@ -27,4 +34,71 @@ public interface QuestionRepository extends JpaRepository<Question, Long> {
     @Query("SELECT q FROM Question q WHERE q.standardCode = :standardCode AND q.type = :type ORDER BY q.generatedAt DESC")
     List<Question> findRecentQuestionsByStandardAndType(@Param("standardCode") String standardCode, 
                                                        @Param("type") String type);
-}
\ No newline at end of file
+    
+    @Query("SELECT q FROM Question q WHERE q.standardCode = :standardCode AND q.id > :afterId " +
+           "AND (:difficulty IS NULL OR q.difficulty = :difficulty) AND (:type IS NULL OR q.type = :type) " +
+           "AND (:subSkill IS NULL OR q.subSkill = :subSkill) ORDER BY q.id")
+    List<Question> findPageByStandardCode(@Param("standardCode") String standardCode,
+                                          @Param("afterId") Long afterId,
+                                          @Param("difficulty") Integer difficulty,
+                                          @Param("type") String type,
+                                          @Param("subSkill") String subSkill,
+                                          Limit limit);
+    
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT q FROM Question q WHERE q.standardCode = :standardCode " +
+           "AND (:difficulty IS NULL OR q.difficulty = :difficulty) AND (:type IS NULL OR q.type = :type) " +
+           "AND (:subSkill IS NULL OR q.subSkill = :subSkill) ORDER BY q.id")
+    Stream<Question> streamByStandardCode(@Param("standardCode") String standardCode,
+                                          @Param("difficulty") Integer difficulty,
+                                          @Param("type") String type,
+                                          @Param("subSkill") String subSkill);
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT q.id AS id, q.standardCode AS standardCode, q.question AS question FROM Question q")
+    Stream<QuestionText> streamQuestionTexts();
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT q.id AS id, q.standardCode AS standardCode, q.difficulty AS difficulty, q.type AS type FROM Question q " +
+           "WHERE q.isFallback = false AND q.isTargeted = false")
+    Stream<BankEntry> streamBankEntries();
+    
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT q.id AS id, q.standardCode AS standardCode, q.difficulty AS difficulty, q.type AS type, " +
+           "q.focusArea AS focusArea FROM Question q WHERE q.isFallback = false ORDER BY q.id DESC")
+    Stream<StockEntry> streamStockEntries();
+    
+    @Query("SELECT q.id AS id, q.difficulty AS difficulty FROM Question q WHERE q.id IN :ids")
+    List<ClaimedDifficulty> findClaimedDifficulties(@Param("ids") Collection<Long> ids);
+    
+    interface QuestionText {
+        Long getId();
+        
+        String getStandardCode();
+        
+        String getQuestion();
+    }
+    
+    interface ClaimedDifficulty {
+        Long getId();
+        
+        Integer getDifficulty();
+    }
+    
+    interface BankEntry {
+        Long getId();
+        
+        String getStandardCode();
+        
+        Integer getDifficulty();
+        
+        String getType();
+    }
+    
+    interface StockEntry extends BankEntry {
+        String getFocusArea();
+    }
+}
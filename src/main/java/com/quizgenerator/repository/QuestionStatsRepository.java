@@ -0,0 +1,9 @@
+package com.quizgenerator.repository;
+
+import com.quizgenerator.model.QuestionStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface QuestionStatsRepository extends JpaRepository<QuestionStats, Long> {
+}
@@ -27,4 +27,4 @@ public interface QuizAnswerRepository extends JpaRepository<QuizAnswer, Long> {
     
     @Query("SELECT SUM(qa.timeSpentMs) FROM QuizAnswer qa WHERE qa.sessionId = :sessionId")
     Long sumTimeSpentBySessionId(@Param("sessionId") String sessionId);
-}
\ No newline at end of file
+}
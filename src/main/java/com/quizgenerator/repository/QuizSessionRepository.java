@@ -2,10 +2,13 @@ package com.quizgenerator.repository;
 
 import com.quizgenerator.model.QuizSession;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -25,4 +28,10 @@ public interface QuizSessionRepository extends JpaRepository<QuizSession, String
     List<QuizSession> findByStudentIdAndStatusOrderByCompletedAtDesc(String studentId, QuizSession.SessionStatus status);
     
     Optional<QuizSession> findByIdAndStudentId(String sessionId, String studentId);
-}
\ No newline at end of file
+    
+    @Modifying
+    @Transactional
+    @Query("UPDATE QuizSession qs SET qs.status = 'EXPIRED' WHERE qs.status = 'ACTIVE' "
+            + "AND COALESCE(qs.lastActivityAt, qs.startedAt) < :cutoff")
+    int expireSessionsIdleSince(@Param("cutoff") LocalDateTime cutoff);
+}
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +17,8 @@ public interface StandardPerformanceRepository extends JpaRepository<StandardPer
     
     Optional<StandardPerformance> findByStudentIdAndStandardCode(String studentId, String standardCode);
     
+    List<StandardPerformance> findByStudentIdAndStandardCodeIn(String studentId, Collection<String> standardCodes);
+    
     @Query("SELECT sp FROM StandardPerformance sp WHERE sp.studentId = :studentId ORDER BY sp.accuracy DESC")
     List<StandardPerformance> findByStudentIdOrderByAccuracyDesc(@Param("studentId") String studentId);
     
@@ -1,6 +1,7 @@
 package com.quizgenerator.repository;
 
 import com.quizgenerator.model.Standard;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,6 +13,7 @@ import java.util.Optional;
 @Repository
 public interface StandardRepository extends JpaRepository<Standard, Long> {
     
+    @EntityGraph(attributePaths = "subSkills")
     Optional<Standard> findByCode(String code);
     
     @Query("SELECT s FROM Standard s JOIN s.concepts c WHERE LOWER(c) LIKE LOWER(CONCAT('%', :topic, '%'))")
@@ -21,6 +23,7 @@ public interface StandardRepository extends JpaRepository<Standard, Long> {
     
     List<Standard> findByDifficultyBetween(Integer minDifficulty, Integer maxDifficulty);
     
+    @EntityGraph(attributePaths = "subSkills")
     @Query("SELECT s FROM Standard s WHERE s.code IN :codes")
     List<Standard> findByCodes(@Param("codes") List<String> codes);
 }
\ No newline at end of file
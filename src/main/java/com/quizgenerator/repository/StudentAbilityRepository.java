@@ -0,0 +1,9 @@
+package com.quizgenerator.repository;
+
+import com.quizgenerator.model.StudentAbility;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StudentAbilityRepository extends JpaRepository<StudentAbility, String> {
+}
@@ -25,4 +25,4 @@ public interface StudentAnswerRepository extends JpaRepository<StudentAnswer, Lo
     
     @Query("SELECT COUNT(sa) FROM StudentAnswer sa WHERE sa.studentId = :studentId")
     Long countTotalAnswersByStudentId(@Param("studentId") String studentId);
-}
\ No newline at end of file
+}
@@ -4,6 +4,8 @@ import com.quizgenerator.model.StudentProfile;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,5 +13,7 @@ public interface StudentProfileRepository extends JpaRepository<StudentProfile,
     
     Optional<StudentProfile> findByStudentId(String studentId);
     
+    List<StudentProfile> findByStudentIdIn(Collection<String> studentIds);
+    
     boolean existsByStudentId(String studentId);
 }
\ No newline at end of file
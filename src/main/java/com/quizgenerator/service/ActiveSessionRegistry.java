@@ -0,0 +1,421 @@
+package com.quizgenerator.service;
+
+import com.quizgenerator.model.QuizSession;
+import com.quizgenerator.repository.QuizAnswerRepository;
+import com.quizgenerator.repository.QuizSessionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory state of active quiz sessions: owner, running totals and last activity. Answer submissions validate and
+ * count against this map instead of reading and writing quiz_sessions; changed totals are snapshotted to the database
+ * periodically and when a session completes or expires. Sessions missing from the map, such as after a restart, are
+ * loaded once from the database with their totals recounted from answer_events.
+ * <p>
+ * A closed session stays in the map as a tombstone that {@link #find} refuses until its COMPLETED or EXPIRED row is
+ * saved, so it cannot be loaded back as active in between. An answer that raced the close is left out of the final
+ * totals, and the stored row is recounted from answer_events once it is saved.
+ * <p>
+ * Idle sessions are expired in bulk by a hashed timing wheel. Each session sits in the slot of the tick its deadline
+ * falls on and activity only moves a timestamp, so when the sweeper reaches a slot, sessions that were active since
+ * are put back into the slot of their new deadline and the rest are expired.
+ */
+@Component
+@Slf4j
+public class ActiveSessionRegistry {
+
+    public record Totals(int totalQuestions, int correctAnswers, long totalTimeMs, long lastActivityMs) {
+    }
+
+    public static final class ActiveSession {
+        private final String id;
+        private final String studentId;
+        private int totalQuestions;
+        private int correctAnswers;
+        private long totalTimeMs;
+        private boolean dirty;
+        private boolean closed;
+        private boolean settled;
+        private boolean raced;
+        private volatile long lastActivityMs;
+
+        private ActiveSession(String id, String studentId, int totalQuestions, int correctAnswers, long totalTimeMs,
+                              long lastActivityMs) {
+            this.id = id;
+            this.studentId = studentId;
+            this.totalQuestions = totalQuestions;
+            this.correctAnswers = correctAnswers;
+            this.totalTimeMs = totalTimeMs;
+            this.lastActivityMs = lastActivityMs;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getStudentId() {
+            return studentId;
+        }
+
+        public synchronized Totals totals() {
+            return new Totals(totalQuestions, correctAnswers, totalTimeMs, lastActivityMs);
+        }
+
+        private synchronized boolean record(boolean correct, long timeSpentMs) {
+            if (closed) {
+                return false;
+            }
+            totalQuestions++;
+            if (correct) {
+                correctAnswers++;
+            }
+            totalTimeMs += timeSpentMs;
+            dirty = true;
+            return true;
+        }
+
+        private synchronized Totals drainDirty() {
+            if (!dirty || closed) {
+                return null;
+            }
+            dirty = false;
+            return totals();
+        }
+
+        private synchronized void markDirty() {
+            dirty = true;
+        }
+
+        /**
+         * Returns true only for the caller that closed the session, so completion and expiry never both claim it.
+         */
+        private synchronized boolean close() {
+            if (closed) {
+                return false;
+            }
+            closed = true;
+            return true;
+        }
+
+        private synchronized boolean isClosed() {
+            return closed;
+        }
+
+        /**
+         * Notes an answer that arrived after the close. Returns false if the closed row is already saved, in which
+         * case the caller must recount it.
+         */
+        private synchronized boolean markRaced() {
+            if (settled) {
+                return false;
+            }
+            raced = true;
+            return true;
+        }
+
+        /**
+         * Marks the closed row as saved and returns whether an answer raced the close.
+         */
+        private synchronized boolean settle() {
+            settled = true;
+            return raced;
+        }
+    }
+
+    private final QuizSessionRepository quizSessionRepository;
+    private final QuizAnswerRepository quizAnswerRepository;
+    private final AnswerIngestionService answerIngestionService;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate recountTemplate;
+    private final Counter expiredCounter;
+    private final Map<String, ActiveSession> sessions = new ConcurrentHashMap<>();
+    private final List<Set<ActiveSession>> wheel = new ArrayList<>();
+    private volatile long lastSweptTick;
+
+    @Value("${app.sessions.idle-timeout-ms:1800000}")
+    private long idleTimeoutMs;
+
+    @Value("${app.sessions.sweep-interval-ms:10000}")
+    private long sweepIntervalMs;
+
+    @Value("${app.sessions.snapshot-batch-size:500}")
+    private int snapshotBatchSize;
+
+    @Autowired
+    public ActiveSessionRegistry(QuizSessionRepository quizSessionRepository, QuizAnswerRepository quizAnswerRepository,
+                                 AnswerIngestionService answerIngestionService,
+                                 PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.quizSessionRepository = quizSessionRepository;
+        this.quizAnswerRepository = quizAnswerRepository;
+        this.answerIngestionService = answerIngestionService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // recounts can run from an answer's afterCommit, where joining the finished transaction would never commit
+        this.recountTemplate = new TransactionTemplate(transactionManager);
+        this.recountTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.expiredCounter = Counter.builder("quiz.sessions.expired")
+                .description("Active quiz sessions expired after going idle")
+                .register(meterRegistry);
+        Gauge.builder("quiz.sessions.active", sessions, Map::size)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Sizes the wheel so the furthest deadline, one idle timeout from now, never wraps onto the slot being swept.
+     */
+    @PostConstruct
+    void initWheel() {
+        int slots = (int) ((idleTimeoutMs + sweepIntervalMs - 1) / sweepIntervalMs) + 2;
+        for (int i = 0; i < slots; i++) {
+            wheel.add(ConcurrentHashMap.newKeySet());
+        }
+        lastSweptTick = System.currentTimeMillis() / sweepIntervalMs;
+    }
+
+    public ActiveSession register(QuizSession session) {
+        long now = System.currentTimeMillis();
+        ActiveSession active = new ActiveSession(session.getId(), session.getStudentId(), session.getTotalQuestions(),
+                session.getCorrectAnswers(), session.getTotalTimeMs(), now);
+        sessions.put(active.getId(), active);
+        schedule(active, now + idleTimeoutMs);
+        return active;
+    }
+
+    /**
+     * Returns the active session owned by the student and marks it as active now. A session that is being completed or
+     * expired is not returned.
+     */
+    public Optional<ActiveSession> find(String sessionId, String studentId) {
+        ActiveSession session = sessions.get(sessionId);
+        if (session == null) {
+            session = load(sessionId, studentId);
+        }
+        if (session == null || session.isClosed() || !session.getStudentId().equals(studentId)) {
+            return Optional.empty();
+        }
+        session.lastActivityMs = System.currentTimeMillis();
+        return Optional.of(session);
+    }
+
+    public void recordAnswer(ActiveSession session, boolean correct, long timeSpentMs) {
+        if (session.record(correct, timeSpentMs)) {
+            return;
+        }
+        if (session.markRaced()) {
+            log.debug("Answer for session {} raced its close; the stored totals are recounted once it is saved",
+                    session.getId());
+        } else {
+            recount(session.getId());
+        }
+    }
+
+    /**
+     * Closes the student's session and returns its final totals, or empty if it is not active or was already closed.
+     * The session is refused by {@link #find} from here on and stays registered until {@link #settle} is called with
+     * the COMPLETED row saved.
+     */
+    public Optional<Totals> complete(String sessionId, String studentId) {
+        ActiveSession session = sessions.get(sessionId);
+        if (session == null) {
+            session = load(sessionId, studentId);
+        }
+        if (session == null || !session.getStudentId().equals(studentId)) {
+            return Optional.empty();
+        }
+        return session.close() ? Optional.of(session.totals()) : Optional.empty();
+    }
+
+    /**
+     * Drops a completed session once its COMPLETED row is saved, recounting that row if an answer raced the close.
+     */
+    public void settle(String sessionId) {
+        ActiveSession session = sessions.get(sessionId);
+        if (session != null && session.isClosed()) {
+            settle(session);
+        }
+    }
+
+    private void settle(ActiveSession session) {
+        sessions.remove(session.getId(), session);
+        if (session.settle()) {
+            recount(session.getId());
+        }
+    }
+
+    /**
+     * Recounts a closed session's stored totals from answer_events, for answers that were not counted before it closed.
+     */
+    private void recount(String sessionId) {
+        if (answerIngestionService.isJournaled()) {
+            answerIngestionService.flush();
+        }
+        try {
+            recountTemplate.executeWithoutResult(status -> quizSessionRepository.findById(sessionId)
+                    .filter(session -> session.getStatus() != QuizSession.SessionStatus.ACTIVE)
+                    .ifPresent(session -> {
+                        Long totalTimeMs = quizAnswerRepository.sumTimeSpentBySessionId(sessionId);
+                        session.applyTotals(quizAnswerRepository.countTotalAnswersBySessionId(sessionId).intValue(),
+                                quizAnswerRepository.countCorrectAnswersBySessionId(sessionId).intValue(),
+                                totalTimeMs != null ? totalTimeMs : 0L);
+                    }));
+            log.info("Recounted totals of quiz session {} after an answer raced its close", sessionId);
+        } catch (RuntimeException e) {
+            log.warn("Failed to recount totals of quiz session {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    /**
+     * Expires sessions a previous run left active and idle. Runs at startup, before any of them can be loaded back.
+     */
+    public void expireIdleStoredSessions() {
+        int expired = quizSessionRepository.expireSessionsIdleSince(idleCutoff());
+        if (expired > 0) {
+            log.info("Expired {} idle quiz sessions left active by a previous run", expired);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.sessions.snapshot-interval-ms:5000}",
+               initialDelayString = "${app.sessions.snapshot-interval-ms:5000}")
+    @PreDestroy
+    public synchronized void snapshot() {
+        Map<ActiveSession, Totals> changed = new LinkedHashMap<>();
+        for (ActiveSession session : sessions.values()) {
+            Totals totals = session.drainDirty();
+            if (totals != null) {
+                changed.put(session, totals);
+            }
+        }
+        if (!write(changed, false)) {
+            changed.keySet().forEach(ActiveSession::markDirty);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.sessions.sweep-interval-ms:10000}",
+               initialDelayString = "${app.sessions.sweep-interval-ms:10000}")
+    public synchronized void sweep() {
+        long now = System.currentTimeMillis();
+        long currentTick = now / sweepIntervalMs;
+        Map<ActiveSession, Totals> expired = new LinkedHashMap<>();
+        for (long tick = Math.max(lastSweptTick + 1, currentTick - wheel.size() + 1); tick <= currentTick; tick++) {
+            Iterator<ActiveSession> slot = wheel.get((int) (tick % wheel.size())).iterator();
+            while (slot.hasNext()) {
+                ActiveSession session = slot.next();
+                slot.remove();
+                if (session.isClosed()) {
+                    continue;
+                }
+                long deadline = session.lastActivityMs + idleTimeoutMs;
+                if (deadline > now) {
+                    schedule(session, deadline);
+                } else if (session.close()) {
+                    expired.put(session, session.totals());
+                }
+            }
+        }
+        lastSweptTick = currentTick;
+
+        if (!expired.isEmpty()) {
+            expiredCounter.increment(expired.size());
+            write(expired, true);
+            expired.keySet().forEach(this::settle);
+            log.info("Expired {} idle quiz sessions", expired.size());
+        }
+    }
+
+    private void schedule(ActiveSession session, long deadlineMs) {
+        long tick = Math.max((deadlineMs + sweepIntervalMs - 1) / sweepIntervalMs, lastSweptTick + 1);
+        wheel.get((int) (tick % wheel.size())).add(session);
+    }
+
+    private ActiveSession load(String sessionId, String studentId) {
+        Optional<QuizSession> stored = quizSessionRepository.findByIdAndStudentId(sessionId, studentId)
+                .filter(session -> session.getStatus() == QuizSession.SessionStatus.ACTIVE);
+        if (stored.isEmpty()) {
+            return null;
+        }
+        QuizSession session = stored.get();
+        LocalDateTime lastActivity = session.getLastActivityAt() != null
+                ? session.getLastActivityAt() : session.getStartedAt();
+        if (lastActivity.isBefore(idleCutoff())) {
+            session.expireSession();
+            quizSessionRepository.save(session);
+            expiredCounter.increment();
+            return null;
+        }
+
+        Long totalTimeMs = quizAnswerRepository.sumTimeSpentBySessionId(sessionId);
+        long now = System.currentTimeMillis();
+        ActiveSession loaded = new ActiveSession(sessionId, session.getStudentId(),
+                quizAnswerRepository.countTotalAnswersBySessionId(sessionId).intValue(),
+                quizAnswerRepository.countCorrectAnswersBySessionId(sessionId).intValue(),
+                totalTimeMs != null ? totalTimeMs : 0L, now);
+        ActiveSession existing = sessions.putIfAbsent(sessionId, loaded);
+        if (existing != null) {
+            return existing;
+        }
+        schedule(loaded, now + idleTimeoutMs);
+        return loaded;
+    }
+
+    /**
+     * Writes totals to the sessions' rows in batches, skipping rows that are no longer active. Returns false if any
+     * batch failed.
+     */
+    private boolean write(Map<ActiveSession, Totals> changed, boolean expire) {
+        List<ActiveSession> pending = new ArrayList<>(changed.keySet());
+        boolean written = true;
+        for (int from = 0; from < pending.size(); from += snapshotBatchSize) {
+            Map<String, Totals> batch = pending.subList(from, Math.min(from + snapshotBatchSize, pending.size()))
+                    .stream().collect(Collectors.toMap(ActiveSession::getId, changed::get));
+            try {
+                transactionTemplate.executeWithoutResult(status -> quizSessionRepository.findAllById(batch.keySet())
+                        .stream()
+                        .filter(session -> session.getStatus() == QuizSession.SessionStatus.ACTIVE)
+                        .forEach(session -> {
+                            Totals totals = batch.get(session.getId());
+                            session.applyTotals(totals.totalQuestions(), totals.correctAnswers(), totals.totalTimeMs());
+                            session.setLastActivityAt(toLocalDateTime(totals.lastActivityMs()));
+                            if (expire) {
+                                session.expireSession();
+                            }
+                        }));
+            } catch (RuntimeException e) {
+                log.warn("Failed to write {} quiz session snapshots: {}", batch.size(), e.getMessage());
+                written = false;
+            }
+        }
+        return written;
+    }
+
+    private LocalDateTime idleCutoff() {
+        return LocalDateTime.now().minus(Duration.ofMillis(idleTimeoutMs));
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMs) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMs), ZoneId.systemDefault());
+    }
+}
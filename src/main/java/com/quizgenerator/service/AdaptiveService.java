@@ -1,21 +1,19 @@
 package com.quizgenerator.service;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.quizgenerator.dto.AnswerSubmissionRequest;
 import com.quizgenerator.dto.AnswerSubmissionResponse;
 import com.quizgenerator.dto.PerformanceReport;
 import com.quizgenerator.dto.StudentRegistrationRequest;
 import com.quizgenerator.dto.StudentRegistrationResponse;
+import com.quizgenerator.model.MasteryState;
 import com.quizgenerator.model.Question;
 import com.quizgenerator.model.StudentProfile;
-import com.quizgenerator.repository.QuestionRepository;
+import com.quizgenerator.service.ActiveSessionRegistry.ActiveSession;
+import com.quizgenerator.service.AnswerJournal.JournaledAnswer;
+import com.quizgenerator.service.GradingCache.GradingRecord;
 import com.quizgenerator.repository.StudentProfileRepository;
-import com.quizgenerator.repository.StudentAnswerRepository;
 import com.quizgenerator.repository.StudentRepository;
 import com.quizgenerator.repository.QuizSessionRepository;
-import com.quizgenerator.model.StudentAnswer;
 import com.quizgenerator.model.Student;
 import com.quizgenerator.model.QuizSession;
 import com.quizgenerator.exception.StudentNotFoundException;
@@ -23,6 +21,9 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -34,16 +35,27 @@ import java.util.stream.Collectors;
 public class AdaptiveService {
 
     private final StudentProfileRepository studentProfileRepository;
-    private final QuestionRepository questionRepository;
-    private final StudentAnswerRepository studentAnswerRepository;
     private final StudentRepository studentRepository;
     private final QuizSessionRepository quizSessionRepository;
     private final QuizSessionService quizSessionService;
-
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final QuestionSelectionService questionSelectionService;
+    private final GradingCache gradingCache;
+    private final QuestionStatsService questionStatsService;
+    private final QuestionCalibrationService questionCalibrationService;
+    private final StudentProfileUpdater studentProfileUpdater;
+    private final AnswerIngestionService answerIngestionService;
+    private final ActiveSessionRegistry activeSessionRegistry;
     
+    /**
+     * Grades and records an answer in one transaction: the session is validated against the active-session registry,
+     * the profile is read once, and the answer insert and profile update go out together in the commit flush. In journal ingestion mode the answer
+     * is journaled instead and written by the background writer. In-memory bookkeeping only runs once the answer is
+     * committed or journaled.
+     */
+    @Transactional
     public AnswerSubmissionResponse submitAnswer(AnswerSubmissionRequest request) {
-        if (!quizSessionService.isValidSession(request.getSessionId(), request.getStudentId())) {
+        Optional<ActiveSession> sessionOpt = quizSessionService.findActiveSession(request.getSessionId(), request.getStudentId());
+        if (sessionOpt.isEmpty()) {
             AnswerSubmissionResponse response = new AnswerSubmissionResponse();
             response.setSessionValid(false);
             response.setCorrect(false);
@@ -58,40 +70,47 @@ public class AdaptiveService {
             throw new RuntimeException("Invalid question ID format");
         }
         
-        Optional<Question> questionOpt = questionRepository.findById(questionId);
-        if (questionOpt.isEmpty()) {
+        Optional<GradingRecord> gradingOpt = gradingCache.get(questionId);
+        if (gradingOpt.isEmpty()) {
             throw new RuntimeException("Question not found");
         }
         
-        Question question = questionOpt.get();
+        GradingRecord grading = gradingOpt.get();
         
         String answerKey = convertAnswerIndexToKey(request.getAnswer());
-        boolean isCorrect = answerKey.equals(question.getCorrectAnswer());
-        
-        quizSessionService.recordAnswer(
-            request.getSessionId(),
-            request.getQuestionId(), 
-            request.getAnswer(),
-            isCorrect,
-            request.getTimeSpent()
-        );
+        boolean isCorrect = answerKey.equals(grading.correctAnswer());
         
-        StudentAnswer studentAnswer = new StudentAnswer(
-            request.getStudentId(),
-            request.getQuestionId(),
-            request.getQuizId(),
-            request.getAnswer(),
-            isCorrect,
-            request.getTimeSpent()
-        );
-        studentAnswerRepository.save(studentAnswer);
+        if (answerIngestionService.isJournaled()) {
+            answerIngestionService.accept(new JournaledAnswer(0, request.getSessionId(), request.getStudentId(),
+                request.getQuizId(), request.getQuestionId(), request.getAnswer(), answerKey, isCorrect,
+                request.getTimeSpent(), System.currentTimeMillis()));
+        } else {
+            quizSessionService.recordAnswer(
+                sessionOpt.get(),
+                request.getQuizId(),
+                request.getQuestionId(), 
+                request.getAnswer(),
+                isCorrect,
+                request.getTimeSpent()
+            );
+            
+            StudentProfile profile = getOrCreateStudentProfile(request.getStudentId());
+            studentProfileUpdater.updateStudentProfile(profile, grading, answerKey, request.getTimeSpent(), isCorrect);
+        }
         
-        StudentProfile profile = getOrCreateStudentProfile(request.getStudentId());
-        updateStudentProfile(profile, question, answerKey, request.getTimeSpent(), isCorrect);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                activeSessionRegistry.recordAnswer(sessionOpt.get(), isCorrect, request.getTimeSpent());
+                questionSelectionService.markSeen(request.getStudentId(), questionId);
+                questionStatsService.record(questionId, request.getAnswer(), isCorrect, request.getTimeSpent());
+                questionCalibrationService.record(request.getStudentId(), request.getQuestionId(), isCorrect);
+            }
+        });
         
         AnswerSubmissionResponse response = new AnswerSubmissionResponse();
         response.setCorrect(isCorrect);
-        response.setExplanation(question.getExplanation());
+        response.setExplanation(grading.explanation());
         response.setSessionValid(true);
         
         response.setNextQuestionId(null);
@@ -107,125 +126,6 @@ public class AdaptiveService {
             });
     }
     
-    private void updateStudentProfile(StudentProfile profile, Question question, String answer, 
-                                     Long timeSpent, boolean isCorrect) {
-        profile.setTotalQuestions(profile.getTotalQuestions() + 1);
-        
-        if (isCorrect) {
-            profile.setCorrectAnswers(profile.getCorrectAnswers() + 1);
-        }
-        
-        updateSubSkillMastery(profile, question.getSubSkill(), isCorrect);
-        
-        updateDifficultyPerformance(profile, question.getDifficulty(), isCorrect);
-        
-        if (!isCorrect && question.getMisconceptions() != null) {
-            String misconception = question.getMisconceptions().get(answer);
-            if (misconception != null) {
-                profile.getMisconceptions().merge(misconception, 1, Integer::sum);
-            }
-        }
-        
-        updateAverageTime(profile, timeSpent);
-        
-        profile.setLastUpdated(LocalDateTime.now());
-        studentProfileRepository.save(profile);
-    }
-    
-    private void updateSubSkillMastery(StudentProfile profile, String subSkill, boolean isCorrect) {
-        try {
-            Map<String, String> masteryData = profile.getSubSkillMasteryJson();
-            
-            Map<String, Object> skillData;
-            if (masteryData.containsKey(subSkill)) {
-                skillData = objectMapper.readValue(masteryData.get(subSkill), new TypeReference<Map<String, Object>>() {});
-            } else {
-                skillData = new HashMap<>();
-                skillData.put("attempted", 0);
-                skillData.put("correct", 0);
-                skillData.put("recentPerformance", new ArrayList<Boolean>());
-            }
-            
-            skillData.put("attempted", ((Integer) skillData.get("attempted")) + 1);
-            
-            if (isCorrect) {
-                skillData.put("correct", ((Integer) skillData.get("correct")) + 1);
-            }
-            
-            List<Boolean> recentPerformance = (List<Boolean>) skillData.get("recentPerformance");
-            recentPerformance.add(isCorrect);
-            if (recentPerformance.size() > 5) {
-                recentPerformance.remove(0);
-            }
-            
-            skillData.put("masteryLevel", calculateMasteryLevel(skillData));
-            
-            masteryData.put(subSkill, objectMapper.writeValueAsString(skillData));
-            
-        } catch (JsonProcessingException e) {
-            log.error("Error updating sub-skill mastery: {}", e.getMessage());
-        }
-    }
-    
-    private void updateDifficultyPerformance(StudentProfile profile, Integer difficulty, boolean isCorrect) {
-        try {
-            Map<Integer, String> difficultyData = profile.getDifficultyPerformanceJson();
-            
-            Map<String, Object> performanceData;
-            if (difficultyData.containsKey(difficulty)) {
-                performanceData = objectMapper.readValue(difficultyData.get(difficulty), new TypeReference<Map<String, Object>>() {});
-            } else {
-                performanceData = new HashMap<>();
-                performanceData.put("attempted", 0);
-                performanceData.put("correct", 0);
-            }
-            
-            performanceData.put("attempted", ((Integer) performanceData.get("attempted")) + 1);
-            
-            if (isCorrect) {
-                performanceData.put("correct", ((Integer) performanceData.get("correct")) + 1);
-            }
-            
-            difficultyData.put(difficulty, objectMapper.writeValueAsString(performanceData));
-            
-        } catch (JsonProcessingException e) {
-            log.error("Error updating difficulty performance: {}", e.getMessage());
-        }
-    }
-    
-    private void updateAverageTime(StudentProfile profile, Long timeSpent) {
-        if (timeSpent != null && timeSpent > 0) {
-            double currentAverage = profile.getAverageTime();
-            int totalQuestions = profile.getTotalQuestions();
-            
-            if (totalQuestions == 1) {
-                profile.setAverageTime(timeSpent.doubleValue());
-            } else {
-                double newAverage = ((currentAverage * (totalQuestions - 1)) + timeSpent) / totalQuestions;
-                profile.setAverageTime(newAverage);
-            }
-        }
-    }
-    
-    private String calculateMasteryLevel(Map<String, Object> skillData) {
-        int attempted = (Integer) skillData.get("attempted");
-        int correct = (Integer) skillData.get("correct");
-        List<Boolean> recentPerformance = (List<Boolean>) skillData.get("recentPerformance");
-        
-        if (attempted == 0) return "unknown";
-        
-        double accuracyRate = (double) correct / attempted;
-        double recentAccuracy = recentPerformance.stream().mapToDouble(b -> b ? 1.0 : 0.0).average().orElse(0.0);
-        
-        if (accuracyRate >= 0.8 && recentAccuracy >= 0.8) {
-            return "mastered";
-        } else if (accuracyRate >= 0.6 && recentAccuracy >= 0.6) {
-            return "developing";
-        } else {
-            return "struggling";
-        }
-    }
-    
     public int determineNextDifficulty(String studentId, int currentDifficulty) {
         Optional<StudentProfile> profileOpt = studentProfileRepository.findByStudentId(studentId);
         if (profileOpt.isEmpty()) {
@@ -245,20 +145,8 @@ public class AdaptiveService {
     }
     
     private boolean shouldOfferHint(StudentProfile profile, Question question) {
-        String subSkill = question.getSubSkill();
-        
-        try {
-            Map<String, String> masteryData = profile.getSubSkillMasteryJson();
-            if (masteryData.containsKey(subSkill)) {
-                Map<String, Object> skillData = objectMapper.readValue(masteryData.get(subSkill), new TypeReference<Map<String, Object>>() {});
-                String masteryLevel = (String) skillData.get("masteryLevel");
-                return "struggling".equals(masteryLevel);
-            }
-        } catch (JsonProcessingException e) {
-            log.error("Error checking mastery level: {}", e.getMessage());
-        }
-        
-        return false;
+        MasteryState state = profile.getSubSkillMastery().get(question.getSubSkill());
+        return state != null && state.getMasteryLevel() == MasteryState.MasteryLevel.STRUGGLING;
     }
     
     public Optional<StudentProfile> getStudentProfile(String studentId) {
@@ -301,23 +189,16 @@ public class AdaptiveService {
         if (profileOpt.isPresent()) {
             StudentProfile profile = profileOpt.get();
             List<PerformanceReport.SubSkillPerformance> subSkillBreakdown = new ArrayList<>();
-            for (Map.Entry<String, String> entry : profile.getSubSkillMasteryJson().entrySet()) {
-                try {
-                    Map<String, Object> skillData = objectMapper.readValue(entry.getValue(), new TypeReference<Map<String, Object>>() {});
-                    
-                    PerformanceReport.SubSkillPerformance skillPerformance = new PerformanceReport.SubSkillPerformance();
-                    skillPerformance.setSkill(entry.getKey());
-                    skillPerformance.setMasteryLevel((String) skillData.get("masteryLevel"));
-                    
-                    int attempted = (Integer) skillData.get("attempted");
-                    int correct = (Integer) skillData.get("correct");
-                    skillPerformance.setAccuracy(attempted > 0 ? (double) correct / attempted : 0.0);
-                    skillPerformance.setQuestionsAttempted(attempted);
-                    
-                    subSkillBreakdown.add(skillPerformance);
-                } catch (JsonProcessingException e) {
-                    log.error("Error processing sub-skill data: {}", e.getMessage());
-                }
+            for (Map.Entry<String, MasteryState> entry : profile.getSubSkillMastery().entrySet()) {
+                MasteryState state = entry.getValue();
+                
+                PerformanceReport.SubSkillPerformance skillPerformance = new PerformanceReport.SubSkillPerformance();
+                skillPerformance.setSkill(entry.getKey());
+                skillPerformance.setMasteryLevel(state.getMasteryLevel().label());
+                skillPerformance.setAccuracy(state.getAccuracy());
+                skillPerformance.setQuestionsAttempted(state.getAttempted());
+                
+                subSkillBreakdown.add(skillPerformance);
             }
             report.setSubSkillBreakdown(subSkillBreakdown);
             report.setRecommendations(generateRecommendations(profile));
@@ -0,0 +1,265 @@
+package com.quizgenerator.service;
+
+import com.quizgenerator.model.AnswerEvent;
+import com.quizgenerator.model.JournalCheckpoint;
+import com.quizgenerator.model.StudentProfile;
+import com.quizgenerator.repository.AnswerEventRepository;
+import com.quizgenerator.repository.JournalCheckpointRepository;
+import com.quizgenerator.repository.StudentProfileRepository;
+import com.quizgenerator.service.AnswerJournal.JournaledAnswer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind ingestion of graded answers. In journal mode an accepted answer is appended to the {@link AnswerJournal}
+ * and queued, and a background writer applies queued answers to answer_events and the student profile in batches.
+ * Session totals are counted by the {@link ActiveSessionRegistry} when the answer is accepted. The sequence of the last
+ * applied answer is stored in the same transaction, so replaying the journal after a restart never applies an answer
+ * twice. A batch that keeps failing is retried one answer at a time and the answers that still fail are dead-lettered
+ * by the journal, so one bad answer cannot hold up the rest.
+ */
+@Service
+@Slf4j
+public class AnswerIngestionService {
+
+    private static final String JOURNAL_NAME = "answers";
+
+    private final AnswerJournal answerJournal;
+    private final JournalCheckpointRepository journalCheckpointRepository;
+    private final AnswerEventRepository answerEventRepository;
+    private final StudentProfileRepository studentProfileRepository;
+    private final StudentProfileUpdater studentProfileUpdater;
+    private final GradingCache gradingCache;
+    private final TransactionTemplate transactionTemplate;
+    private final Timer flushTimer;
+    private final Counter deadLetterCounter;
+    private final CountDownLatch recovered = new CountDownLatch(1);
+    private final ConcurrentLinkedDeque<JournaledAnswer> pending = new ConcurrentLinkedDeque<>();
+    private final Object appendLock = new Object();
+
+    @Value("${app.ingestion.mode:sync}")
+    private String mode;
+
+    @Value("${app.ingestion.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    @Value("${app.ingestion.max-flush-attempts:5}")
+    private int maxFlushAttempts;
+
+    private int headFailures;
+
+    @Autowired
+    public AnswerIngestionService(AnswerJournal answerJournal, JournalCheckpointRepository journalCheckpointRepository,
+                                  AnswerEventRepository answerEventRepository,
+                                  StudentProfileRepository studentProfileRepository,
+                                  StudentProfileUpdater studentProfileUpdater, GradingCache gradingCache,
+                                  PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.answerJournal = answerJournal;
+        this.journalCheckpointRepository = journalCheckpointRepository;
+        this.answerEventRepository = answerEventRepository;
+        this.studentProfileRepository = studentProfileRepository;
+        this.studentProfileUpdater = studentProfileUpdater;
+        this.gradingCache = gradingCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.flushTimer = Timer.builder("quiz.ingestion.flush")
+                .description("Time to write one batch of journaled answers to the database")
+                .register(meterRegistry);
+        this.deadLetterCounter = Counter.builder("quiz.ingestion.dead_lettered")
+                .description("Journaled answers the database rejected and that were moved to a dead-letter file")
+                .register(meterRegistry);
+        Gauge.builder("quiz.ingestion.pending", pending, ConcurrentLinkedDeque::size)
+                .register(meterRegistry);
+        Gauge.builder("quiz.ingestion.flush.lag", this, AnswerIngestionService::flushLagMs)
+                .description("Age of the oldest accepted answer not yet written to the database")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+    }
+
+    public boolean isJournaled() {
+        return "journal".equalsIgnoreCase(mode);
+    }
+
+    /**
+     * Journals the answer and queues it for the background writer. Appending and queueing happen under one lock so
+     * the queue stays in sequence order and a flushed batch never skips over an earlier answer. Waits for
+     * {@link #recover} first, since the journal only assigns sequences after the ones it recovered.
+     */
+    public void accept(JournaledAnswer event) {
+        awaitRecovery();
+        synchronized (appendLock) {
+            pending.addLast(answerJournal.append(event));
+        }
+    }
+
+    /**
+     * Applies answers a previous run journaled but never wrote to the database. Runs at startup before anything reads
+     * answers back, whichever ingestion mode is configured.
+     */
+    public void recover() {
+        try {
+            long checkpoint = journalCheckpointRepository.findById(JOURNAL_NAME)
+                    .map(JournalCheckpoint::getLastSequence)
+                    .orElse(0L);
+            List<JournaledAnswer> unflushed = answerJournal.recover(checkpoint);
+            if (!unflushed.isEmpty()) {
+                pending.addAll(unflushed);
+                flush();
+                log.info("Queued {} journaled answers for replay", unflushed.size());
+            }
+        } finally {
+            recovered.countDown();
+        }
+    }
+
+    private void awaitRecovery() {
+        try {
+            recovered.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for answer journal recovery", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.ingestion.flush-interval-ms:200}",
+               initialDelayString = "${app.ingestion.flush-interval-ms:200}")
+    public synchronized void flush() {
+        while (!pending.isEmpty()) {
+            List<JournaledAnswer> batch = new ArrayList<>(Math.min(flushBatchSize, pending.size()));
+            JournaledAnswer event;
+            while (batch.size() < flushBatchSize && (event = pending.pollFirst()) != null) {
+                batch.add(event);
+            }
+            try {
+                flushTimer.record(() -> transactionTemplate.executeWithoutResult(status -> write(batch)));
+            } catch (RuntimeException e) {
+                if (++headFailures < maxFlushAttempts) {
+                    log.warn("Failed to write {} journaled answers (attempt {} of {}), keeping them for the next flush: {}",
+                            batch.size(), headFailures, maxFlushAttempts, e.getMessage());
+                    requeue(batch);
+                    return;
+                }
+                log.error("Failed to write {} journaled answers {} times, writing them one at a time: {}",
+                        batch.size(), headFailures, e.getMessage());
+                if (!writeIndividually(batch)) {
+                    requeue(batch);
+                    return;
+                }
+            }
+            headFailures = 0;
+            answerJournal.release(batch.get(batch.size() - 1).sequence());
+        }
+    }
+
+    /**
+     * Writes each answer in its own transaction and dead-letters the ones that fail, then moves the checkpoint past
+     * the batch. Returns false, leaving the batch queued, if every answer failed because the database is unreachable
+     * or the failed answers could not be dead-lettered.
+     */
+    private boolean writeIndividually(List<JournaledAnswer> batch) {
+        List<JournaledAnswer> failed = new ArrayList<>();
+        for (JournaledAnswer event : batch) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(List.of(event)));
+            } catch (RuntimeException e) {
+                failed.add(event);
+            }
+        }
+        if (failed.isEmpty()) {
+            return true;
+        }
+        if (failed.size() == batch.size() && !databaseReachable()) {
+            log.warn("Database is unreachable; keeping {} journaled answers queued", batch.size());
+            headFailures = 0;
+            return false;
+        }
+        try {
+            Path deadLetter = answerJournal.deadLetter(failed);
+            deadLetterCounter.increment(failed.size());
+            log.error("Dead-lettered {} journaled answers to {}", failed.size(), deadLetter);
+        } catch (RuntimeException e) {
+            log.error("Failed to dead-letter {} journaled answers: {}", failed.size(), e.getMessage());
+            return false;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> saveCheckpoint(batch.get(batch.size() - 1).sequence()));
+        } catch (RuntimeException e) {
+            log.warn("Failed to move the answer journal checkpoint past dead-lettered answers: {}", e.getMessage());
+        }
+        return true;
+    }
+
+    private boolean databaseReachable() {
+        try {
+            transactionTemplate.executeWithoutResult(status -> journalCheckpointRepository.findById(JOURNAL_NAME));
+            return true;
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    private void requeue(List<JournaledAnswer> batch) {
+        for (int i = batch.size() - 1; i >= 0; i--) {
+            pending.addFirst(batch.get(i));
+        }
+    }
+
+    private void write(List<JournaledAnswer> batch) {
+        Map<String, StudentProfile> profiles = studentProfileRepository.findByStudentIdIn(
+                        batch.stream().map(JournaledAnswer::studentId).collect(Collectors.toSet())).stream()
+                .collect(Collectors.toMap(StudentProfile::getStudentId, Function.identity()));
+
+        List<AnswerEvent> answerEvents = new ArrayList<>(batch.size());
+        for (JournaledAnswer event : batch) {
+            AnswerEvent answerEvent = new AnswerEvent(event.sessionId(), event.studentId(), event.quizId(),
+                    event.questionId(), event.answer(), event.correct(), event.timeSpentMs());
+            answerEvent.setAnsweredAt(LocalDateTime.ofInstant(Instant.ofEpochMilli(event.answeredAtMs()),
+                    ZoneId.systemDefault()));
+            answerEvents.add(answerEvent);
+
+            StudentProfile profile = profiles.computeIfAbsent(event.studentId(),
+                    studentId -> studentProfileRepository.save(new StudentProfile(studentId)));
+            gradingCache.get(Long.parseLong(event.questionId())).ifPresent(grading ->
+                    studentProfileUpdater.updateStudentProfile(profile, grading, event.answerKey(),
+                            event.timeSpentMs(), event.correct()));
+        }
+        answerEventRepository.saveAll(answerEvents);
+        saveCheckpoint(batch.get(batch.size() - 1).sequence());
+    }
+
+    private void saveCheckpoint(long sequence) {
+        JournalCheckpoint checkpoint = journalCheckpointRepository.findById(JOURNAL_NAME)
+                .orElseGet(() -> new JournalCheckpoint(JOURNAL_NAME));
+        if (checkpoint.getLastSequence() != null && checkpoint.getLastSequence() >= sequence) {
+            return;
+        }
+        checkpoint.setLastSequence(sequence);
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        journalCheckpointRepository.save(checkpoint);
+    }
+
+    private double flushLagMs() {
+        JournaledAnswer oldest = pending.peekFirst();
+        return oldest != null ? Math.max(0, System.currentTimeMillis() - oldest.answeredAtMs()) : 0;
+    }
+}
@@ -0,0 +1,373 @@
+package com.quizgenerator.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of accepted answers, written to memory-mapped segment files. Each record is its payload length,
+ * a CRC32 of the payload and the payload itself, so a record torn by a crash ends the segment when it is read back.
+ * Segments are named after the first sequence they hold and deleted once every answer in them has been written to the
+ * database.
+ * <p>
+ * The journal only means something next to the database its checkpoint lives in. When the schema is recreated at
+ * startup (an in-memory database or ddl-auto create/create-drop) segments left by a previous run are discarded, and
+ * without a configured directory the journal lives in a directory of its own that is removed on shutdown. A file-based
+ * H2 database gets its journal next to the database file.
+ */
+@Component
+@Slf4j
+public class AnswerJournal {
+
+    public record JournaledAnswer(long sequence, String sessionId, String studentId, String quizId, String questionId,
+                              int answer, String answerKey, boolean correct, long timeSpentMs, long answeredAtMs) {
+
+        JournaledAnswer withSequence(long sequence) {
+            return new JournaledAnswer(sequence, sessionId, studentId, quizId, questionId, answer, answerKey, correct,
+                    timeSpentMs, answeredAtMs);
+        }
+    }
+
+    private record Segment(Path path, long lastSequence, long bytes) {
+    }
+
+    private static final String SEGMENT_PREFIX = "answers-";
+    private static final String DEAD_LETTER_PREFIX = "dead-letter-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String H2_FILE_PREFIX = "jdbc:h2:file:";
+    private static final int RECORD_HEADER_BYTES = 8;
+
+    private final Deque<Segment> closedSegments = new ArrayDeque<>();
+    private MappedByteBuffer active;
+    private Path activePath;
+    private long activeLastSequence;
+    private long nextSequence = 1;
+    private volatile long closedBytes;
+    private volatile int segmentCount;
+    private Path directory;
+    private boolean perRun;
+    private boolean ownsDirectory;
+
+    @Value("${app.ingestion.journal.dir:}")
+    private String journalDir;
+
+    @Value("${spring.datasource.url:}")
+    private String datasourceUrl;
+
+    @Value("${spring.jpa.hibernate.ddl-auto:none}")
+    private String ddlAuto;
+
+    @Value("${app.ingestion.journal.segment-bytes:16777216}")
+    private int segmentBytes;
+
+    @Value("${app.ingestion.journal.force-on-append:false}")
+    private boolean forceOnAppend;
+
+    @Autowired
+    public AnswerJournal(MeterRegistry meterRegistry) {
+        Gauge.builder("quiz.ingestion.journal.bytes", this, AnswerJournal::sizeBytes)
+                .description("Bytes of answer journal not yet released")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("quiz.ingestion.journal.segments", this, journal -> journal.segmentCount)
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void resolveDirectory() {
+        perRun = datasourceUrl.startsWith("jdbc:h2:mem:") || "create".equals(ddlAuto) || "create-drop".equals(ddlAuto);
+        try {
+            if (!journalDir.isBlank()) {
+                directory = Paths.get(journalDir);
+            } else if (perRun) {
+                directory = Files.createTempDirectory("quiz-answer-journal");
+                ownsDirectory = true;
+            } else if (datasourceUrl.startsWith(H2_FILE_PREFIX)) {
+                String databasePath = datasourceUrl.substring(H2_FILE_PREFIX.length()).split(";", 2)[0];
+                directory = Paths.get(databasePath + "-answer-journal");
+            } else {
+                directory = Paths.get(System.getProperty("java.io.tmpdir"), "quiz-answer-journal");
+                log.warn("No answer journal directory configured for {}; using {}", datasourceUrl, directory);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create answer journal directory", e);
+        }
+        log.info("Answer journal directory is {}{}", directory, perRun ? " (discarded with the schema)" : "");
+    }
+
+    /**
+     * Reads the segments left by a previous run and returns the answers after the checkpoint in sequence order.
+     * Segments holding nothing after the checkpoint are deleted; new answers always go to a fresh segment.
+     */
+    public synchronized List<JournaledAnswer> recover(long checkpoint) {
+        List<JournaledAnswer> unflushed = new ArrayList<>();
+        if (perRun) {
+            List<Path> stale = listSegments(SEGMENT_PREFIX);
+            if (!stale.isEmpty()) {
+                log.warn("Discarding {} answer journal segments left in {} for a schema that was recreated",
+                        stale.size(), directory);
+                stale.forEach(this::delete);
+            }
+            return unflushed;
+        }
+        long lastSequence = checkpoint;
+        for (Path path : listSegments(SEGMENT_PREFIX)) {
+            List<JournaledAnswer> events = new ArrayList<>();
+            long bytes = read(path, events);
+            long segmentLast = events.isEmpty() ? 0 : events.get(events.size() - 1).sequence();
+            lastSequence = Math.max(lastSequence, segmentLast);
+            if (segmentLast <= checkpoint) {
+                delete(path);
+                continue;
+            }
+            events.stream().filter(event -> event.sequence() > checkpoint).forEach(unflushed::add);
+            closedSegments.add(new Segment(path, segmentLast, bytes));
+            closedBytes += bytes;
+        }
+        nextSequence = lastSequence + 1;
+        segmentCount = closedSegments.size();
+        if (!unflushed.isEmpty()) {
+            log.info("Recovered {} unflushed answers from {} journal segments", unflushed.size(), closedSegments.size());
+        }
+        return unflushed;
+    }
+
+    /**
+     * Assigns the next sequence to the event and appends it to the active segment, rolling to a new segment when the
+     * record does not fit.
+     */
+    public synchronized JournaledAnswer append(JournaledAnswer event) {
+        JournaledAnswer sequenced = event.withSequence(nextSequence);
+        byte[] payload = encode(sequenced);
+        if (payload.length + RECORD_HEADER_BYTES > segmentBytes) {
+            throw new IllegalArgumentException("Answer record of " + payload.length + " bytes exceeds journal segment size");
+        }
+        if (active == null || active.remaining() < payload.length + RECORD_HEADER_BYTES) {
+            roll();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        int start = active.position();
+        active.putInt(payload.length);
+        active.putInt((int) crc.getValue());
+        active.put(payload);
+        if (forceOnAppend) {
+            active.force(start, active.position() - start);
+        }
+        activeLastSequence = sequenced.sequence();
+        nextSequence++;
+        return sequenced;
+    }
+
+    /**
+     * Deletes every closed segment whose answers are all at or below the given sequence.
+     */
+    public synchronized void release(long sequence) {
+        while (!closedSegments.isEmpty() && closedSegments.peekFirst().lastSequence() <= sequence) {
+            Segment segment = closedSegments.pollFirst();
+            closedBytes -= segment.bytes();
+            delete(segment.path());
+        }
+        segmentCount = closedSegments.size() + (active != null ? 1 : 0);
+    }
+
+    /**
+     * Writes answers the database keeps rejecting to a dead-letter file beside the segments, in the segment record
+     * format, so they are kept for inspection without blocking the answers behind them.
+     */
+    public synchronized Path deadLetter(List<JournaledAnswer> events) {
+        Path path = directory.resolve(String.format("%s%020d-%d%s", DEAD_LETTER_PREFIX, events.get(0).sequence(),
+                System.currentTimeMillis(), SEGMENT_SUFFIX));
+        try {
+            Files.createDirectories(directory);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                for (JournaledAnswer event : events) {
+                    byte[] payload = encode(event);
+                    CRC32 crc = new CRC32();
+                    crc.update(payload);
+                    ByteBuffer record = ByteBuffer.allocate(payload.length + RECORD_HEADER_BYTES);
+                    record.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+                    while (record.hasRemaining()) {
+                        channel.write(record);
+                    }
+                }
+                channel.force(true);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write answer dead-letter file " + path, e);
+        }
+        return path;
+    }
+
+    public long sizeBytes() {
+        MappedByteBuffer current = active;
+        return closedBytes + (current != null ? current.position() : 0);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (active != null) {
+            active.force();
+        }
+        if (ownsDirectory && listSegments(DEAD_LETTER_PREFIX).isEmpty()) {
+            active = null;
+            listSegments(SEGMENT_PREFIX).forEach(this::delete);
+            delete(directory);
+        }
+    }
+
+    private void roll() {
+        try {
+            if (active != null) {
+                active.force();
+                if (active.position() > 0) {
+                    closedSegments.add(new Segment(activePath, activeLastSequence, active.position()));
+                    closedBytes += active.position();
+                } else {
+                    delete(activePath);
+                }
+            }
+            Files.createDirectories(directory);
+            activePath = directory.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, nextSequence, SEGMENT_SUFFIX));
+            try (FileChannel channel = FileChannel.open(activePath, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                active = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            }
+            segmentCount = closedSegments.size() + 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open answer journal segment in " + directory, e);
+        }
+    }
+
+    private List<Path> listSegments(String prefix) {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(prefix) && name.endsWith(SEGMENT_SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list answer journal segments in " + directory, e);
+        }
+    }
+
+    /**
+     * Reads records until the zeroed tail of the segment or the first record that fails its length or CRC check, and
+     * returns the number of valid bytes.
+     */
+    private long read(Path path, List<JournaledAnswer> events) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.remaining() >= RECORD_HEADER_BYTES) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    buffer.position(start);
+                    break;
+                }
+                byte[] payload = new byte[length];
+                buffer.get(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != checksum) {
+                    log.warn("Answer journal segment {} has a torn record at offset {}", path.getFileName(), start);
+                    buffer.position(start);
+                    break;
+                }
+                events.add(decode(payload));
+            }
+            return buffer.position();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read answer journal segment " + path, e);
+        }
+    }
+
+    private void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete answer journal segment {}: {}", path, e.getMessage());
+        }
+    }
+
+    private static byte[] encode(JournaledAnswer event) {
+        byte[][] strings = {bytes(event.sessionId()), bytes(event.studentId()), bytes(event.quizId()),
+                bytes(event.questionId()), bytes(event.answerKey())};
+        int size = Long.BYTES * 3 + Integer.BYTES + 1;
+        for (byte[] string : strings) {
+            size += Short.BYTES + (string != null ? string.length : 0);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putLong(event.sequence());
+        buffer.putLong(event.answeredAtMs());
+        buffer.putLong(event.timeSpentMs());
+        buffer.putInt(event.answer());
+        buffer.put((byte) (event.correct() ? 1 : 0));
+        for (byte[] string : strings) {
+            buffer.putShort((short) (string != null ? string.length : -1));
+            if (string != null) {
+                buffer.put(string);
+            }
+        }
+        return buffer.array();
+    }
+
+    private static JournaledAnswer decode(byte[] payload) {
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        long sequence = buffer.getLong();
+        long answeredAtMs = buffer.getLong();
+        long timeSpentMs = buffer.getLong();
+        int answer = buffer.getInt();
+        boolean correct = buffer.get() == 1;
+        return new JournaledAnswer(sequence, string(buffer), string(buffer), string(buffer), string(buffer), answer,
+                string(buffer), correct, timeSpentMs, answeredAtMs);
+    }
+
+    private static byte[] bytes(String value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Answer field of " + bytes.length + " bytes is too long to journal");
+        }
+        return bytes;
+    }
+
+    private static String string(ByteBuffer buffer) {
+        short length = buffer.getShort();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -3,20 +3,50 @@ package com.quizgenerator.service;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quizgenerator.exception.ClaudeApiException;
+import com.quizgenerator.service.LlmCallScheduler.CallContext;
+import com.quizgenerator.service.LlmCallScheduler.Ticket;
+import com.quizgenerator.service.LlmCallScheduler.Usage;
+import com.quizgenerator.service.LlmResponseCache.Policy;
+import com.quizgenerator.service.QuestionGenerator.StandardPromptSpec;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import okhttp3.*;
+import okio.BufferedSource;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 public class ClaudeApiService {
     
+    public static final String GENERATE_QUESTIONS_SITE = "generateQuestions";
+    public static final String GENERATE_TARGETED_QUESTIONS_SITE = "generateTargetedQuestions";
+    
+    private static final CallContext DEFAULT_CONTEXT = CallContext.interactive("makeRequest", null, null);
+    private static final CallContext PARSE_STANDARDS_CONTEXT = CallContext.background("parseStandards", null);
+    private static final CallContext GENERATE_HINT_CONTEXT = CallContext.interactive("generateHint", null, null);
+    
     private final OkHttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final LlmResponseCache responseCache;
+    private final LlmResilienceGuard resilienceGuard;
+    private final LlmCallScheduler callScheduler;
+    private OkHttpClient asyncHttpClient;
     
     @Value("${app.anthropic.api-key}")
     private String apiKey;
@@ -33,52 +63,309 @@ public class ClaudeApiService {
     @Value("${app.anthropic.temperature}")
     private double temperature;
     
-    public ClaudeApiService() {
+    @Value("${app.anthropic.async.max-requests:64}")
+    private int asyncMaxRequests;
+    
+    @Value("${app.anthropic.async.max-requests-per-host:16}")
+    private int asyncMaxRequestsPerHost;
+    
+    @Value("${app.anthropic.async.max-queued:128}")
+    private int asyncMaxQueued;
+    
+    @Value("${app.anthropic.cache.policy.default:bypass}")
+    private Policy defaultCachePolicy;
+    
+    @Value("${app.anthropic.cache.policy.questions:bypass}")
+    private Policy questionsCachePolicy;
+    
+    @Value("${app.anthropic.cache.policy.hints:bypass}")
+    private Policy hintsCachePolicy;
+    
+    @Value("${app.anthropic.cache.policy.standards:read-through}")
+    private Policy standardsCachePolicy;
+    
+    public ClaudeApiService(LlmResponseCache responseCache, LlmResilienceGuard resilienceGuard,
+                            LlmCallScheduler callScheduler) {
         this.httpClient = new OkHttpClient.Builder()
             .connectTimeout(30, TimeUnit.SECONDS)
             .readTimeout(60, TimeUnit.SECONDS)
             .writeTimeout(60, TimeUnit.SECONDS)
             .build();
         this.objectMapper = new ObjectMapper();
+        this.responseCache = responseCache;
+        this.resilienceGuard = resilienceGuard;
+        this.callScheduler = callScheduler;
     }
 
     
+    @PostConstruct
+    void initAsyncClient() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(asyncMaxRequests);
+        dispatcher.setMaxRequestsPerHost(asyncMaxRequestsPerHost);
+        this.asyncHttpClient = httpClient.newBuilder()
+            .dispatcher(dispatcher)
+            .build();
+    }
+    
     public String makeRequest(String prompt, int maxTokens, double temperature) throws IOException {
-        String requestBody = createRequestBody(prompt, maxTokens, temperature);
+        return makeRequest(prompt, maxTokens, temperature, defaultCachePolicy, DEFAULT_CONTEXT);
+    }
+    
+    public String makeRequest(String prompt, int maxTokens, double temperature, Policy cachePolicy,
+                              CallContext context) throws IOException {
+        String requestBody = createRequestBody(prompt, maxTokens, temperature, false);
+        String cacheKey = responseCache.key(requestBody);
         
-        Request request = new Request.Builder()
-            .url(baseUrl + "/v1/messages")
-            .addHeader("Content-Type", "application/json")
-            .addHeader("x-api-key", apiKey)
-            .addHeader("anthropic-version", "2023-06-01")
-            .post(RequestBody.create(requestBody, MediaType.get("application/json")))
-            .build();
+        Optional<String> cached = cachedResponse(cacheKey, cachePolicy);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+        
+        Ticket ticket = acquireTicket(context, prompt, maxTokens);
+        Usage usage = null;
+        try {
+            LlmResponse response = resilienceGuard.execute(() -> {
+                try (Response httpResponse = httpClient.newCall(buildRequest(requestBody)).execute()) {
+                    return readResponse(httpResponse);
+                }
+            });
+            usage = response.usage();
+            storeResponse(cacheKey, response.text(), cachePolicy);
+            return response.text();
+        } finally {
+            ticket.release(usage);
+        }
+    }
+    
+    public CompletableFuture<String> makeRequestAsync(String prompt, int maxTokens, double temperature) {
+        return makeRequestAsync(prompt, maxTokens, temperature, defaultCachePolicy, DEFAULT_CONTEXT);
+    }
+    
+    public CompletableFuture<String> makeRequestAsync(String prompt, int maxTokens, double temperature, Policy cachePolicy,
+                                                      CallContext context) {
+        String requestBody;
+        String cacheKey;
+        try {
+            requestBody = createRequestBody(prompt, maxTokens, temperature, false);
+            cacheKey = responseCache.key(requestBody);
+            Optional<String> cached = cachedResponse(cacheKey, cachePolicy);
+            if (cached.isPresent()) {
+                return CompletableFuture.completedFuture(cached.get());
+            }
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        
+        CompletableFuture<Ticket> acquired = callScheduler.acquire(context, estimateTokens(prompt, maxTokens));
+        AtomicReference<CompletableFuture<LlmResponse>> call = new AtomicReference<>();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        CompletableFuture<String> result = acquired
+            .thenCompose(ticket -> {
+                CompletableFuture<LlmResponse> attempt = resilienceGuard.executeAsync(() -> sendAsync(requestBody));
+                call.set(attempt);
+                if (cancelled.get()) {
+                    attempt.cancel(true);
+                }
+                return attempt.whenComplete((response, error) -> ticket.release(response != null ? response.usage() : null));
+            })
+            .thenApply(response -> {
+                storeResponse(cacheKey, response.text(), cachePolicy);
+                return response.text();
+            });
+        // cancelling the caller's future gives up the scheduler slot and the HTTP call, not just the wait for them
+        result.whenComplete((text, error) -> {
+            if (result.isCancelled()) {
+                cancelled.set(true);
+                acquired.cancel(true);
+                CompletableFuture<LlmResponse> attempt = call.get();
+                if (attempt != null) {
+                    attempt.cancel(true);
+                }
+            }
+        });
+        return result;
+    }
+    
+    private Ticket acquireTicket(CallContext context, String prompt, int maxTokens) throws IOException {
+        try {
+            return callScheduler.acquire(context, estimateTokens(prompt, maxTokens)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+    
+    private long estimateTokens(String prompt, int maxTokens) {
+        // roughly four characters per token; the reservation is settled against the reported usage afterwards
+        return prompt.length() / 4 + maxTokens;
+    }
+    
+    private CompletableFuture<LlmResponse> sendAsync(String requestBody) {
+        Dispatcher dispatcher = asyncHttpClient.dispatcher();
+        if (dispatcher.queuedCallsCount() >= asyncMaxQueued) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                "Claude API request queue is full (" + asyncMaxQueued + " waiting)"));
+        }
+        
+        CompletableFuture<LlmResponse> future = new CompletableFuture<>();
+        Call call = asyncHttpClient.newCall(buildRequest(requestBody));
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                future.completeExceptionally(e);
+            }
+            
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    future.complete(readResponse(response));
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            }
+        });
+        future.whenComplete((result, error) -> {
+            if (future.isCancelled()) {
+                call.cancel();
+            }
+        });
+        return future;
+    }
+    
+    public void streamRequest(String prompt, int maxTokens, double temperature, Policy cachePolicy,
+                              CallContext context, Consumer<String> onText) throws IOException {
+        String cacheKey = responseCache.key(createRequestBody(prompt, maxTokens, temperature, false));
+        
+        Optional<String> cached = cachedResponse(cacheKey, cachePolicy);
+        if (cached.isPresent()) {
+            onText.accept(cached.get());
+            return;
+        }
+        
+        Request request = buildRequest(createRequestBody(prompt, maxTokens, temperature, true));
+        
+        Ticket ticket = acquireTicket(context, prompt, maxTokens);
+        Usage usage = null;
+        try {
+            LlmResponse response = resilienceGuard.execute(() -> {
+                StringBuilder received = new StringBuilder();
+                try {
+                    return readStream(request, text -> {
+                        received.append(text);
+                        onText.accept(text);
+                    });
+                } catch (IOException e) {
+                    if (received.length() > 0) {
+                        // partial output was already delivered, so a retry would duplicate it
+                        throw new ClaudeApiException("Claude API stream failed after partial output: " + e.getMessage(), e);
+                    }
+                    throw e;
+                }
+            });
+            usage = response.usage();
+            storeResponse(cacheKey, response.text(), cachePolicy);
+        } finally {
+            ticket.release(usage);
+        }
+    }
+    
+    private LlmResponse readStream(Request request, Consumer<String> onText) throws IOException {
+        StringBuilder content = new StringBuilder();
+        long inputTokens = 0;
+        long outputTokens = 0;
         
         try (Response response = httpClient.newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 handleApiError(response);
             }
             
-            String responseBody = response.body().string();
-            return extractContentFromResponse(responseBody);
+            BufferedSource source = response.body().source();
+            String line;
+            while ((line = source.readUtf8Line()) != null) {
+                if (!line.startsWith("data:")) {
+                    continue;
+                }
+                
+                JsonNode event = objectMapper.readTree(line.substring(5).trim());
+                String eventType = event.path("type").asText();
+                
+                if ("message_start".equals(eventType)) {
+                    inputTokens = event.path("message").path("usage").path("input_tokens").asLong();
+                } else if ("message_delta".equals(eventType)) {
+                    outputTokens = event.path("usage").path("output_tokens").asLong(outputTokens);
+                } else if ("content_block_delta".equals(eventType) && "text_delta".equals(event.path("delta").path("type").asText())) {
+                    String text = event.path("delta").path("text").asText();
+                    content.append(text);
+                    onText.accept(text);
+                } else if ("error".equals(eventType)) {
+                    throw new IOException("Claude API stream error: " + event.path("error").path("message").asText());
+                } else if ("message_stop".equals(eventType)) {
+                    return new LlmResponse(content.toString(), new Usage(inputTokens, outputTokens));
+                }
+            }
+            
+            throw new IOException("Claude API stream ended before message_stop");
+        }
+    }
+    
+    private Optional<String> cachedResponse(String cacheKey, Policy cachePolicy) throws IOException {
+        if (cachePolicy == Policy.BYPASS) {
+            return Optional.empty();
+        }
+        
+        Optional<String> cached = responseCache.get(cacheKey);
+        if (cached.isEmpty() && cachePolicy == Policy.REPLAY_ONLY) {
+            throw new IOException("No recorded Claude API response for request " + cacheKey + " (replay-only)");
+        }
+        return cached;
+    }
+    
+    private void storeResponse(String cacheKey, String content, Policy cachePolicy) {
+        if (cachePolicy == Policy.READ_THROUGH) {
+            responseCache.put(cacheKey, content);
+        }
+    }
+    
+    private Request buildRequest(String requestBody) {
+        return new Request.Builder()
+            .url(baseUrl + "/v1/messages")
+            .addHeader("Content-Type", "application/json")
+            .addHeader("x-api-key", apiKey)
+            .addHeader("anthropic-version", "2023-06-01")
+            .post(RequestBody.create(requestBody, MediaType.get("application/json")))
+            .build();
+    }
+    
+    private LlmResponse readResponse(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            handleApiError(response);
         }
+        
+        String responseBody = response.body().string();
+        return extractContentFromResponse(responseBody);
     }
     
-    private String createRequestBody(String prompt, int maxTokens, double temperature) throws JsonProcessingException {
+    private String createRequestBody(String prompt, int maxTokens, double temperature, boolean stream) throws JsonProcessingException {
         return objectMapper.writeValueAsString(new RequestBodyBuilder()
             .model(model)
             .maxTokens(maxTokens)
             .temperature(temperature)
+            .stream(stream)
             .addMessage("user", prompt)
             .build());
     }
     
-    private String extractContentFromResponse(String responseBody) throws JsonProcessingException {
+    private LlmResponse extractContentFromResponse(String responseBody) throws JsonProcessingException {
         JsonNode rootNode = objectMapper.readTree(responseBody);
         JsonNode contentArray = rootNode.get("content");
         
         if (contentArray != null && contentArray.isArray() && !contentArray.isEmpty()) {
-            return contentArray.get(0).get("text").asText();
+            JsonNode usage = rootNode.path("usage");
+            return new LlmResponse(contentArray.get(0).get("text").asText(),
+                new Usage(usage.path("input_tokens").asLong(), usage.path("output_tokens").asLong()));
         }
         
         throw new RuntimeException("Unexpected response format from Claude API");
@@ -87,21 +374,48 @@ public class ClaudeApiService {
     private void handleApiError(Response response) throws IOException {
         int statusCode = response.code();
         String responseBody = response.body() != null ? response.body().string() : "";
+        Long retryAfterMs = parseRetryAfter(response.header("retry-after"));
         
         switch (statusCode) {
             case 401:
-                throw new RuntimeException("Invalid API key. Please check your credentials.");
+                throw new ClaudeApiException("Invalid API key. Please check your credentials.", statusCode, false, null);
             case 429:
-                throw new RuntimeException("Rate limit exceeded. Please try again later.");
+                throw new ClaudeApiException("Rate limit exceeded. Please try again later.", statusCode, true, retryAfterMs);
             case 500:
-                throw new RuntimeException("Claude API server error. Please try again later.");
+                throw new ClaudeApiException("Claude API server error. Please try again later.", statusCode, true, retryAfterMs);
+            case 502, 503, 504, 529:
+                throw new ClaudeApiException("Claude API is overloaded or unavailable (status " + statusCode + ").", statusCode, true, retryAfterMs);
             default:
-                throw new RuntimeException("API request failed with status " + statusCode + ": " + responseBody);
+                throw new ClaudeApiException("API request failed with status " + statusCode + ": " + responseBody, statusCode, false, null);
+        }
+    }
+    
+    private Long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return null;
+        }
+        try {
+            return (long) (Double.parseDouble(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            try {
+                long at = ZonedDateTime.parse(retryAfter.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+                return Math.max(0L, at - System.currentTimeMillis());
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
         }
     }
     
     public String parseStandards(String pdfText) throws IOException {
-        String prompt = """
+        return makeRequest(buildStandardsPrompt(pdfText), 8000, 0.7, standardsCachePolicy, PARSE_STANDARDS_CONTEXT);
+    }
+    
+    public CompletableFuture<String> parseStandardsAsync(String pdfText) {
+        return makeRequestAsync(buildStandardsPrompt(pdfText), 8000, 0.7, standardsCachePolicy, PARSE_STANDARDS_CONTEXT);
+    }
+    
+    private String buildStandardsPrompt(String pdfText) {
+        return """
             You are an expert in educational standards analysis. Parse the following Indiana 5th Grade Math Standards text and extract structured information.
 
             For each standard, identify:
@@ -131,13 +445,38 @@ public class ClaudeApiService {
 
             Standards text:
             """ + pdfText;
-        
-        return makeRequest(prompt, 8000, 0.7);
     }
     
     public String generateQuestions(String standardCode, String standardTitle, String description, 
                                    String subSkills, String type, int count, int difficulty) throws IOException {
-        String prompt = String.format("""
+        return makeRequest(buildQuestionsPrompt(standardCode, standardTitle, description, subSkills, type, count, difficulty), 6000, 0.7, questionsCachePolicy,
+            CallContext.interactive(GENERATE_QUESTIONS_SITE, null, standardCode));
+    }
+    
+    public void generateQuestionsStreaming(StandardPromptSpec standard, String type, CallContext context,
+                                           Consumer<String> onText) throws IOException {
+        generateQuestionsStreaming(standard, type, context, questionsCachePolicy, onText);
+    }
+    
+    public void generateQuestionsStreaming(StandardPromptSpec standard, String type, CallContext context,
+                                           Policy cachePolicy, Consumer<String> onText) throws IOException {
+        streamRequest(buildQuestionsPrompt(standard.code(), standard.title(), standard.description(), standard.subSkills(),
+            type, standard.count(), standard.difficulty()), 6000, 0.7, cachePolicy, context, onText);
+    }
+    
+    public CompletableFuture<String> generateQuestionsAsync(StandardPromptSpec standard, String type, CallContext context) {
+        return generateQuestionsAsync(standard, type, context, questionsCachePolicy);
+    }
+    
+    public CompletableFuture<String> generateQuestionsAsync(StandardPromptSpec standard, String type, CallContext context,
+                                                            Policy cachePolicy) {
+        return makeRequestAsync(buildQuestionsPrompt(standard.code(), standard.title(), standard.description(), standard.subSkills(),
+            type, standard.count(), standard.difficulty()), 6000, 0.7, cachePolicy, context);
+    }
+    
+    private String buildQuestionsPrompt(String standardCode, String standardTitle, String description, 
+                                        String subSkills, String type, int count, int difficulty) {
+        return String.format("""
             Generate %d multiple-choice questions for the following 5th grade math standard:
 
             Standard: %s - %s
@@ -177,12 +516,85 @@ public class ClaudeApiService {
               ]
             }
             """, count, standardCode, standardTitle, description, subSkills, difficulty, type);
+    }
+    
+    public CompletableFuture<String> generateTargetedQuestionsAsync(List<StandardPromptSpec> standards, String type,
+                                                                    CallContext context) {
+        return generateTargetedQuestionsAsync(standards, type, context, questionsCachePolicy);
+    }
+    
+    public CompletableFuture<String> generateTargetedQuestionsAsync(List<StandardPromptSpec> standards, String type,
+                                                                    CallContext context, Policy cachePolicy) {
+        int totalCount = standards.stream().mapToInt(StandardPromptSpec::count).sum();
+        return makeRequestAsync(buildTargetedQuestionsPrompt(standards, type), Math.min(8000, 1000 + totalCount * 400), 0.7, cachePolicy, context);
+    }
+    
+    private String buildTargetedQuestionsPrompt(List<StandardPromptSpec> standards, String type) {
+        StringBuilder standardsText = new StringBuilder();
+        for (StandardPromptSpec standard : standards) {
+            standardsText.append(String.format("""
+                - Standard: %s - %s
+                  Description: %s
+                  Sub-skills: %s
+                  Difficulty Level: %d/5
+                  Number of questions: %d
+                """, standard.code(), standard.title(), standard.description(), standard.subSkills(),
+                standard.difficulty(), standard.count()));
+        }
         
-        return makeRequest(prompt, 6000, 0.7);
+        return String.format("""
+            Generate multiple-choice questions for each of the following 5th grade math standards.
+            Generate exactly the number of questions listed for each standard, at that standard's difficulty level.
+
+            Question Type: %s
+
+            Standards:
+            %s
+            Requirements:
+            1. Each question should have 4 answer choices (A, B, C, D)
+            2. Include realistic distractors that reveal common misconceptions
+            3. Vary question types: word problems, visual scenarios, direct computation
+            4. Ensure mathematical accuracy
+            5. Age-appropriate language and contexts
+            6. Set "standardCode" on every question to the code of the standard it assesses
+
+            Format your response as JSON:
+            {
+              "questions": [
+                {
+                  "standardCode": "standard_code",
+                  "question": "question_text",
+                  "choices": {
+                    "A": "choice_text",
+                    "B": "choice_text",
+                    "C": "choice_text",
+                    "D": "choice_text"
+                  },
+                  "correctAnswer": "A",
+                  "explanation": "why_this_is_correct",
+                  "difficulty": 1-5,
+                  "misconceptions": {
+                    "B": "misconception1",
+                    "C": "misconception2",
+                    "D": "misconception3"
+                  },
+                  "subSkill": "specific_subskill_assessed"
+                }
+              ]
+            }
+            """, type, standardsText);
     }
     
     public String generateHint(String question, String correctAnswer, String studentAnswer) throws IOException {
-        String prompt = String.format("""
+        return makeRequest(buildHintPrompt(question, correctAnswer, studentAnswer), 500, 0.7, hintsCachePolicy, GENERATE_HINT_CONTEXT);
+    }
+    
+    public CompletableFuture<String> generateHintAsync(String question, String correctAnswer, String studentAnswer) {
+        return makeRequestAsync(buildHintPrompt(question, correctAnswer, studentAnswer), 500, 0.7, hintsCachePolicy, GENERATE_HINT_CONTEXT);
+    }
+    
+    private String buildHintPrompt(String question, String correctAnswer, String studentAnswer) {
+        return String.format("""
             A student answered "%s" to this question:
             "%s"
 
@@ -196,14 +608,16 @@ public class ClaudeApiService {
 
             Respond with just the hint text, no additional formatting.
             """, studentAnswer, question, correctAnswer);
-        
-        return makeRequest(prompt, 500, 0.7);
+    }
+    
+    private record LlmResponse(String text, Usage usage) {
     }
     
     private static class RequestBodyBuilder {
         private String model;
         private int maxTokens;
         private double temperature;
+        private boolean stream;
         private java.util.List<java.util.Map<String, String>> messages = new java.util.ArrayList<>();
         
         public RequestBodyBuilder model(String model) {
@@ -221,18 +635,26 @@ public class ClaudeApiService {
             return this;
         }
         
+        public RequestBodyBuilder stream(boolean stream) {
+            this.stream = stream;
+            return this;
+        }
+        
         public RequestBodyBuilder addMessage(String role, String content) {
             messages.add(java.util.Map.of("role", role, "content", content));
             return this;
         }
         
         public java.util.Map<String, Object> build() {
-            return java.util.Map.of(
-                "model", model,
-                "max_tokens", maxTokens,
-                "temperature", temperature,
-                "messages", messages
-            );
+            java.util.Map<String, Object> body = new java.util.LinkedHashMap<>();
+            body.put("model", model);
+            body.put("max_tokens", maxTokens);
+            body.put("temperature", temperature);
+            body.put("messages", messages);
+            if (stream) {
+                body.put("stream", true);
+            }
+            return body;
         }
     }
 }
\ No newline at end of file
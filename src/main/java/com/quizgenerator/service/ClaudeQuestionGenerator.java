@@ -0,0 +1,37 @@
+package com.quizgenerator.service;
+
+import com.quizgenerator.service.LlmCallScheduler.CallContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+@Component
+@ConditionalOnProperty(name = "app.generation.generator", havingValue = "claude", matchIfMissing = true)
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class ClaudeQuestionGenerator implements QuestionGenerator {
+
+    private final ClaudeApiService claudeApiService;
+
+    @Override
+    public CompletableFuture<String> generateQuestionsAsync(StandardPromptSpec standard, String type, CallContext context) {
+        return claudeApiService.generateQuestionsAsync(standard, type, context);
+    }
+
+    @Override
+    public void generateQuestionsStreaming(StandardPromptSpec standard, String type, CallContext context,
+                                           Consumer<String> onText) throws IOException {
+        claudeApiService.generateQuestionsStreaming(standard, type, context, onText);
+    }
+
+    @Override
+    public CompletableFuture<String> generateTargetedQuestionsAsync(List<StandardPromptSpec> standards, String type,
+                                                                    CallContext context) {
+        return claudeApiService.generateTargetedQuestionsAsync(standards, type, context);
+    }
+}
@@ -0,0 +1,11 @@
+package com.quizgenerator.service;
+
+/**
+ * One generated question as parsed from a payload. Choices and misconceptions are indexed by choice key (0 = A), and
+ * a null misconception means none was given for that choice.
+ */
+public record GeneratedQuestion(String standardCode, String question, String[] choices, int correctIndex,
+                                String explanation, Integer difficulty, String[] misconceptions, String subSkill) {
+
+    public static final String[] KEYS = {"A", "B", "C", "D"};
+}
@@ -0,0 +1,135 @@
+package com.quizgenerator.service;
+
+import com.quizgenerator.model.Question;
+import com.quizgenerator.repository.QuestionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps what is needed to grade an answer for recently generated or served questions, so submissions can be graded
+ * without loading the question and its choice and misconception collections. Bounded by estimated size in bytes and
+ * evicted least recently used first.
+ */
+@Component
+public class GradingCache {
+
+    public record GradingRecord(String correctAnswer, String explanation, String subSkill, Integer difficulty,
+                                Map<String, String> misconceptions) {
+
+        public String misconception(String answerKey) {
+            return misconceptions.get(answerKey);
+        }
+
+        static GradingRecord of(Question question) {
+            Map<String, String> misconceptions = new HashMap<>();
+            if (question.getMisconceptions() != null) {
+                question.getMisconceptions().forEach((key, misconception) -> {
+                    if (key != null && misconception != null) {
+                        misconceptions.put(key, misconception);
+                    }
+                });
+            }
+            return new GradingRecord(question.getCorrectAnswer(), question.getExplanation(), question.getSubSkill(),
+                    question.getDifficulty(), Map.copyOf(misconceptions));
+        }
+
+        long estimatedBytes() {
+            long bytes = 96 + size(correctAnswer) + size(explanation) + size(subSkill);
+            for (Map.Entry<String, String> entry : misconceptions.entrySet()) {
+                bytes += 32 + size(entry.getKey()) + size(entry.getValue());
+            }
+            return bytes;
+        }
+
+        private static long size(String value) {
+            return value == null ? 0 : 40 + 2L * value.length();
+        }
+    }
+
+    private final QuestionRepository questionRepository;
+    private final Map<Long, GradingRecord> records = new LinkedHashMap<>(256, 0.75f, true);
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+    private final long maxBytes;
+    private long bytes;
+
+    @Autowired
+    public GradingCache(QuestionRepository questionRepository, MeterRegistry meterRegistry,
+                        @Value("${app.grading.cache.max-bytes:67108864}") long maxBytes) {
+        this.questionRepository = questionRepository;
+        this.maxBytes = maxBytes;
+        this.hits = Counter.builder("quiz.grading.cache.requests").tag("result", "hit").register(meterRegistry);
+        this.misses = Counter.builder("quiz.grading.cache.requests").tag("result", "miss").register(meterRegistry);
+        this.evictions = Counter.builder("quiz.grading.cache.evictions")
+                .description("Grading records evicted to stay within the cache size")
+                .register(meterRegistry);
+        Gauge.builder("quiz.grading.cache.bytes", this, GradingCache::estimatedBytes)
+                .description("Estimated size of the cached grading records")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the grading record for a question, loading it from the database only when it is not cached.
+     */
+    public Optional<GradingRecord> get(long questionId) {
+        GradingRecord cached;
+        synchronized (records) {
+            cached = records.get(questionId);
+        }
+        if (cached != null) {
+            hits.increment();
+            return Optional.of(cached);
+        }
+
+        misses.increment();
+        return questionRepository.findById(questionId).map(question -> {
+            GradingRecord record = GradingRecord.of(question);
+            put(questionId, record);
+            return record;
+        });
+    }
+
+    public void putAll(Collection<Question> questions) {
+        for (Question question : questions) {
+            if (question.getId() != null) {
+                put(question.getId(), GradingRecord.of(question));
+            }
+        }
+    }
+
+    private void put(Long questionId, GradingRecord record) {
+        synchronized (records) {
+            GradingRecord previous = records.put(questionId, record);
+            bytes += record.estimatedBytes() - (previous != null ? previous.estimatedBytes() : 0);
+
+            Iterator<GradingRecord> eldest = records.values().iterator();
+            while (bytes > maxBytes && eldest.hasNext()) {
+                GradingRecord evicted = eldest.next();
+                if (evicted == record) {
+                    break;
+                }
+                eldest.remove();
+                bytes -= evicted.estimatedBytes();
+                evictions.increment();
+            }
+        }
+    }
+
+    private double estimatedBytes() {
+        synchronized (records) {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.quizgenerator.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Shares one upstream call between identical requests in flight. Each caller gets its own future; a caller that
+ * cancels it or lets it time out leaves the call, and the upstream call is cancelled once every caller has left.
+ */
+@Component
+public class InFlightRequestCoalescer {
+
+    private final Map<Object, InFlight<?>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaderCounter;
+    private final Counter coalescedCounter;
+
+    @Autowired
+    public InFlightRequestCoalescer(MeterRegistry meterRegistry) {
+        this.leaderCounter = Counter.builder("quiz.generation.upstream.calls").tag("role", "leader")
+                .description("Generation calls that went upstream")
+                .register(meterRegistry);
+        this.coalescedCounter = Counter.builder("quiz.generation.upstream.calls").tag("role", "coalesced")
+                .description("Generation calls that joined an identical call already in flight")
+                .register(meterRegistry);
+        meterRegistry.gaugeMapSize("quiz.generation.upstream.inflight", Tags.empty(), inFlight);
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> CompletableFuture<T> execute(Object key, Supplier<CompletableFuture<T>> call) {
+        while (true) {
+            InFlight<T> created = new InFlight<>();
+            InFlight<T> existing = (InFlight<T>) inFlight.putIfAbsent(key, created);
+            if (existing != null) {
+                CompletableFuture<T> subscription = existing.subscribe();
+                if (subscription == null) {
+                    // every caller left and the call is being cancelled; start a fresh one
+                    inFlight.remove(key, existing);
+                    continue;
+                }
+                coalescedCounter.increment();
+                return subscription;
+            }
+
+            leaderCounter.increment();
+            CompletableFuture<T> subscription = created.subscribe();
+            try {
+                CompletableFuture<T> upstream = call.get();
+                upstream.whenComplete((result, error) -> {
+                    inFlight.remove(key, created);
+                    created.complete(result, error);
+                });
+                created.start(upstream);
+            } catch (RuntimeException e) {
+                inFlight.remove(key, created);
+                created.complete(null, e);
+            }
+            return subscription;
+        }
+    }
+
+    private static final class InFlight<T> {
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private CompletableFuture<T> upstream;
+        private int subscribers;
+        private boolean abandoned;
+
+        synchronized CompletableFuture<T> subscribe() {
+            if (abandoned) {
+                return null;
+            }
+            subscribers++;
+            CompletableFuture<T> subscription = result.thenApply(Function.identity());
+            subscription.whenComplete((value, error) -> {
+                if (error != null && !result.isDone()) {
+                    unsubscribe();
+                }
+            });
+            return subscription;
+        }
+
+        void start(CompletableFuture<T> upstream) {
+            boolean cancel;
+            synchronized (this) {
+                this.upstream = upstream;
+                cancel = abandoned;
+            }
+            if (cancel) {
+                upstream.cancel(true);
+            }
+        }
+
+        void complete(T value, Throwable error) {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        }
+
+        private void unsubscribe() {
+            CompletableFuture<T> cancel = null;
+            synchronized (this) {
+                if (--subscribers == 0 && !result.isDone()) {
+                    abandoned = true;
+                    cancel = upstream;
+                }
+            }
+            if (cancel != null) {
+                cancel.cancel(true);
+            }
+        }
+    }
+}
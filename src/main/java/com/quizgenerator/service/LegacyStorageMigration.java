@@ -0,0 +1,259 @@
+package com.quizgenerator.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quizgenerator.model.ChoiceMapConverter;
+import com.quizgenerator.model.CountMapConverter;
+import com.quizgenerator.model.LevelMasteryConverter;
+import com.quizgenerator.model.MasteryState;
+import com.quizgenerator.model.SkillMasteryConverter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Moves data out of legacy storage: maps kept in one-row-per-entry collection tables go into the compact columns on
+ * their owning rows, profile mastery kept as JSON text goes into binary mastery state, and answers kept in both
+ * quiz_answers and student_answers go into answer_events. Rows that were already moved are left alone, so the
+ * migration can be re-run safely. JSON columns are read before collection tables because they hold newer data.
+ */
+@Service
+@Slf4j
+public class LegacyStorageMigration {
+
+    private record LegacyTable(String table, String ownerColumn, String keyColumn, String valueColumn,
+                               String targetTable, String targetColumn, Function<Map<String, String>, Object> encoder) {
+    }
+
+    private record LegacyColumn(String table, String column, String targetColumn,
+                                Function<Map<String, String>, Object> encoder) {
+    }
+
+    private static final ChoiceMapConverter CHOICE_MAP_CONVERTER = new ChoiceMapConverter();
+    private static final SkillMasteryConverter SKILL_MASTERY_CONVERTER = new SkillMasteryConverter();
+    private static final LevelMasteryConverter LEVEL_MASTERY_CONVERTER = new LevelMasteryConverter();
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final List<LegacyColumn> LEGACY_COLUMNS = List.of(
+            new LegacyColumn("student_profiles", "skill_mastery_data", "skill_mastery_state",
+                    LegacyStorageMigration::encodeSkillMastery),
+            new LegacyColumn("student_profiles", "difficulty_performance_data", "difficulty_mastery_state",
+                    LegacyStorageMigration::encodeLevelMastery));
+    private static final List<LegacyTable> LEGACY_TABLES = List.of(
+            new LegacyTable("question_choices", "question_id", "choice_key", "choice_value",
+                    "questions", "choices_data", CHOICE_MAP_CONVERTER::convertText),
+            new LegacyTable("question_misconceptions", "question_id", "choice_key", "misconception",
+                    "questions", "misconceptions_data", CHOICE_MAP_CONVERTER::convertText),
+            new LegacyTable("student_skill_mastery", "student_profile_id", "skill_name", "mastery_data",
+                    "student_profiles", "skill_mastery_state", LegacyStorageMigration::encodeSkillMastery),
+            new LegacyTable("student_difficulty_performance", "student_profile_id", "difficulty_level", "performance_data",
+                    "student_profiles", "difficulty_mastery_state", LegacyStorageMigration::encodeLevelMastery),
+            new LegacyTable("student_misconceptions", "student_profile_id", "misconception", "count",
+                    "student_profiles", "misconceptions_data", new CountMapConverter()::convertText));
+    private static final List<String> LEGACY_ANSWER_TABLES = List.of("quiz_answers", "student_answers");
+
+    private record IdSequence(String sequence, String table, int allocationSize) {
+    }
+
+    private static final List<IdSequence> ID_SEQUENCES = List.of(
+            new IdSequence("answer_event_seq", "answer_events", 50));
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.storage.legacy-migration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.storage.legacy-migration.drop-legacy-tables:false}")
+    private boolean dropLegacyTables;
+
+    @Autowired
+    public LegacyStorageMigration(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(BATCH_SIZE);
+    }
+
+    @Transactional
+    public void migrate() {
+        if (!enabled) {
+            return;
+        }
+        for (LegacyColumn legacy : LEGACY_COLUMNS) {
+            if (columnExists(legacy.table(), legacy.column())) {
+                int migrated = migrate(legacy);
+                log.info("Migrated {} rows of {} from {} into {}", migrated, legacy.table(), legacy.column(),
+                        legacy.targetColumn());
+                if (dropLegacyTables) {
+                    jdbcTemplate.execute("ALTER TABLE " + legacy.table() + " DROP COLUMN " + legacy.column());
+                    log.info("Dropped legacy column {}.{}", legacy.table(), legacy.column());
+                }
+            }
+        }
+        for (LegacyTable legacy : LEGACY_TABLES) {
+            if (tableExists(legacy.table())) {
+                int migrated = migrate(legacy);
+                log.info("Migrated {} rows of {} from {} into {}", migrated, legacy.targetTable(), legacy.table(),
+                        legacy.targetColumn());
+                if (dropLegacyTables) {
+                    jdbcTemplate.execute("DROP TABLE " + legacy.table());
+                    log.info("Dropped legacy table {}", legacy.table());
+                }
+            }
+        }
+        migrateAnswers();
+        ID_SEQUENCES.forEach(this::alignSequence);
+    }
+
+    /**
+     * quiz_answers and student_answers held the same submissions, and only quiz_answers links each one to its session,
+     * so answer events are rebuilt from quiz_answers joined to quiz_sessions. Legacy ids are kept.
+     */
+    private void migrateAnswers() {
+        if (!tableExists("quiz_answers") || !tableExists("answer_events")) {
+            return;
+        }
+        int migrated = jdbcTemplate.update("INSERT INTO answer_events (id, session_id, student_id, quiz_id, question_id, "
+                + "answer, is_correct, time_spent_ms, answered_at) "
+                + "SELECT qa.id, qa.session_id, s.student_id, COALESCE(s.quiz_id, qa.session_id), qa.question_id, "
+                + "qa.student_answer, qa.is_correct, qa.time_spent_ms, qa.answered_at "
+                + "FROM quiz_answers qa JOIN quiz_sessions s ON s.id = qa.session_id "
+                + "WHERE NOT EXISTS (SELECT 1 FROM answer_events ae WHERE ae.id = qa.id)");
+        log.info("Migrated {} answers from quiz_answers into answer_events", migrated);
+        if (dropLegacyTables) {
+            for (String table : LEGACY_ANSWER_TABLES) {
+                if (tableExists(table)) {
+                    jdbcTemplate.execute("DROP TABLE " + table);
+                    log.info("Dropped legacy table {}", table);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tables filled with ids from before they moved to a pooled sequence already hold ids the sequence would hand out
+     * again, so the sequence is restarted past the largest stored id.
+     */
+    private void alignSequence(IdSequence idSequence) {
+        List<Long> baseValues = jdbcTemplate.queryForList(
+                "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE UPPER(SEQUENCE_NAME) = UPPER(?)", Long.class,
+                idSequence.sequence());
+        if (baseValues.isEmpty() || !tableExists(idSequence.table())) {
+            return;
+        }
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM " + idSequence.table(), Long.class);
+        long restartWith = maxId == null ? 0 : maxId + idSequence.allocationSize();
+        if (baseValues.get(0) < restartWith) {
+            jdbcTemplate.execute("ALTER SEQUENCE " + idSequence.sequence() + " RESTART WITH " + restartWith);
+            log.info("Restarted {} at {} past existing {} ids", idSequence.sequence(), restartWith, idSequence.table());
+        }
+    }
+
+    private int migrate(LegacyTable legacy) {
+        String update = "UPDATE " + legacy.targetTable() + " SET " + legacy.targetColumn() + " = ? WHERE id = ? AND "
+                + legacy.targetColumn() + " IS NULL";
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        Map<String, String> entries = new LinkedHashMap<>();
+        long[] current = {-1};
+        int[] migrated = {0};
+
+        jdbcTemplate.query("SELECT " + legacy.ownerColumn() + ", " + legacy.keyColumn() + ", " + legacy.valueColumn()
+                + " FROM " + legacy.table() + " ORDER BY " + legacy.ownerColumn() + ", " + legacy.keyColumn(), rs -> {
+            long ownerId = rs.getLong(1);
+            if (ownerId != current[0] && current[0] != -1) {
+                batch.add(new Object[]{legacy.encoder().apply(entries), current[0]});
+                entries.clear();
+                if (batch.size() == BATCH_SIZE) {
+                    migrated[0] += flush(update, batch);
+                }
+            }
+            current[0] = ownerId;
+            entries.put(rs.getString(2), rs.getString(3));
+        });
+
+        if (current[0] != -1) {
+            batch.add(new Object[]{legacy.encoder().apply(entries), current[0]});
+        }
+        return migrated[0] + flush(update, batch);
+    }
+
+    private int migrate(LegacyColumn legacy) {
+        String update = "UPDATE " + legacy.table() + " SET " + legacy.targetColumn() + " = ? WHERE id = ? AND "
+                + legacy.targetColumn() + " IS NULL";
+        List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+        int[] migrated = {0};
+
+        jdbcTemplate.query("SELECT id, " + legacy.column() + " FROM " + legacy.table() + " WHERE " + legacy.column()
+                + " IS NOT NULL AND " + legacy.targetColumn() + " IS NULL", rs -> {
+            Map<String, String> entries = CHOICE_MAP_CONVERTER.convertToEntityAttribute(rs.getString(2));
+            batch.add(new Object[]{legacy.encoder().apply(entries), rs.getLong(1)});
+            if (batch.size() == BATCH_SIZE) {
+                migrated[0] += flush(update, batch);
+            }
+        });
+        return migrated[0] + flush(update, batch);
+    }
+
+    private static Object encodeSkillMastery(Map<String, String> entries) {
+        Map<String, MasteryState> states = new LinkedHashMap<>();
+        entries.forEach((skill, json) -> states.put(skill, parseMasteryState(json)));
+        return SKILL_MASTERY_CONVERTER.convertToDatabaseColumn(states);
+    }
+
+    private static Object encodeLevelMastery(Map<String, String> entries) {
+        Map<Integer, MasteryState> states = new LinkedHashMap<>();
+        entries.forEach((level, json) -> states.put(Integer.valueOf(level), parseMasteryState(json)));
+        return LEVEL_MASTERY_CONVERTER.convertToDatabaseColumn(states);
+    }
+
+    /**
+     * Reads the JSON object profiles kept per sub-skill or difficulty before mastery state was typed. Difficulty
+     * entries never tracked recent results, so their window starts empty.
+     */
+    private static MasteryState parseMasteryState(String json) {
+        try {
+            JsonNode node = OBJECT_MAPPER.readTree(json);
+            int recentResults = 0;
+            int recentCount = 0;
+            for (JsonNode result : node.path("recentPerformance")) {
+                recentResults = (recentResults << 1) | (result.asBoolean() ? 1 : 0);
+                recentCount++;
+            }
+            int window = Math.min(recentCount, MasteryState.RECENT_WINDOW);
+            return new MasteryState(node.path("attempted").asInt(), node.path("correct").asInt(), recentResults, window);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable legacy mastery data: " + json, e);
+        }
+    }
+
+    private int flush(String update, List<Object[]> batch) {
+        int updated = 0;
+        for (int count : jdbcTemplate.batchUpdate(update, batch)) {
+            updated += Math.max(count, 0);
+        }
+        batch.clear();
+        return updated;
+    }
+
+    private boolean columnExists(String table, String column) {
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS "
+                + "WHERE UPPER(TABLE_NAME) = UPPER(?) AND UPPER(COLUMN_NAME) = UPPER(?)", Integer.class, table, column);
+        return count != null && count > 0;
+    }
+
+    private boolean tableExists(String table) {
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE UPPER(TABLE_NAME) = UPPER(?)", Integer.class, table);
+        return count != null && count > 0;
+    }
+}
@@ -0,0 +1,308 @@
+package com.quizgenerator.service;
+
+import com.quizgenerator.exception.ClaudeApiException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admits Claude calls in priority order within per-minute token budgets, shedding background work first.
+ */
+@Component
+@Slf4j
+public class LlmCallScheduler {
+
+    public enum Priority {
+        INTERACTIVE, BACKGROUND
+    }
+
+    public record CallContext(String site, Priority priority, String tenant, String standardCode) {
+
+        public static final String SYSTEM_TENANT = "system";
+        public static final String ANONYMOUS_TENANT = "anonymous";
+
+        public static CallContext interactive(String site, String tenant, String standardCode) {
+            return new CallContext(site, Priority.INTERACTIVE, Objects.requireNonNullElse(tenant, ANONYMOUS_TENANT), standardCode);
+        }
+
+        public static CallContext background(String site, String standardCode) {
+            return new CallContext(site, Priority.BACKGROUND, SYSTEM_TENANT, standardCode);
+        }
+    }
+
+    public record Usage(long inputTokens, long outputTokens) {
+
+        public long totalTokens() {
+            return inputTokens + outputTokens;
+        }
+    }
+
+    private static final int MAX_TRACKED_TENANTS = 10_000;
+
+    private final MeterRegistry meterRegistry;
+    private final PriorityQueue<Pending> waiting = new PriorityQueue<>(
+            Comparator.comparing((Pending pending) -> pending.context().priority()).thenComparingLong(Pending::sequence));
+    private final int[] waitingByPriority = new int[Priority.values().length];
+    private final TokenWindow globalWindow = new TokenWindow();
+    private final Map<String, TokenWindow> tenantWindows = new HashMap<>();
+    private int running;
+    private long sequence;
+
+    @Value("${app.anthropic.scheduler.max-concurrent:16}")
+    private int maxConcurrent;
+
+    @Value("${app.anthropic.scheduler.max-background-queued:32}")
+    private int maxBackgroundQueued;
+
+    @Value("${app.anthropic.budget.tokens-per-minute:400000}")
+    private long tokensPerMinute;
+
+    @Value("${app.anthropic.budget.tenant-tokens-per-minute:60000}")
+    private long tenantTokensPerMinute;
+
+    @Value("${app.anthropic.budget.background-share:0.5}")
+    private double backgroundShare;
+
+    @Autowired
+    public LlmCallScheduler(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Priority priority : Priority.values()) {
+            Gauge.builder("quiz.llm.scheduler.queued", this, scheduler -> scheduler.queued(priority))
+                    .tag("priority", priority.name().toLowerCase())
+                    .description("Claude calls waiting for a scheduler slot")
+                    .register(meterRegistry);
+        }
+        Gauge.builder("quiz.llm.budget.used", this, LlmCallScheduler::budgetUsed)
+                .description("Tokens used or reserved against the global budget in the last minute")
+                .register(meterRegistry);
+    }
+
+    public CompletableFuture<Ticket> acquire(CallContext context, long estimatedTokens) {
+        List<Runnable> actions;
+        CompletableFuture<Ticket> ticket = new CompletableFuture<>();
+        Pending pending;
+
+        synchronized (this) {
+            if (context.priority() == Priority.BACKGROUND
+                    && waitingByPriority[Priority.BACKGROUND.ordinal()] >= maxBackgroundQueued) {
+                return CompletableFuture.failedFuture(shed(context, "queue_full"));
+            }
+            pending = new Pending(context, estimatedTokens, sequence++, System.nanoTime(), ticket);
+            waiting.add(pending);
+            waitingByPriority[context.priority().ordinal()]++;
+            actions = dispatch();
+        }
+
+        actions.forEach(Runnable::run);
+        ticket.whenComplete((granted, error) -> {
+            if (ticket.isCancelled()) {
+                withdraw(pending);
+            }
+        });
+        return ticket;
+    }
+
+    /**
+     * Drops a call whose caller gave up while it was still queued; one already granted returns its slot on its own.
+     */
+    private synchronized void withdraw(Pending pending) {
+        if (waiting.remove(pending)) {
+            waitingByPriority[pending.context().priority().ordinal()]--;
+        }
+    }
+
+    private synchronized int queued(Priority priority) {
+        return waitingByPriority[priority.ordinal()];
+    }
+
+    private synchronized long budgetUsed() {
+        return globalWindow.usage(currentSecond());
+    }
+
+    private List<Runnable> dispatch() {
+        List<Runnable> actions = new ArrayList<>();
+        long second = currentSecond();
+
+        while (running < maxConcurrent && !waiting.isEmpty()) {
+            Pending pending = waiting.poll();
+            waitingByPriority[pending.context().priority().ordinal()]--;
+
+            String rejection = checkBudget(pending, second);
+            if (rejection != null) {
+                ClaudeApiException error = shed(pending.context(), rejection);
+                actions.add(() -> pending.ticket().completeExceptionally(error));
+                continue;
+            }
+
+            globalWindow.add(second, pending.estimatedTokens());
+            tenantWindow(pending.context().tenant()).add(second, pending.estimatedTokens());
+            running++;
+
+            meterRegistry.timer("quiz.llm.scheduler.wait", "priority", priorityTag(pending.context()))
+                    .record(System.nanoTime() - pending.enqueuedAt(), TimeUnit.NANOSECONDS);
+            Ticket ticket = new Ticket(pending.context(), pending.estimatedTokens(), second);
+            actions.add(() -> {
+                if (!pending.ticket().complete(ticket)) {
+                    ticket.release(null);
+                }
+            });
+        }
+
+        return actions;
+    }
+
+    private String checkBudget(Pending pending, long second) {
+        long used = globalWindow.usage(second) + pending.estimatedTokens();
+        if (pending.context().priority() == Priority.BACKGROUND && used > tokensPerMinute * backgroundShare) {
+            return "budget";
+        }
+        if (used > tokensPerMinute) {
+            return "budget";
+        }
+        if (hasTenantBudget(pending.context().tenant())
+                && tenantWindow(pending.context().tenant()).usage(second) + pending.estimatedTokens() > tenantTokensPerMinute) {
+            return "tenant_budget";
+        }
+        return null;
+    }
+
+    /**
+     * Only identified students get a tenant budget. System work is shed by the background share, and anonymous callers
+     * cannot be told apart, so one shared anonymous budget would let a single client starve all the others; both are
+     * bounded by the global budget instead.
+     */
+    private static boolean hasTenantBudget(String tenant) {
+        return !CallContext.SYSTEM_TENANT.equals(tenant) && !CallContext.ANONYMOUS_TENANT.equals(tenant);
+    }
+
+    private ClaudeApiException shed(CallContext context, String reason) {
+        meterRegistry.counter("quiz.llm.scheduler.shed", "priority", priorityTag(context), "reason", reason).increment();
+        log.debug("Shedding {} Claude call {} for tenant {}: {}", context.priority(), context.site(), context.tenant(), reason);
+        return new ClaudeApiException("Claude API call for " + context.site() + " was shed (" + reason + ")", 429, false, null);
+    }
+
+    private TokenWindow tenantWindow(String tenant) {
+        if (tenantWindows.size() >= MAX_TRACKED_TENANTS && !tenantWindows.containsKey(tenant)) {
+            long second = currentSecond();
+            tenantWindows.values().removeIf(window -> window.usage(second) <= 0);
+        }
+        return tenantWindows.computeIfAbsent(tenant, key -> new TokenWindow());
+    }
+
+    private void release(Ticket ticket, Usage usage) {
+        List<Runnable> actions;
+        synchronized (this) {
+            long actual = usage != null ? usage.totalTokens() : 0L;
+            long second = currentSecond();
+            globalWindow.adjust(ticket.reservedAt, actual - ticket.reservedTokens, second);
+            tenantWindow(ticket.context.tenant()).adjust(ticket.reservedAt, actual - ticket.reservedTokens, second);
+            running--;
+            actions = dispatch();
+        }
+        actions.forEach(Runnable::run);
+    }
+
+    private static String priorityTag(CallContext context) {
+        return context.priority().name().toLowerCase();
+    }
+
+    private static long currentSecond() {
+        return TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+    }
+
+    public class Ticket {
+        private final CallContext context;
+        private final long reservedTokens;
+        private final long reservedAt;
+        private final long startedAt = System.nanoTime();
+        private boolean released;
+
+        private Ticket(CallContext context, long reservedTokens, long reservedAt) {
+            this.context = context;
+            this.reservedTokens = reservedTokens;
+            this.reservedAt = reservedAt;
+        }
+
+        /**
+         * Returns the slot and settles the reservation; a null usage means the call failed and nothing was billed.
+         */
+        public void release(Usage usage) {
+            synchronized (this) {
+                if (released) {
+                    return;
+                }
+                released = true;
+            }
+
+            String standard = Objects.requireNonNullElse(context.standardCode(), "none");
+            String outcome = usage != null ? "success" : "error";
+            Timer.builder("quiz.llm.call.latency")
+                    .tags("site", context.site(), "priority", priorityTag(context), "outcome", outcome)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+            if (usage != null) {
+                meterRegistry.counter("quiz.llm.tokens", "site", context.site(), "standard", standard, "direction", "input")
+                        .increment(usage.inputTokens());
+                meterRegistry.counter("quiz.llm.tokens", "site", context.site(), "standard", standard, "direction", "output")
+                        .increment(usage.outputTokens());
+                log.debug("Claude call {} for tenant {} standard {} used {} input / {} output tokens",
+                        context.site(), context.tenant(), standard, usage.inputTokens(), usage.outputTokens());
+            }
+
+            LlmCallScheduler.this.release(this, usage);
+        }
+    }
+
+    private record Pending(CallContext context, long estimatedTokens, long sequence, long enqueuedAt,
+                           CompletableFuture<Ticket> ticket) {
+    }
+
+    private static class TokenWindow {
+        private static final int SECONDS = 60;
+
+        private final long[] tokens = new long[SECONDS];
+        private final long[] seconds = new long[SECONDS];
+
+        void add(long second, long amount) {
+            int slot = (int) (second % SECONDS);
+            if (seconds[slot] != second) {
+                seconds[slot] = second;
+                tokens[slot] = 0;
+            }
+            tokens[slot] += amount;
+        }
+
+        void adjust(long second, long delta, long now) {
+            if (now - second < SECONDS) {
+                int slot = (int) (second % SECONDS);
+                if (seconds[slot] == second) {
+                    tokens[slot] += delta;
+                }
+            }
+        }
+
+        long usage(long now) {
+            long total = 0;
+            for (int i = 0; i < SECONDS; i++) {
+                if (now - seconds[i] < SECONDS) {
+                    total += tokens[i];
+                }
+            }
+            return total;
+        }
+    }
+}
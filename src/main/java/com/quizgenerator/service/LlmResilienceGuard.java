@@ -0,0 +1,308 @@
+package com.quizgenerator.service;
+
+import com.quizgenerator.exception.ClaudeApiException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+@Component
+@Slf4j
+public class LlmResilienceGuard {
+
+    public enum CircuitState {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T call() throws IOException;
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Counter circuitRejections;
+    private final Counter rateLimitRejections;
+
+    private CircuitState state = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openUntilMillis;
+    private boolean probeInFlight;
+
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+
+    @Value("${app.anthropic.resilience.requests-per-minute:50}")
+    private double requestsPerMinute;
+
+    @Value("${app.anthropic.resilience.burst:10}")
+    private int burst;
+
+    @Value("${app.anthropic.resilience.max-rate-wait-ms:10000}")
+    private long maxRateWaitMs;
+
+    @Value("${app.anthropic.resilience.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.anthropic.resilience.base-backoff-ms:500}")
+    private long baseBackoffMs;
+
+    @Value("${app.anthropic.resilience.max-backoff-ms:8000}")
+    private long maxBackoffMs;
+
+    @Value("${app.anthropic.resilience.max-retry-after-ms:15000}")
+    private long maxRetryAfterMs;
+
+    @Value("${app.anthropic.resilience.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${app.anthropic.resilience.open-duration-ms:30000}")
+    private long openDurationMs;
+
+    @Autowired
+    public LlmResilienceGuard(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.circuitRejections = Counter.builder("quiz.llm.circuit.rejected")
+                .description("Claude calls failed fast because the circuit breaker was open")
+                .register(meterRegistry);
+        this.rateLimitRejections = Counter.builder("quiz.llm.ratelimit.rejected")
+                .description("Claude calls rejected by the client-side token bucket")
+                .register(meterRegistry);
+        Gauge.builder("quiz.llm.circuit.state", this, guard -> guard.getCircuitState().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 half-open, 2 open")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        tokens = burst;
+    }
+
+    public <T> T execute(Attempt<T> attempt) throws IOException {
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            long waitMs = admit();
+            sleep(waitMs);
+
+            try {
+                T result = attempt.call();
+                recordSuccess();
+                return result;
+            } catch (IOException | RuntimeException e) {
+                long delayMs = onFailure(e, attemptNumber);
+                if (delayMs < 0) {
+                    throw e;
+                }
+                sleep(delayMs);
+            }
+        }
+    }
+
+    public <T> CompletableFuture<T> executeAsync(Supplier<CompletableFuture<T>> attempt) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        attemptAsync(attempt, result, 1);
+        return result;
+    }
+
+    public synchronized CircuitState getCircuitState() {
+        if (state == CircuitState.OPEN && System.currentTimeMillis() >= openUntilMillis) {
+            return CircuitState.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private <T> void attemptAsync(Supplier<CompletableFuture<T>> attempt, CompletableFuture<T> result, int attemptNumber) {
+        long waitMs;
+        try {
+            waitMs = admit();
+        } catch (ClaudeApiException e) {
+            result.completeExceptionally(e);
+            return;
+        }
+
+        Runnable call = () -> {
+            if (result.isDone()) {
+                // the caller gave up while this attempt waited for a permit
+                releaseProbe();
+                return;
+            }
+            CompletableFuture<T> future;
+            try {
+                future = attempt.get();
+            } catch (RuntimeException e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+
+            CompletableFuture<T> current = future;
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    current.cancel(true);
+                }
+            });
+
+            future.whenComplete((value, error) -> {
+                if (error == null) {
+                    recordSuccess();
+                    result.complete(value);
+                    return;
+                }
+
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                long delayMs = onFailure(cause, attemptNumber);
+                if (delayMs < 0 || result.isDone()) {
+                    result.completeExceptionally(cause);
+                } else {
+                    CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS)
+                            .execute(() -> attemptAsync(attempt, result, attemptNumber + 1));
+                }
+            });
+        };
+
+        if (waitMs > 0) {
+            CompletableFuture.delayedExecutor(waitMs, TimeUnit.MILLISECONDS).execute(call);
+        } else {
+            call.run();
+        }
+    }
+
+    private long admit() {
+        synchronized (this) {
+            long now = System.currentTimeMillis();
+            if (state == CircuitState.OPEN && now >= openUntilMillis) {
+                transitionTo(CircuitState.HALF_OPEN);
+            }
+            if (state == CircuitState.OPEN || (state == CircuitState.HALF_OPEN && probeInFlight)) {
+                circuitRejections.increment();
+                throw new ClaudeApiException("Claude API circuit breaker is open; failing fast", 503, false, null);
+            }
+
+            long waitMs = reservePermit();
+            if (waitMs < 0) {
+                rateLimitRejections.increment();
+                throw new ClaudeApiException("Client-side Claude API rate limit exceeded", 429, false, null);
+            }
+
+            if (state == CircuitState.HALF_OPEN) {
+                probeInFlight = true;
+            }
+            return waitMs;
+        }
+    }
+
+    private long reservePermit() {
+        long now = System.nanoTime();
+        double permitsPerNano = requestsPerMinute / TimeUnit.MINUTES.toNanos(1);
+        tokens = Math.min(burst, tokens + (now - lastRefillNanos) * permitsPerNano);
+        lastRefillNanos = now;
+
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+
+        long waitMs = TimeUnit.NANOSECONDS.toMillis((long) Math.ceil((1 - tokens) / permitsPerNano));
+        if (waitMs > maxRateWaitMs) {
+            return -1;
+        }
+        tokens -= 1;
+        return waitMs;
+    }
+
+    private long onFailure(Throwable error, int attemptNumber) {
+        if (!isRetryable(error)) {
+            if (error instanceof ClaudeApiException apiError && apiError.getStatusCode() > 0) {
+                // the API answered, so it is healthy even though this request was refused
+                recordSuccess();
+            } else {
+                releaseProbe();
+            }
+            return -1;
+        }
+        recordFailure();
+
+        if (attemptNumber >= maxAttempts) {
+            return -1;
+        }
+
+        long backoffMs = Math.min(maxBackoffMs, baseBackoffMs << Math.min(attemptNumber - 1, 20));
+        long delayMs = ThreadLocalRandom.current().nextLong(backoffMs / 2, backoffMs + 1);
+        if (error instanceof ClaudeApiException apiError && apiError.getRetryAfterMs() != null) {
+            if (apiError.getRetryAfterMs() > maxRetryAfterMs) {
+                return -1;
+            }
+            delayMs = Math.max(delayMs, apiError.getRetryAfterMs());
+        }
+
+        meterRegistry.counter("quiz.llm.retries", "reason", retryReason(error)).increment();
+        log.debug("Retrying Claude API call (attempt {} of {}) in {}ms: {}", attemptNumber + 1, maxAttempts, delayMs, error.getMessage());
+        return delayMs;
+    }
+
+    private boolean isRetryable(Throwable error) {
+        if (error instanceof ClaudeApiException apiError) {
+            return apiError.isRetryable();
+        }
+        if (error instanceof InterruptedIOException && "Canceled".equals(error.getMessage())) {
+            return false;
+        }
+        return error instanceof IOException;
+    }
+
+    private String retryReason(Throwable error) {
+        if (error instanceof ClaudeApiException apiError) {
+            return String.valueOf(apiError.getStatusCode());
+        }
+        return "io";
+    }
+
+    private synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        probeInFlight = false;
+        if (state != CircuitState.CLOSED) {
+            transitionTo(CircuitState.CLOSED);
+        }
+    }
+
+    private synchronized void releaseProbe() {
+        probeInFlight = false;
+    }
+
+    private synchronized void recordFailure() {
+        probeInFlight = false;
+        consecutiveFailures++;
+        if (state == CircuitState.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            openUntilMillis = System.currentTimeMillis() + openDurationMs;
+            if (state != CircuitState.OPEN) {
+                transitionTo(CircuitState.OPEN);
+            }
+        }
+    }
+
+    private void transitionTo(CircuitState newState) {
+        log.info("Claude API circuit breaker {} -> {}", state, newState);
+        state = newState;
+        meterRegistry.counter("quiz.llm.circuit.transitions", "to", newState.name().toLowerCase()).increment();
+    }
+
+    private void sleep(long millis) throws InterruptedIOException {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting to call the Claude API");
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.quizgenerator.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Two-tier cache of Claude responses keyed by request hash: an LRU map in memory over files on disk. An entry expires
+ * a TTL after it was written, however often it is read. On disk the write time is the file's last-modified time and
+ * reads only move its last-access time, which orders eviction when the directory is over its size budget.
+ */
+@Component
+@Slf4j
+public class LlmResponseCache {
+
+    public enum Policy {
+        BYPASS, READ_THROUGH, REPLAY_ONLY
+    }
+
+    private static final String ENTRY_SUFFIX = ".txt";
+
+    private final Counter memoryHits;
+    private final Counter diskHits;
+    private final Counter misses;
+    private final AtomicLong diskBytes = new AtomicLong();
+    private Map<String, MemoryEntry> memory;
+
+    @Value("${app.anthropic.cache.memory-entries:512}")
+    private int memoryEntries;
+
+    @Value("${app.anthropic.cache.dir:${java.io.tmpdir}/quiz-llm-cache}")
+    private String cacheDir;
+
+    @Value("${app.anthropic.cache.max-disk-bytes:268435456}")
+    private long maxDiskBytes;
+
+    @Value("${app.anthropic.cache.ttl:P7D}")
+    private Duration ttl;
+
+    @Autowired
+    public LlmResponseCache(MeterRegistry meterRegistry) {
+        this.memoryHits = Counter.builder("quiz.llm.cache.requests").tag("result", "memory_hit").register(meterRegistry);
+        this.diskHits = Counter.builder("quiz.llm.cache.requests").tag("result", "disk_hit").register(meterRegistry);
+        this.misses = Counter.builder("quiz.llm.cache.requests").tag("result", "miss").register(meterRegistry);
+    }
+
+    @PostConstruct
+    void init() {
+        memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MemoryEntry> eldest) {
+                return size() > memoryEntries;
+            }
+        };
+
+        try {
+            Files.createDirectories(directory());
+            try (Stream<Path> files = Files.list(directory())) {
+                diskBytes.set(files.mapToLong(this::sizeOf).sum());
+            }
+        } catch (IOException e) {
+            log.warn("LLM response cache directory {} is unavailable: {}", cacheDir, e.getMessage());
+        }
+    }
+
+    public String key(String requestBody) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(requestBody.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public Optional<String> get(String key) {
+        long now = System.currentTimeMillis();
+
+        synchronized (memory) {
+            MemoryEntry entry = memory.get(key);
+            if (entry != null) {
+                if (now - entry.writtenAt() <= ttl.toMillis()) {
+                    memoryHits.increment();
+                    return Optional.of(entry.content());
+                }
+                memory.remove(key);
+            }
+        }
+
+        Path file = directory().resolve(key + ENTRY_SUFFIX);
+        try {
+            long writtenAt = Files.getLastModifiedTime(file).toMillis();
+            if (now - writtenAt > ttl.toMillis()) {
+                delete(file);
+            } else {
+                String content = Files.readString(file, StandardCharsets.UTF_8);
+                Files.getFileAttributeView(file, BasicFileAttributeView.class)
+                        .setTimes(null, FileTime.fromMillis(now), null);
+                putMemory(key, content, writtenAt);
+                diskHits.increment();
+                return Optional.of(content);
+            }
+        } catch (NoSuchFileException e) {
+            // not cached on disk
+        } catch (IOException e) {
+            log.warn("Failed to read LLM cache entry {}: {}", key, e.getMessage());
+        }
+
+        misses.increment();
+        return Optional.empty();
+    }
+
+    public void put(String key, String content) {
+        putMemory(key, content, System.currentTimeMillis());
+
+        Path file = directory().resolve(key + ENTRY_SUFFIX);
+        try {
+            long previousSize = sizeOf(file);
+            Path temp = Files.createTempFile(directory(), key, ".tmp");
+            Files.writeString(temp, content, StandardCharsets.UTF_8);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (diskBytes.addAndGet(sizeOf(file) - previousSize) > maxDiskBytes) {
+                evictDisk();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to write LLM cache entry {}: {}", key, e.getMessage());
+        }
+    }
+
+    private void putMemory(String key, String content, long writtenAt) {
+        synchronized (memory) {
+            memory.put(key, new MemoryEntry(content, writtenAt));
+        }
+    }
+
+    /**
+     * Deletes expired entries, then the least recently read ones until the directory is back within its budget.
+     */
+    private synchronized void evictDisk() throws IOException {
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory())) {
+            files = listing.filter(path -> path.toString().endsWith(ENTRY_SUFFIX)).toList();
+        }
+
+        long cutoff = System.currentTimeMillis() - ttl.toMillis();
+        List<Path> live = new ArrayList<>();
+        for (Path file : files) {
+            if (lastModified(file) < cutoff) {
+                delete(file);
+            } else {
+                live.add(file);
+            }
+        }
+
+        live.sort(Comparator.comparingLong(this::lastAccessed));
+        for (Path file : live) {
+            if (diskBytes.get() <= maxDiskBytes) {
+                break;
+            }
+            delete(file);
+        }
+    }
+
+    private void delete(Path file) {
+        long size = sizeOf(file);
+        try {
+            if (Files.deleteIfExists(file)) {
+                diskBytes.addAndGet(-size);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to evict LLM cache entry {}: {}", file, e.getMessage());
+        }
+    }
+
+    private long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private long lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private long lastAccessed(Path file) {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class).lastAccessTime().toMillis();
+        } catch (IOException e) {
+            return 0L;
+        }
+    }
+
+    private Path directory() {
+        return Paths.get(cacheDir);
+    }
+
+    private record MemoryEntry(String content, long writtenAt) {
+    }
+}
@@ -0,0 +1,256 @@
+package com.quizgenerator.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quizgenerator.service.QuestionGenerator.StandardPromptSpec;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Offline stand-in for the Anthropic Messages API, for load tests: point app.anthropic.base-url at
+ * http://localhost:{app.stub.port}. Questions come from the template engine, with sampled latency and injected
+ * failures.
+ */
+@Component
+@ConditionalOnProperty(name = "app.stub.enabled", havingValue = "true")
+@Slf4j
+public class LocalMessagesStubServer {
+
+    private static final Pattern SINGLE_COUNT = Pattern.compile("Generate (\\d+) multiple-choice");
+    private static final Pattern STANDARD = Pattern.compile("Standard: (\\S+) - ([^\\n]*)");
+    private static final Pattern DIFFICULTY = Pattern.compile("Difficulty Level: (\\d)/5");
+    private static final Pattern QUESTION_TYPE = Pattern.compile("Question Type: (\\S+)");
+    private static final Pattern BATCH_ENTRY = Pattern.compile(
+            "- Standard: (\\S+) - ([^\\n]*)\\n.*?Difficulty Level: (\\d)/5\\s*\\n\\s*Number of questions: (\\d+)", Pattern.DOTALL);
+    private static final double Z_99 = 2.326;
+    private static final int STREAM_CHUNK_CHARS = 64;
+
+    private final QuestionTemplateEngine templateEngine;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final QuestionPayloadCodec payloadCodec = new QuestionPayloadCodec();
+    private HttpServer server;
+    private ExecutorService executor;
+    private Random random;
+
+    @Value("${app.stub.port:8089}")
+    private int port;
+
+    @Value("${app.stub.seed:42}")
+    private long seed;
+
+    @Value("${app.stub.latency.distribution:lognormal}")
+    private String latencyDistribution;
+
+    @Value("${app.stub.latency.median-ms:800}")
+    private double medianLatencyMs;
+
+    @Value("${app.stub.latency.p99-ms:4000}")
+    private double p99LatencyMs;
+
+    @Value("${app.stub.failure-rate:0.0}")
+    private double failureRate;
+
+    @Value("${app.stub.failure-status:529}")
+    private int failureStatus;
+
+    @Autowired
+    public LocalMessagesStubServer(QuestionTemplateEngine templateEngine) {
+        this.templateEngine = templateEngine;
+    }
+
+    @PostConstruct
+    void start() throws IOException {
+        random = new Random(seed);
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "messages-stub-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 128);
+        server.createContext("/v1/messages", this::handle);
+        server.setExecutor(executor);
+        server.start();
+        log.info("Messages API stub listening on http://127.0.0.1:{} ({} latency, median {}ms, p99 {}ms, failure rate {})",
+                port, latencyDistribution, medianLatencyMs, p99LatencyMs, failureRate);
+    }
+
+    @PreDestroy
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "application/json", error("invalid_request_error", "Only POST is supported"));
+                return;
+            }
+
+            JsonNode request = objectMapper.readTree(exchange.getRequestBody());
+            String prompt = request.path("messages").path(0).path("content").asText();
+            boolean stream = request.path("stream").asBoolean(false);
+            long latencyMs = sampleLatencyMs();
+
+            if (shouldFail()) {
+                sleep(latencyMs / 4);
+                exchange.getResponseHeaders().add("retry-after", "1");
+                send(exchange, failureStatus, "application/json", error("overloaded_error", "Injected failure from the stub"));
+                return;
+            }
+
+            String text = respond(prompt);
+            long inputTokens = Math.max(1, prompt.length() / 4);
+            long outputTokens = Math.max(1, text.length() / 4);
+
+            if (stream) {
+                streamMessage(exchange, text, latencyMs, inputTokens, outputTokens);
+            } else {
+                sleep(latencyMs);
+                send(exchange, 200, "application/json", message(text, inputTokens, outputTokens));
+            }
+        } catch (RuntimeException e) {
+            log.warn("Messages API stub failed to answer: {}", e.getMessage());
+        }
+    }
+
+    private String respond(String prompt) throws IOException {
+        if (prompt.contains("Generate a helpful hint")) {
+            return "Look again at what the question is asking, and check each step of your work.";
+        }
+
+        List<GeneratedQuestion> questions = new ArrayList<>();
+        String type = find(QUESTION_TYPE, prompt, "word_problem");
+        if (prompt.contains("Number of questions:")) {
+            Matcher batch = BATCH_ENTRY.matcher(prompt);
+            while (batch.find()) {
+                StandardPromptSpec standard = new StandardPromptSpec(batch.group(1), batch.group(2), "", "",
+                        Integer.parseInt(batch.group(4)), Integer.parseInt(batch.group(3)));
+                questions.addAll(templateEngine.generate(standard, type, nextSeed()));
+            }
+        } else if (SINGLE_COUNT.matcher(prompt).find()) {
+            Matcher standardMatcher = STANDARD.matcher(prompt);
+            boolean found = standardMatcher.find();
+            StandardPromptSpec standard = new StandardPromptSpec(found ? standardMatcher.group(1) : "unknown",
+                    found ? standardMatcher.group(2) : "", "", "",
+                    Integer.parseInt(find(SINGLE_COUNT, prompt, "1")), Integer.parseInt(find(DIFFICULTY, prompt, "3")));
+            questions.addAll(templateEngine.generate(standard, type, nextSeed()));
+        } else {
+            return objectMapper.writeValueAsString(Map.of("standards", List.of()));
+        }
+
+        return payloadCodec.writeQuestions(questions);
+    }
+
+    private void streamMessage(HttpExchange exchange, String text, long latencyMs, long inputTokens,
+                               long outputTokens) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream body = exchange.getResponseBody();
+
+        int chunks = Math.max(1, (text.length() + STREAM_CHUNK_CHARS - 1) / STREAM_CHUNK_CHARS);
+        long chunkDelayMs = latencyMs / (chunks + 1);
+
+        sleep(chunkDelayMs);
+        writeEvent(body, "message_start", Map.of("type", "message_start",
+                "message", Map.of("role", "assistant", "usage", Map.of("input_tokens", inputTokens, "output_tokens", 1))));
+        writeEvent(body, "content_block_start", Map.of("type", "content_block_start", "index", 0,
+                "content_block", Map.of("type", "text", "text", "")));
+        for (int start = 0; start < text.length(); start += STREAM_CHUNK_CHARS) {
+            sleep(chunkDelayMs);
+            String piece = text.substring(start, Math.min(text.length(), start + STREAM_CHUNK_CHARS));
+            writeEvent(body, "content_block_delta", Map.of("type", "content_block_delta", "index", 0,
+                    "delta", Map.of("type", "text_delta", "text", piece)));
+        }
+        writeEvent(body, "content_block_stop", Map.of("type", "content_block_stop", "index", 0));
+        writeEvent(body, "message_delta", Map.of("type", "message_delta",
+                "delta", Map.of("stop_reason", "end_turn"), "usage", Map.of("output_tokens", outputTokens)));
+        writeEvent(body, "message_stop", Map.of("type", "message_stop"));
+    }
+
+    private void writeEvent(OutputStream body, String event, Map<String, Object> data) throws IOException {
+        body.write(("event: " + event + "\ndata: " + objectMapper.writeValueAsString(data) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        body.flush();
+    }
+
+    private String message(String text, long inputTokens, long outputTokens) throws IOException {
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("id", "msg_stub_" + Long.toHexString(nextSeed()));
+        message.put("type", "message");
+        message.put("role", "assistant");
+        message.put("content", List.of(Map.of("type", "text", "text", text)));
+        message.put("stop_reason", "end_turn");
+        message.put("usage", Map.of("input_tokens", inputTokens, "output_tokens", outputTokens));
+        return objectMapper.writeValueAsString(message);
+    }
+
+    private String error(String type, String message) throws IOException {
+        return objectMapper.writeValueAsString(Map.of("type", "error", "error", Map.of("type", type, "message", message)));
+    }
+
+    private void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private synchronized long sampleLatencyMs() {
+        return switch (latencyDistribution) {
+            case "fixed" -> (long) medianLatencyMs;
+            case "exponential" -> (long) (-Math.log(1 - random.nextDouble()) * medianLatencyMs / Math.log(2));
+            default -> {
+                double sigma = Math.log(Math.max(p99LatencyMs, medianLatencyMs) / medianLatencyMs) / Z_99;
+                yield (long) (medianLatencyMs * Math.exp(sigma * random.nextGaussian()));
+            }
+        };
+    }
+
+    private synchronized boolean shouldFail() {
+        return random.nextDouble() < failureRate;
+    }
+
+    private synchronized long nextSeed() {
+        return random.nextLong();
+    }
+
+    private String find(Pattern pattern, String text, String fallback) {
+        Matcher matcher = pattern.matcher(text);
+        return matcher.find() ? matcher.group(1) : fallback;
+    }
+
+    private void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,507 @@
+package com.quizgenerator.service;
+
+import com.quizgenerator.model.QuestionCalibration;
+import com.quizgenerator.model.StudentAbility;
+import com.quizgenerator.repository.AnswerEventRepository;
+import com.quizgenerator.repository.AnswerEventRepository.AnswerOutcome;
+import com.quizgenerator.repository.QuestionCalibrationRepository;
+import com.quizgenerator.repository.QuestionRepository;
+import com.quizgenerator.repository.QuestionRepository.ClaimedDifficulty;
+import com.quizgenerator.repository.StudentAbilityRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Calibrates question difficulty against real answers with a two-parameter logistic item response model:
+ * P(correct) = 1 / (1 + e^(-a(theta - b))), where theta is the student's ability, b the question's difficulty and a
+ * its discrimination, all on a logit scale. Each recorded answer nudges theta, b and a in constant time, and
+ * {@link #recompute} refits every question and student from answer_events in parallel. Question and student
+ * parameters are both flushed to the database and loaded back at startup.
+ */
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class QuestionCalibrationService {
+
+    public record RecomputeResult(int answers, int questions, int students, long elapsedMs) {
+    }
+
+    private static final double MIN_DISCRIMINATION = 0.25;
+    private static final double MAX_DISCRIMINATION = 3.0;
+    private static final double MAX_LOGIT = 4.0;
+    private static final double LOGITS_PER_LEVEL = 0.75;
+    private static final double DIFFICULTY_PRIOR_VARIANCE = 1.0;
+    private static final double DISCRIMINATION_PRIOR_VARIANCE = 0.25;
+    private static final int RECOMPUTE_ITERATIONS = 15;
+    private static final int PERSIST_BATCH_SIZE = 500;
+
+    private final QuestionCalibrationRepository questionCalibrationRepository;
+    private final StudentAbilityRepository studentAbilityRepository;
+    private final AnswerEventRepository answerEventRepository;
+    private final QuestionRepository questionRepository;
+    private final GradingCache gradingCache;
+    private final EntityManager entityManager;
+    private volatile Map<Long, ItemState> items = new ConcurrentHashMap<>();
+    private volatile Map<String, AbilityState> abilities = new ConcurrentHashMap<>();
+    // record() holds the read lock; recompute() takes the write lock to start collecting answers and to swap the maps
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private final Object recomputeLock = new Object();
+    private Queue<RecordedAnswer> recordedDuringRecompute;
+
+    @Value("${app.calibration.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.calibration.learning-rate:0.4}")
+    private double learningRate;
+
+    @Value("${app.calibration.min-attempts:20}")
+    private int minAttempts;
+
+    @Transactional(readOnly = true)
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+        Map<Long, ItemState> loaded = new ConcurrentHashMap<>();
+        for (QuestionCalibration calibration : questionCalibrationRepository.findAll()) {
+            loaded.put(calibration.getQuestionId(), new ItemState(calibration));
+        }
+        Map<String, AbilityState> loadedAbilities = new ConcurrentHashMap<>();
+        for (StudentAbility ability : studentAbilityRepository.findAll()) {
+            loadedAbilities.put(ability.getStudentId(), new AbilityState(ability.getTheta(), ability.getAnswers()));
+        }
+        swapLock.writeLock().lock();
+        try {
+            items = loaded;
+            abilities = loadedAbilities;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        log.info("Loaded calibration for {} questions and {} students", loaded.size(), loadedAbilities.size());
+    }
+
+    public void record(String studentId, String questionId, boolean correct) {
+        if (!enabled || studentId == null) {
+            return;
+        }
+        long id;
+        try {
+            id = Long.parseLong(questionId);
+        } catch (NumberFormatException e) {
+            return;
+        }
+
+        swapLock.readLock().lock();
+        try {
+            apply(items, abilities, studentId, id, correct);
+            Queue<RecordedAnswer> recorded = recordedDuringRecompute;
+            if (recorded != null) {
+                recorded.add(new RecordedAnswer(studentId, id, correct));
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    private void apply(Map<Long, ItemState> items, Map<String, AbilityState> abilities, String studentId,
+                       long questionId, boolean correct) {
+        ItemState item = items.computeIfAbsent(questionId, key -> new ItemState(priorDifficulty(key)));
+        AbilityState ability = abilities.computeIfAbsent(studentId, key -> new AbilityState());
+        ability.update(item.update(ability.theta(), correct, learningRate), learningRate);
+    }
+
+    public Optional<QuestionCalibration> getCalibration(long questionId) {
+        ItemState item = items.get(questionId);
+        return item != null
+                ? Optional.of(item.toCalibration(questionId, minAttempts))
+                : questionCalibrationRepository.findById(questionId);
+    }
+
+    @Scheduled(fixedDelayString = "${app.calibration.flush-interval-ms:10000}",
+               initialDelayString = "${app.calibration.flush-interval-ms:10000}")
+    public void flush() {
+        List<QuestionCalibration> changed = new ArrayList<>();
+        List<ItemState> drained = new ArrayList<>();
+        items.forEach((questionId, item) -> {
+            if (item.drain()) {
+                changed.add(item.toCalibration(questionId, minAttempts));
+                drained.add(item);
+            }
+        });
+        if (!changed.isEmpty()) {
+            try {
+                questionCalibrationRepository.saveAll(changed);
+                log.debug("Flushed calibration for {} questions", changed.size());
+            } catch (RuntimeException e) {
+                drained.forEach(ItemState::markDirty);
+                log.warn("Failed to flush calibration for {} questions: {}", changed.size(), e.getMessage());
+            }
+        }
+
+        List<StudentAbility> changedAbilities = new ArrayList<>();
+        List<AbilityState> drainedAbilities = new ArrayList<>();
+        abilities.forEach((studentId, ability) -> {
+            if (ability.drain()) {
+                changedAbilities.add(ability.toStudentAbility(studentId));
+                drainedAbilities.add(ability);
+            }
+        });
+        if (changedAbilities.isEmpty()) {
+            return;
+        }
+        try {
+            studentAbilityRepository.saveAll(changedAbilities);
+            log.debug("Flushed abilities for {} students", changedAbilities.size());
+        } catch (RuntimeException e) {
+            drainedAbilities.forEach(AbilityState::markDirty);
+            log.warn("Failed to flush abilities for {} students: {}", changedAbilities.size(), e.getMessage());
+        }
+    }
+
+    /**
+     * Refits every question and student from all recorded answers by alternating Fisher scoring steps over students
+     * and questions, each step spread across the common fork-join pool. Weak priors keep questions everyone answers
+     * correctly (or incorrectly) at finite values. Answers recorded while the refit runs are replayed onto the fitted
+     * values before they replace the live ones.
+     */
+    @Transactional
+    public RecomputeResult recompute() {
+        synchronized (recomputeLock) {
+            swapLock.writeLock().lock();
+            try {
+                recordedDuringRecompute = new ConcurrentLinkedQueue<>();
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            try {
+                return refit();
+            } finally {
+                swapLock.writeLock().lock();
+                try {
+                    recordedDuringRecompute = null;
+                } finally {
+                    swapLock.writeLock().unlock();
+                }
+            }
+        }
+    }
+
+    private RecomputeResult refit() {
+        long started = System.currentTimeMillis();
+        Map<String, Integer> studentIndex = new HashMap<>();
+        Map<Long, Integer> itemIndex = new HashMap<>();
+        List<Long> itemIds = new ArrayList<>();
+        List<String> studentIds = new ArrayList<>();
+        int[] studentOf = new int[1024];
+        int[] itemOf = new int[1024];
+        BitSet correct = new BitSet();
+        int answers = 0;
+
+        try (Stream<AnswerOutcome> outcomes = answerEventRepository.streamAnswerOutcomes()) {
+            for (AnswerOutcome outcome : (Iterable<AnswerOutcome>) outcomes::iterator) {
+                long questionId;
+                try {
+                    questionId = Long.parseLong(outcome.getQuestionId());
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                if (answers == studentOf.length) {
+                    studentOf = Arrays.copyOf(studentOf, answers * 2);
+                    itemOf = Arrays.copyOf(itemOf, answers * 2);
+                }
+                studentOf[answers] = studentIndex.computeIfAbsent(outcome.getStudentId(), id -> {
+                    studentIds.add(id);
+                    return studentIds.size() - 1;
+                });
+                itemOf[answers] = itemIndex.computeIfAbsent(questionId, id -> {
+                    itemIds.add(id);
+                    return itemIds.size() - 1;
+                });
+                correct.set(answers, Boolean.TRUE.equals(outcome.getIsCorrect()));
+                answers++;
+            }
+        }
+
+        int[][] byStudent = group(studentOf, answers, studentIds.size());
+        int[][] byItem = group(itemOf, answers, itemIds.size());
+        double[] theta = new double[studentIds.size()];
+        double[] discrimination = new double[itemIds.size()];
+        double[] difficulty = priorDifficulties(itemIds);
+        double[] prior = difficulty.clone();
+        Arrays.fill(discrimination, 1.0);
+
+        int[] itemOfAnswer = itemOf;
+        int[] studentOfAnswer = studentOf;
+        for (int iteration = 0; iteration < RECOMPUTE_ITERATIONS; iteration++) {
+            IntStream.range(0, theta.length).parallel().forEach(student -> theta[student] =
+                    fitAbility(theta[student], byStudent[student], itemOfAnswer, correct, discrimination, difficulty));
+            IntStream.range(0, difficulty.length).parallel().forEach(item -> fitItem(item, byItem[item],
+                    studentOfAnswer, correct, theta, discrimination, difficulty, prior[item]));
+        }
+
+        Map<Long, ItemState> fittedItems = new ConcurrentHashMap<>();
+        List<QuestionCalibration> calibrations = new ArrayList<>(itemIds.size());
+        for (int item = 0; item < itemIds.size(); item++) {
+            int attempts = byItem[item].length;
+            int right = 0;
+            for (int answer : byItem[item]) {
+                right += correct.get(answer) ? 1 : 0;
+            }
+            ItemState state = new ItemState(attempts, right, difficulty[item], discrimination[item]);
+            fittedItems.put(itemIds.get(item), state);
+            calibrations.add(state.toCalibration(itemIds.get(item), minAttempts));
+        }
+        Map<String, AbilityState> fittedAbilities = new ConcurrentHashMap<>();
+        List<StudentAbility> fittedRows = new ArrayList<>(studentIds.size());
+        for (int student = 0; student < studentIds.size(); student++) {
+            AbilityState state = new AbilityState(theta[student], byStudent[student].length);
+            fittedAbilities.put(studentIds.get(student), state);
+            fittedRows.add(state.toStudentAbility(studentIds.get(student)));
+        }
+
+        swapLock.writeLock().lock();
+        try {
+            items.forEach(fittedItems::putIfAbsent);
+            abilities.forEach(fittedAbilities::putIfAbsent);
+            for (RecordedAnswer answer : recordedDuringRecompute) {
+                apply(fittedItems, fittedAbilities, answer.studentId(), answer.questionId(), answer.correct());
+            }
+            items = fittedItems;
+            abilities = fittedAbilities;
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+
+        persist(questionCalibrationRepository, calibrations);
+        persist(studentAbilityRepository, fittedRows);
+
+        RecomputeResult result = new RecomputeResult(answers, itemIds.size(), studentIds.size(),
+                System.currentTimeMillis() - started);
+        log.info("Recomputed calibration from {} answers for {} questions and {} students in {}ms",
+                result.answers(), result.questions(), result.students(), result.elapsedMs());
+        return result;
+    }
+
+    private <T> void persist(JpaRepository<T, ?> repository, List<T> rows) {
+        for (int from = 0; from < rows.size(); from += PERSIST_BATCH_SIZE) {
+            repository.saveAll(rows.subList(from, Math.min(from + PERSIST_BATCH_SIZE, rows.size())));
+            entityManager.flush();
+            entityManager.clear();
+        }
+    }
+
+    private double fitAbility(double theta, int[] answers, int[] itemOf, BitSet correct, double[] discrimination,
+                              double[] difficulty) {
+        double gradient = -theta;
+        double information = 1.0;
+        for (int answer : answers) {
+            int item = itemOf[answer];
+            double p = probability(discrimination[item], difficulty[item], theta);
+            gradient += discrimination[item] * ((correct.get(answer) ? 1 : 0) - p);
+            information += discrimination[item] * discrimination[item] * p * (1 - p);
+        }
+        return clamp(theta + gradient / information, -MAX_LOGIT, MAX_LOGIT);
+    }
+
+    private void fitItem(int item, int[] answers, int[] studentOf, BitSet correct, double[] theta,
+                         double[] discrimination, double[] difficulty, double prior) {
+        double a = discrimination[item];
+        double b = difficulty[item];
+        double gradientA = -(a - 1.0) / DISCRIMINATION_PRIOR_VARIANCE;
+        double gradientB = -(b - prior) / DIFFICULTY_PRIOR_VARIANCE;
+        double infoAA = 1.0 / DISCRIMINATION_PRIOR_VARIANCE;
+        double infoBB = 1.0 / DIFFICULTY_PRIOR_VARIANCE;
+        double infoAB = 0.0;
+        for (int answer : answers) {
+            double distance = theta[studentOf[answer]] - b;
+            double p = probability(a, b, theta[studentOf[answer]]);
+            double residual = (correct.get(answer) ? 1 : 0) - p;
+            double weight = p * (1 - p);
+            gradientA += distance * residual;
+            gradientB -= a * residual;
+            infoAA += distance * distance * weight;
+            infoBB += a * a * weight;
+            infoAB -= a * distance * weight;
+        }
+        double determinant = infoAA * infoBB - infoAB * infoAB;
+        if (determinant <= 0) {
+            return;
+        }
+        discrimination[item] = clamp(a + (infoBB * gradientA - infoAB * gradientB) / determinant,
+                MIN_DISCRIMINATION, MAX_DISCRIMINATION);
+        difficulty[item] = clamp(b + (infoAA * gradientB - infoAB * gradientA) / determinant, -MAX_LOGIT, MAX_LOGIT);
+    }
+
+    private double[] priorDifficulties(List<Long> itemIds) {
+        double[] priors = new double[itemIds.size()];
+        Map<Long, Integer> positions = new HashMap<>();
+        for (int i = 0; i < itemIds.size(); i++) {
+            positions.put(itemIds.get(i), i);
+        }
+        for (int from = 0; from < itemIds.size(); from += PERSIST_BATCH_SIZE) {
+            for (ClaimedDifficulty claimed : questionRepository.findClaimedDifficulties(
+                    itemIds.subList(from, Math.min(from + PERSIST_BATCH_SIZE, itemIds.size())))) {
+                priors[positions.get(claimed.getId())] = toLogit(claimed.getDifficulty());
+            }
+        }
+        return priors;
+    }
+
+    private double priorDifficulty(long questionId) {
+        return gradingCache.get(questionId).map(grading -> toLogit(grading.difficulty())).orElse(0.0);
+    }
+
+    private static int[][] group(int[] groupOf, int count, int groups) {
+        int[] sizes = new int[groups];
+        for (int i = 0; i < count; i++) {
+            sizes[groupOf[i]]++;
+        }
+        int[][] members = new int[groups][];
+        for (int group = 0; group < groups; group++) {
+            members[group] = new int[sizes[group]];
+            sizes[group] = 0;
+        }
+        for (int i = 0; i < count; i++) {
+            members[groupOf[i]][sizes[groupOf[i]]++] = i;
+        }
+        return members;
+    }
+
+    private static double toLogit(Integer level) {
+        return level == null ? 0.0 : clamp((level - 3) * LOGITS_PER_LEVEL, -MAX_LOGIT, MAX_LOGIT);
+    }
+
+    private static double probability(double discrimination, double difficulty, double theta) {
+        return 1.0 / (1.0 + Math.exp(-discrimination * (theta - difficulty)));
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static double step(double learningRate, long observations, double floor) {
+        return Math.max(floor, learningRate / (1.0 + observations / 10.0));
+    }
+
+    private record RecordedAnswer(String studentId, long questionId, boolean correct) {
+    }
+
+    private static final class ItemState {
+        private long attempts;
+        private long correct;
+        private double difficulty;
+        private double discrimination;
+        private boolean dirty;
+
+        ItemState(double priorDifficulty) {
+            this(0, 0, priorDifficulty, 1.0);
+        }
+
+        ItemState(QuestionCalibration calibration) {
+            this(calibration.getAttempts(), calibration.getCorrectAnswers(), calibration.getDifficulty(),
+                    calibration.getDiscrimination());
+        }
+
+        ItemState(long attempts, long correct, double difficulty, double discrimination) {
+            this.attempts = attempts;
+            this.correct = correct;
+            this.difficulty = difficulty;
+            this.discrimination = discrimination;
+        }
+
+        /**
+         * Applies one answer and returns the ability gradient for the student who gave it.
+         */
+        synchronized double update(double theta, boolean answeredCorrectly, double learningRate) {
+            double residual = (answeredCorrectly ? 1 : 0) - probability(discrimination, difficulty, theta);
+            double step = step(learningRate, attempts, 0.02);
+            difficulty = clamp(difficulty - step * discrimination * residual, -MAX_LOGIT, MAX_LOGIT);
+            discrimination = clamp(discrimination + step * 0.5 * residual * (theta - difficulty),
+                    MIN_DISCRIMINATION, MAX_DISCRIMINATION);
+            attempts++;
+            correct += answeredCorrectly ? 1 : 0;
+            dirty = true;
+            return discrimination * residual;
+        }
+
+        synchronized boolean drain() {
+            boolean wasDirty = dirty;
+            dirty = false;
+            return wasDirty;
+        }
+
+        synchronized void markDirty() {
+            dirty = true;
+        }
+
+        synchronized QuestionCalibration toCalibration(long questionId, int minAttempts) {
+            Integer level = attempts >= minAttempts
+                    ? (int) clamp(Math.round(3 + difficulty / LOGITS_PER_LEVEL), 1, 5)
+                    : null;
+            return new QuestionCalibration(questionId, attempts, correct, difficulty, discrimination, level,
+                    LocalDateTime.now());
+        }
+    }
+
+    private static final class AbilityState {
+        private double theta;
+        private long answers;
+        private boolean dirty;
+
+        AbilityState() {
+            this(0.0, 0);
+        }
+
+        AbilityState(double theta, long answers) {
+            this.theta = theta;
+            this.answers = answers;
+        }
+
+        synchronized double theta() {
+            return theta;
+        }
+
+        synchronized void update(double gradient, double learningRate) {
+            theta = clamp(theta + step(learningRate, answers, 0.05) * gradient, -MAX_LOGIT, MAX_LOGIT);
+            answers++;
+            dirty = true;
+        }
+
+        synchronized boolean drain() {
+            boolean wasDirty = dirty;
+            dirty = false;
+            return wasDirty;
+        }
+
+        synchronized void markDirty() {
+            dirty = true;
+        }
+
+        synchronized StudentAbility toStudentAbility(String studentId) {
+            return new StudentAbility(studentId, theta, answers, LocalDateTime.now());
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.quizgenerator.service;
+
+import com.quizgenerator.model.Question;
+import com.quizgenerator.repository.QuestionRepository;
+import com.quizgenerator.repository.QuestionRepository.QuestionText;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * In-memory near-duplicate index over question text, kept per standard: an exact fingerprint of the normalized text
+ * plus MinHash signatures bucketed by LSH bands.
+ */
+@Service
+@Slf4j
+public class QuestionDedupIndex {
+
+    /**
+     * A duplicate with an existingId should be served as that stored question; without one it is dropped.
+     */
+    public record Admission(boolean duplicate, Long existingId) {
+
+        static final Admission UNIQUE = new Admission(false, null);
+    }
+
+    private static final int SIGNATURE_SIZE = 64;
+    private static final int BANDS = 16;
+    private static final int ROWS_PER_BAND = SIGNATURE_SIZE / BANDS;
+    private static final int SHINGLE_WORDS = 3;
+    private static final long[] SEEDS = new Random(0x5eed).longs(SIGNATURE_SIZE).toArray();
+
+    private final QuestionRepository questionRepository;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, StandardIndex> indexes = new ConcurrentHashMap<>();
+
+    @Value("${app.dedup.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.dedup.similarity-threshold:0.8}")
+    private double similarityThreshold;
+
+    @Value("${app.dedup.action:merge}")
+    private String action;
+
+    @Autowired
+    public QuestionDedupIndex(QuestionRepository questionRepository, MeterRegistry meterRegistry) {
+        this.questionRepository = questionRepository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        AtomicLong indexed = new AtomicLong();
+        try (Stream<QuestionText> questions = questionRepository.streamQuestionTexts()) {
+            questions.forEach(question -> {
+                index(question.getStandardCode()).add(new Entry(question.getId(), null, fingerprint(question.getQuestion()),
+                        signature(question.getQuestion())));
+                indexed.incrementAndGet();
+            });
+        }
+        log.info("Rebuilt question dedup index with {} questions across {} standards in {}ms",
+                indexed.get(), indexes.size(), System.currentTimeMillis() - started);
+    }
+
+    /**
+     * Checks a new question against the index. A unique question is held as pending until {@link #confirm} or
+     * {@link #discard}, so near-duplicates within the same batch are caught as well.
+     */
+    public Admission admit(Question question) {
+        if (!enabled || question.getQuestion() == null) {
+            return Admission.UNIQUE;
+        }
+
+        long fingerprint = fingerprint(question.getQuestion());
+        int[] signature = signature(question.getQuestion());
+        StandardIndex index = index(question.getStandardCode());
+        Entry match = index.admit(new Entry(null, question, fingerprint, signature), similarityThreshold);
+        if (match == null) {
+            return Admission.UNIQUE;
+        }
+
+        boolean merge = "merge".equals(action) && match.id() != null;
+        meterRegistry.counter("quiz.dedup.duplicates", "standard", question.getStandardCode(),
+                "action", merge ? "merged" : "rejected").increment();
+        log.debug("Question for {} is a near-duplicate of question {}", question.getStandardCode(), match.id());
+        return new Admission(true, merge ? match.id() : null);
+    }
+
+    public void confirm(List<Question> saved) {
+        saved.forEach(question -> indexFor(question).ifPresent(index -> index.confirm(question)));
+    }
+
+    public void discard(List<Question> unsaved) {
+        unsaved.forEach(question -> indexFor(question).ifPresent(index -> index.discard(question)));
+    }
+
+    private Optional<StandardIndex> indexFor(Question question) {
+        return enabled && question.getStandardCode() != null
+                ? Optional.ofNullable(indexes.get(question.getStandardCode()))
+                : Optional.empty();
+    }
+
+    private StandardIndex index(String standardCode) {
+        return indexes.computeIfAbsent(standardCode, code -> {
+            StandardIndex index = new StandardIndex();
+            Gauge.builder("quiz.dedup.uniqueness", index, StandardIndex::uniqueness)
+                    .tag("standard", code)
+                    .description("Share of questions checked for this standard that were not near-duplicates")
+                    .register(meterRegistry);
+            return index;
+        });
+    }
+
+    private static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder(text.length());
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+                space = false;
+            } else if (!space) {
+                normalized.append(' ');
+                space = true;
+            }
+        }
+        int end = normalized.length();
+        return end > 0 && normalized.charAt(end - 1) == ' ' ? normalized.substring(0, end - 1) : normalized.toString();
+    }
+
+    private static long fingerprint(String text) {
+        return hash(normalize(text));
+    }
+
+    private static int[] signature(String text) {
+        String[] words = normalize(text).split(" ");
+        int[] signature = new int[SIGNATURE_SIZE];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+
+        int shingles = Math.max(1, words.length - SHINGLE_WORDS + 1);
+        for (int start = 0; start < shingles; start++) {
+            StringBuilder shingle = new StringBuilder();
+            for (int i = start; i < Math.min(words.length, start + SHINGLE_WORDS); i++) {
+                shingle.append(words[i]).append(' ');
+            }
+            long shingleHash = hash(shingle.toString());
+            for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                int value = (int) (mix(shingleHash ^ SEEDS[i]) >>> 33);
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+        return signature;
+    }
+
+    private static long hash(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < text.length(); i++) {
+            hash ^= text.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb3fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+
+    private static final class Entry {
+        private Long id;
+        private Question pending;
+        private final long fingerprint;
+        private final int[] signature;
+
+        private Entry(Long id, Question pending, long fingerprint, int[] signature) {
+            this.id = id;
+            this.pending = pending;
+            this.fingerprint = fingerprint;
+            this.signature = signature;
+        }
+
+        Long id() {
+            return id != null ? id : pending.getId();
+        }
+
+        long bandKey(int band) {
+            long key = band;
+            for (int row = band * ROWS_PER_BAND; row < (band + 1) * ROWS_PER_BAND; row++) {
+                key = key * 0x9e3779b97f4a7c15L + signature[row];
+            }
+            return key;
+        }
+
+        double similarity(Entry other) {
+            int same = 0;
+            for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                if (signature[i] == other.signature[i]) {
+                    same++;
+                }
+            }
+            return (double) same / SIGNATURE_SIZE;
+        }
+    }
+
+    private static final class StandardIndex {
+        private final Map<Long, Entry> byFingerprint = new HashMap<>();
+        private final Map<Long, List<Entry>> byBand = new HashMap<>();
+        private final Map<Question, Entry> pending = new IdentityHashMap<>();
+        private long checked;
+        private long duplicates;
+
+        synchronized Entry admit(Entry candidate, double threshold) {
+            checked++;
+            Entry match = findMatch(candidate, threshold);
+            if (match != null) {
+                duplicates++;
+                return match;
+            }
+            add(candidate);
+            pending.put(candidate.pending, candidate);
+            return null;
+        }
+
+        synchronized void add(Entry entry) {
+            byFingerprint.putIfAbsent(entry.fingerprint, entry);
+            for (int band = 0; band < BANDS; band++) {
+                byBand.computeIfAbsent(entry.bandKey(band), key -> new ArrayList<>(1)).add(entry);
+            }
+        }
+
+        synchronized void confirm(Question question) {
+            Entry entry = pending.remove(question);
+            if (entry != null) {
+                entry.id = question.getId();
+                entry.pending = null;
+            }
+        }
+
+        synchronized void discard(Question question) {
+            Entry entry = pending.remove(question);
+            if (entry == null) {
+                return;
+            }
+            byFingerprint.remove(entry.fingerprint, entry);
+            for (int band = 0; band < BANDS; band++) {
+                List<Entry> bucket = byBand.get(entry.bandKey(band));
+                if (bucket != null) {
+                    bucket.remove(entry);
+                    if (bucket.isEmpty()) {
+                        byBand.remove(entry.bandKey(band));
+                    }
+                }
+            }
+        }
+
+        synchronized double uniqueness() {
+            return checked == 0 ? 1.0 : (double) (checked - duplicates) / checked;
+        }
+
+        private Entry findMatch(Entry candidate, double threshold) {
+            Entry exact = byFingerprint.get(candidate.fingerprint);
+            if (exact != null) {
+                return exact;
+            }
+            for (int band = 0; band < BANDS; band++) {
+                List<Entry> bucket = byBand.get(candidate.bandKey(band));
+                if (bucket == null) {
+                    continue;
+                }
+                for (Entry entry : bucket) {
+                    if (candidate.similarity(entry) >= threshold) {
+                        return entry;
+                    }
+                }
+            }
+            return null;
+        }
+    }
+}
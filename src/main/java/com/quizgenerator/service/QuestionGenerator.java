@@ -0,0 +1,26 @@
+package com.quizgenerator.service;
+
+import com.quizgenerator.service.LlmCallScheduler.CallContext;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Source of generated questions, answered in the Claude response format: a JSON object with a "questions" array.
+ */
+public interface QuestionGenerator {
+
+    CompletableFuture<String> generateQuestionsAsync(StandardPromptSpec standard, String type, CallContext context);
+
+    void generateQuestionsStreaming(StandardPromptSpec standard, String type, CallContext context,
+                                    Consumer<String> onText) throws IOException;
+
+    CompletableFuture<String> generateTargetedQuestionsAsync(List<StandardPromptSpec> standards, String type,
+                                                             CallContext context);
+
+    record StandardPromptSpec(String code, String title, String description, String subSkills,
+                              int count, int difficulty) {
+    }
+}
@@ -0,0 +1,47 @@
+package com.quizgenerator.service;
+
+import com.quizgenerator.service.QuestionInventoryService.BucketKey;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class QuestionInventoryRefiller {
+
+    private final QuestionInventoryService questionInventoryService;
+    private final QuizService quizService;
+
+    @Value("${app.inventory.refill-batch-size:5}")
+    private int refillBatchSize;
+
+    @Scheduled(fixedDelayString = "${app.inventory.refill-interval-ms:30000}",
+               initialDelayString = "${app.inventory.refill-interval-ms:30000}")
+    public void refill() {
+        for (BucketKey key : questionInventoryService.bucketsBelowTarget()) {
+            if (!questionInventoryService.beginRefill(key)) {
+                continue;
+            }
+
+            int count = Math.min(refillBatchSize, questionInventoryService.deficit(key));
+            try {
+                quizService.generateForInventory(key, count).whenComplete((questions, error) -> {
+                    if (error != null) {
+                        log.warn("Failed to refill inventory bucket {}: {}", key, error.getMessage());
+                    } else {
+                        questionInventoryService.add(key, questions);
+                        log.debug("Refilled inventory bucket {} with {} questions", key, questions.size());
+                    }
+                    questionInventoryService.endRefill(key);
+                });
+            } catch (RuntimeException e) {
+                log.warn("Failed to refill inventory bucket {}: {}", key, e.getMessage());
+                questionInventoryService.endRefill(key);
+            }
+        }
+    }
+}
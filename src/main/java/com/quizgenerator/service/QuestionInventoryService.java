@@ -0,0 +1,228 @@
+package com.quizgenerator.service;
+
+import com.quizgenerator.model.Question;
+import com.quizgenerator.repository.AnswerEventRepository;
+import com.quizgenerator.repository.QuestionRepository;
+import com.quizgenerator.repository.QuestionRepository.StockEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Stock of generated questions not yet served, held as question ids per (standard, difficulty, type, focus area)
+ * bucket and topped up by the {@link QuestionInventoryRefiller}. The stock itself is not persisted; at startup the
+ * buckets are seeded with the newest stored questions nobody has answered.
+ */
+@Service
+@Slf4j
+public class QuestionInventoryService {
+
+    private final QuestionRepository questionRepository;
+    private final AnswerEventRepository answerEventRepository;
+    private final MeterRegistry meterRegistry;
+    private final Map<BucketKey, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Counter hitCounter;
+    private final Counter missCounter;
+    private final Counter refilledCounter;
+
+    @Value("${app.inventory.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.inventory.target-stock:10}")
+    private int targetStock;
+
+    @Autowired
+    public QuestionInventoryService(QuestionRepository questionRepository, AnswerEventRepository answerEventRepository,
+                                    MeterRegistry meterRegistry) {
+        this.questionRepository = questionRepository;
+        this.answerEventRepository = answerEventRepository;
+        this.meterRegistry = meterRegistry;
+        this.hitCounter = Counter.builder("quiz.inventory.requests").tag("outcome", "hit")
+                .description("Questions requested from the inventory that were served from stock")
+                .register(meterRegistry);
+        this.missCounter = Counter.builder("quiz.inventory.requests").tag("outcome", "miss")
+                .description("Questions requested from the inventory that had to be generated live")
+                .register(meterRegistry);
+        this.refilledCounter = Counter.builder("quiz.inventory.refilled")
+                .description("Questions added to the inventory by background replenishment")
+                .register(meterRegistry);
+        Gauge.builder("quiz.inventory.stock.total", buckets, b -> b.values().stream().mapToInt(Bucket::size).sum())
+                .description("Questions currently held in stock across all buckets")
+                .register(meterRegistry);
+        Gauge.builder("quiz.inventory.miss.ratio", this, QuestionInventoryService::missRatio)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Seeds the buckets with up to the target stock of stored questions each, newest first, skipping answered
+     * questions and ids already in stock.
+     */
+    @Transactional(readOnly = true)
+    public void seed() {
+        if (!enabled) {
+            return;
+        }
+        Set<Long> answered;
+        try (Stream<String> questionIds = answerEventRepository.streamAnsweredQuestionIds()) {
+            answered = questionIds.map(QuestionInventoryService::parseId)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toCollection(HashSet::new));
+        }
+
+        AtomicLong seeded = new AtomicLong();
+        try (Stream<StockEntry> entries = questionRepository.streamStockEntries()) {
+            entries.forEach(entry -> {
+                if (entry.getStandardCode() == null || entry.getDifficulty() == null || entry.getType() == null
+                        || answered.contains(entry.getId())) {
+                    return;
+                }
+                Bucket bucket = bucket(new BucketKey(entry.getStandardCode(), entry.getDifficulty(), entry.getType(),
+                        entry.getFocusArea()));
+                if (bucket.size() < targetStock && bucket.offer(entry.getId())) {
+                    seeded.incrementAndGet();
+                }
+            });
+        }
+        log.info("Seeded {} stored questions into {} inventory buckets", seeded.get(), buckets.size());
+    }
+
+    public List<Question> take(BucketKey key, int count) {
+        if (!enabled || count <= 0) {
+            return List.of();
+        }
+
+        Bucket bucket = bucket(key);
+        List<Long> ids = new ArrayList<>(count);
+        Long id;
+        while (ids.size() < count && (id = bucket.poll()) != null) {
+            ids.add(id);
+        }
+
+        List<Question> questions = ids.isEmpty() ? List.of() : questionRepository.findAllById(ids);
+        hitCounter.increment(questions.size());
+        missCounter.increment(count - questions.size());
+        return questions;
+    }
+
+    public void add(BucketKey key, List<Question> questions) {
+        Bucket bucket = bucket(key);
+        for (Question question : questions) {
+            if (question.getId() != null && !Boolean.TRUE.equals(question.getIsFallback())) {
+                bucket.offer(question.getId());
+            }
+        }
+        refilledCounter.increment(questions.size());
+    }
+
+    public List<BucketKey> bucketsBelowTarget() {
+        if (!enabled) {
+            return List.of();
+        }
+        return buckets.entrySet().stream()
+                .filter(entry -> entry.getValue().size() < targetStock)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    public int deficit(BucketKey key) {
+        return Math.max(0, targetStock - bucket(key).size());
+    }
+
+    public boolean beginRefill(BucketKey key) {
+        return bucket(key).refilling.compareAndSet(false, true);
+    }
+
+    public void endRefill(BucketKey key) {
+        bucket(key).refilling.set(false);
+    }
+
+    public int stockLevel(BucketKey key) {
+        Bucket bucket = buckets.get(key);
+        return bucket != null ? bucket.size() : 0;
+    }
+
+    private static Long parseId(String questionId) {
+        try {
+            return Long.valueOf(questionId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private double missRatio() {
+        double requested = hitCounter.count() + missCounter.count();
+        return requested > 0 ? missCounter.count() / requested : 0.0;
+    }
+
+    private Bucket bucket(BucketKey key) {
+        return buckets.computeIfAbsent(key, k -> {
+            Bucket bucket = new Bucket();
+            Gauge.builder("quiz.inventory.stock", bucket, Bucket::size)
+                    .tag("standard", k.standardCode())
+                    .tag("difficulty", String.valueOf(k.difficulty()))
+                    .tag("type", k.type())
+                    .tag("focusArea", Objects.requireNonNullElse(k.focusArea(), "none"))
+                    .register(meterRegistry);
+            log.debug("Tracking inventory bucket {}", k);
+            return bucket;
+        });
+    }
+
+    public record BucketKey(String standardCode, int difficulty, String type, String focusArea) {
+
+        public boolean isTargeted() {
+            return focusArea != null;
+        }
+    }
+
+    private static class Bucket {
+        private final ConcurrentLinkedQueue<Long> questionIds = new ConcurrentLinkedQueue<>();
+        private final Set<Long> stocked = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean refilling = new AtomicBoolean();
+
+        Long poll() {
+            Long id = questionIds.poll();
+            if (id != null) {
+                stocked.remove(id);
+                size.decrementAndGet();
+            }
+            return id;
+        }
+
+        /**
+         * Adds the id unless it is already in stock.
+         */
+        boolean offer(Long id) {
+            if (!stocked.add(id)) {
+                return false;
+            }
+            questionIds.offer(id);
+            size.incrementAndGet();
+            return true;
+        }
+
+        int size() {
+            return size.get();
+        }
+    }
+}
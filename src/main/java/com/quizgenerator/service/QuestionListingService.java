@@ -0,0 +1,86 @@
+package com.quizgenerator.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.quizgenerator.model.Question;
+import com.quizgenerator.repository.QuestionRepository;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Lists stored questions for a standard either one keyset page at a time or as a streamed NDJSON export, so listing
+ * never holds more than a page of questions in memory.
+ */
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+@Slf4j
+public class QuestionListingService {
+
+    /**
+     * A page of questions ordered by id. Pass nextCursor as the after id to read the following page; it is null on
+     * the last page.
+     */
+    public record QuestionPage(List<Question> questions, Long nextCursor) {
+    }
+
+    private static final int EXPORT_FLUSH_INTERVAL = 100;
+
+    private final QuestionRepository questionRepository;
+    private final EntityManager entityManager;
+    private final ObjectMapper objectMapper;
+
+    @Value("${app.listing.default-page-size:100}")
+    private int defaultPageSize;
+
+    @Value("${app.listing.max-page-size:500}")
+    private int maxPageSize;
+
+    @Transactional(readOnly = true)
+    public QuestionPage page(String standardCode, Long afterId, Integer difficulty, String type, String subSkill,
+                             Integer pageSize) {
+        int size = pageSize == null || pageSize <= 0 ? defaultPageSize : Math.min(pageSize, maxPageSize);
+        List<Question> questions = questionRepository.findPageByStandardCode(standardCode,
+                afterId != null ? afterId : 0L, difficulty, type, subSkill, Limit.of(size));
+        Long nextCursor = questions.size() == size ? questions.get(size - 1).getId() : null;
+        return new QuestionPage(questions, nextCursor);
+    }
+
+    /**
+     * Writes every matching question as one JSON object per line. Each question is detached once written so the
+     * persistence context stays empty however many questions are exported.
+     */
+    @Transactional(readOnly = true)
+    public long export(String standardCode, Integer difficulty, String type, String subSkill, OutputStream out)
+            throws IOException {
+        long exported = 0;
+        try (Stream<Question> questions = questionRepository.streamByStandardCode(standardCode, difficulty, type, subSkill);
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null);
+            Iterator<Question> iterator = questions.iterator();
+            while (iterator.hasNext()) {
+                Question question = iterator.next();
+                objectMapper.writeValue(generator, question);
+                generator.writeRaw('\n');
+                entityManager.detach(question);
+                if (++exported % EXPORT_FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        log.debug("Exported {} questions for standard {}", exported, standardCode);
+        return exported;
+    }
+}
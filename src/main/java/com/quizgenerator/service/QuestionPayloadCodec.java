@@ -0,0 +1,190 @@
+package com.quizgenerator.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads and writes the {"questions": [...]} payload token by token, validating each question's schema as it is read.
+ */
+public class QuestionPayloadCodec {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public List<GeneratedQuestion> readQuestions(String payload) throws IOException {
+        List<GeneratedQuestion> questions = new ArrayList<>();
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (!"questions".equals(field)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                expect(parser, value, JsonToken.START_ARRAY);
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    questions.add(readQuestion(parser));
+                }
+            }
+        }
+        return questions;
+    }
+
+    public GeneratedQuestion readQuestion(String questionJson) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(questionJson)) {
+            parser.nextToken();
+            return readQuestion(parser);
+        }
+    }
+
+    public String writeQuestions(List<GeneratedQuestion> questions) {
+        StringWriter writer = new StringWriter();
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("questions");
+            for (GeneratedQuestion question : questions) {
+                writeQuestion(generator, question);
+            }
+            generator.writeEndArray();
+            generator.writeEndObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    private GeneratedQuestion readQuestion(JsonParser parser) throws IOException {
+        expect(parser, parser.currentToken(), JsonToken.START_OBJECT);
+
+        String standardCode = null;
+        String question = null;
+        String[] choices = new String[GeneratedQuestion.KEYS.length];
+        String[] misconceptions = null;
+        String correctAnswer = null;
+        String explanation = null;
+        Integer difficulty = null;
+        String subSkill = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "standardCode" -> standardCode = text(parser, value);
+                case "question" -> question = text(parser, value);
+                case "choices" -> readKeyed(parser, value, choices);
+                case "correctAnswer" -> correctAnswer = text(parser, value);
+                case "explanation" -> explanation = text(parser, value);
+                case "difficulty" -> difficulty = value == JsonToken.VALUE_NULL ? null : parser.getValueAsInt();
+                case "misconceptions" -> {
+                    if (value != JsonToken.VALUE_NULL) {
+                        misconceptions = new String[GeneratedQuestion.KEYS.length];
+                        readKeyed(parser, value, misconceptions);
+                    }
+                }
+                case "subSkill" -> subSkill = text(parser, value);
+                default -> parser.skipChildren();
+            }
+        }
+
+        if (question == null || question.isBlank()) {
+            throw new JsonParseException(parser, "Generated question has no question text");
+        }
+        int choiceCount = 0;
+        while (choiceCount < choices.length && choices[choiceCount] != null) {
+            choiceCount++;
+        }
+        for (int i = choiceCount; i < choices.length; i++) {
+            if (choices[i] != null) {
+                throw new JsonParseException(parser, "Generated question skips choice " + GeneratedQuestion.KEYS[choiceCount]);
+            }
+        }
+        if (choiceCount < 2) {
+            throw new JsonParseException(parser, "Generated question has fewer than two choices");
+        }
+        int correctIndex = keyIndex(correctAnswer);
+        if (correctIndex < 0 || correctIndex >= choiceCount) {
+            throw new JsonParseException(parser, "Generated question has an invalid correctAnswer: " + correctAnswer);
+        }
+
+        String[] compactChoices = choiceCount == choices.length ? choices : Arrays.copyOf(choices, choiceCount);
+        String[] compactMisconceptions = misconceptions == null || choiceCount == misconceptions.length
+                ? misconceptions : Arrays.copyOf(misconceptions, choiceCount);
+        return new GeneratedQuestion(standardCode, question, compactChoices, correctIndex, explanation, difficulty,
+                compactMisconceptions, subSkill);
+    }
+
+    private void readKeyed(JsonParser parser, JsonToken value, String[] target) throws IOException {
+        expect(parser, value, JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            int index = keyIndex(parser.currentName());
+            JsonToken entry = parser.nextToken();
+            if (index < 0) {
+                throw new JsonParseException(parser, "Unexpected choice key: " + parser.currentName());
+            }
+            target[index] = text(parser, entry);
+        }
+    }
+
+    private void writeQuestion(JsonGenerator generator, GeneratedQuestion question) throws IOException {
+        generator.writeStartObject();
+        if (question.standardCode() != null) {
+            generator.writeStringField("standardCode", question.standardCode());
+        }
+        generator.writeStringField("question", question.question());
+        generator.writeObjectFieldStart("choices");
+        for (int i = 0; i < question.choices().length; i++) {
+            generator.writeStringField(GeneratedQuestion.KEYS[i], question.choices()[i]);
+        }
+        generator.writeEndObject();
+        generator.writeStringField("correctAnswer", GeneratedQuestion.KEYS[question.correctIndex()]);
+        generator.writeStringField("explanation", question.explanation());
+        if (question.difficulty() != null) {
+            generator.writeNumberField("difficulty", question.difficulty());
+        }
+        if (question.misconceptions() != null) {
+            generator.writeObjectFieldStart("misconceptions");
+            for (int i = 0; i < question.misconceptions().length; i++) {
+                if (question.misconceptions()[i] != null) {
+                    generator.writeStringField(GeneratedQuestion.KEYS[i], question.misconceptions()[i]);
+                }
+            }
+            generator.writeEndObject();
+        }
+        generator.writeStringField("subSkill", question.subSkill());
+        generator.writeEndObject();
+    }
+
+    private static String text(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NULL) {
+            return null;
+        }
+        if (!value.isScalarValue()) {
+            throw new JsonParseException(parser, "Expected a text value for " + parser.currentName());
+        }
+        return parser.getText();
+    }
+
+    private static int keyIndex(String key) {
+        if (key == null || key.length() != 1) {
+            return -1;
+        }
+        int index = key.charAt(0) - 'A';
+        return index >= 0 && index < GeneratedQuestion.KEYS.length ? index : -1;
+    }
+
+    private static void expect(JsonParser parser, JsonToken actual, JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new JsonParseException(parser, "Expected " + expected + " but found " + actual);
+        }
+    }
+}
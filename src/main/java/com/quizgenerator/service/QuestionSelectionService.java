@@ -0,0 +1,301 @@
+package com.quizgenerator.service;
+
+import com.quizgenerator.model.Question;
+import com.quizgenerator.repository.AnswerEventRepository;
+import com.quizgenerator.repository.QuestionRepository;
+import com.quizgenerator.repository.QuestionRepository.BankEntry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Picks stored questions for a quiz before anything is generated, skipping questions the student has already seen.
+ * Bank ids are held per (standard, difficulty, type) and each student's seen questions as a sparse set of question
+ * ids that only switches a block of ids to a bitmap once the student has seen enough of it.
+ */
+@Service
+@Slf4j
+public class QuestionSelectionService {
+
+    private final QuestionRepository questionRepository;
+    private final AnswerEventRepository answerEventRepository;
+    private final Map<BankKey, IdList> bank = new ConcurrentHashMap<>();
+    private final Map<String, SeenIds> seenByStudent;
+    private final Timer selectionTimer;
+    private final Counter servedCounter;
+
+    @Value("${app.selection.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.selection.max-scan:200000}")
+    private int maxScan;
+
+    @Value("${app.selection.scan-chunk:1024}")
+    private int scanChunk;
+
+    @Autowired
+    public QuestionSelectionService(QuestionRepository questionRepository, AnswerEventRepository answerEventRepository,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.selection.max-cached-students:10000}") int maxCachedStudents) {
+        this.questionRepository = questionRepository;
+        this.answerEventRepository = answerEventRepository;
+        this.seenByStudent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, SeenIds> eldest) {
+                return size() > maxCachedStudents;
+            }
+        };
+        this.selectionTimer = Timer.builder("quiz.selection.latency")
+                .description("Time to pick unseen questions from the bank")
+                .register(meterRegistry);
+        this.servedCounter = Counter.builder("quiz.selection.served")
+                .description("Questions served from the bank instead of being generated")
+                .register(meterRegistry);
+    }
+
+    @Transactional(readOnly = true)
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        AtomicLong indexed = new AtomicLong();
+        try (Stream<BankEntry> entries = questionRepository.streamBankEntries()) {
+            entries.forEach(entry -> {
+                add(entry.getStandardCode(), entry.getDifficulty(), entry.getType(), entry.getId());
+                indexed.incrementAndGet();
+            });
+        }
+        log.info("Indexed {} bank questions across {} buckets", indexed.get(), bank.size());
+    }
+
+    public void register(List<Question> questions) {
+        if (!enabled) {
+            return;
+        }
+        for (Question question : questions) {
+            if (question.getId() != null && !Boolean.TRUE.equals(question.getIsFallback())
+                    && !Boolean.TRUE.equals(question.getIsTargeted())) {
+                add(question.getStandardCode(), question.getDifficulty(), question.getType(), question.getId());
+            }
+        }
+    }
+
+    /**
+     * Returns up to count bank question ids the student has not seen, and marks them as seen. A null studentId
+     * selects without excluding anything.
+     */
+    public List<Long> select(String studentId, String standardCode, int minDifficulty, int maxDifficulty, String type,
+                             int count) {
+        if (!enabled || count <= 0) {
+            return List.of();
+        }
+
+        long started = System.nanoTime();
+        SeenIds seen = studentId != null ? seenSet(studentId) : new SeenIds();
+        List<Long> selected = new ArrayList<>(count);
+        for (int difficulty = minDifficulty; difficulty <= maxDifficulty && selected.size() < count; difficulty++) {
+            IdList ids = bank.get(new BankKey(standardCode, difficulty, type));
+            if (ids != null) {
+                ids.pickUnseen(seen, count - selected.size(), maxScan, scanChunk, selected);
+            }
+        }
+        selectionTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        servedCounter.increment(selected.size());
+        return selected;
+    }
+
+    /**
+     * Whether the student has answered or been served the question. Always false for a null studentId.
+     */
+    public boolean hasSeen(String studentId, Long questionId) {
+        if (!enabled || studentId == null || questionId == null) {
+            return false;
+        }
+        SeenIds seen = seenSet(studentId);
+        synchronized (seen) {
+            return seen.contains(questionId);
+        }
+    }
+
+    public void markSeen(String studentId, Long questionId) {
+        if (!enabled || studentId == null || questionId == null) {
+            return;
+        }
+        SeenIds seen;
+        synchronized (seenByStudent) {
+            seen = seenByStudent.get(studentId);
+        }
+        if (seen != null) {
+            synchronized (seen) {
+                seen.add(questionId);
+            }
+        }
+    }
+
+    private SeenIds seenSet(String studentId) {
+        synchronized (seenByStudent) {
+            SeenIds cached = seenByStudent.get(studentId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        SeenIds loaded = new SeenIds();
+        for (String questionId : answerEventRepository.findQuestionIdsByStudentId(studentId)) {
+            try {
+                loaded.add(Long.parseLong(questionId));
+            } catch (NumberFormatException e) {
+                log.debug("Ignoring unparseable answered question id {} for student {}", questionId, studentId);
+            }
+        }
+
+        synchronized (seenByStudent) {
+            return seenByStudent.computeIfAbsent(studentId, id -> loaded);
+        }
+    }
+
+    private void add(String standardCode, Integer difficulty, String type, Long id) {
+        if (standardCode == null || difficulty == null || type == null || id == null) {
+            return;
+        }
+        bank.computeIfAbsent(new BankKey(standardCode, difficulty, type), key -> new IdList()).add(id);
+    }
+
+    private record BankKey(String standardCode, int difficulty, String type) {
+    }
+
+    /**
+     * Append-only list of bank ids. Entries below the published size never change, so a scan can run over a snapshot
+     * without holding the list's lock.
+     */
+    private static final class IdList {
+        private long[] ids = new long[16];
+        private int size;
+
+        synchronized void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        /**
+         * Scans at most maxScan ids from a random start, holding the student's lock for one chunk of ids at a time so
+         * concurrent selections for the same student never pick the same question.
+         */
+        void pickUnseen(SeenIds seen, int wanted, int maxScan, int chunk, List<Long> selected) {
+            long[] snapshot;
+            int length;
+            synchronized (this) {
+                snapshot = ids;
+                length = size;
+            }
+            if (length == 0) {
+                return;
+            }
+            int limit = Math.min(length, maxScan);
+            int i = ThreadLocalRandom.current().nextInt(length);
+            int scanned = 0;
+            int found = 0;
+            while (scanned < limit && found < wanted) {
+                int chunkEnd = Math.min(limit, scanned + Math.max(chunk, 1));
+                synchronized (seen) {
+                    for (; scanned < chunkEnd && found < wanted; scanned++) {
+                        long id = snapshot[i];
+                        if (seen.add(id)) {
+                            selected.add(id);
+                            found++;
+                        }
+                        i = i + 1 == length ? 0 : i + 1;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Set of question ids split into blocks of 65536 consecutive ids. A block is a sorted array of the low 16 bits
+     * until it holds 4096 ids, then an 8 KB bitmap, so a student who has seen a few hundred questions costs a few
+     * hundred bytes whatever the ids are. Not thread-safe; callers lock on the instance.
+     */
+    private static final class SeenIds {
+        private final Map<Long, Block> blocks = new HashMap<>();
+
+        boolean contains(long id) {
+            Block block = blocks.get(id >>> 16);
+            return block != null && block.contains((char) id);
+        }
+
+        boolean add(long id) {
+            return blocks.computeIfAbsent(id >>> 16, key -> new Block()).add((char) id);
+        }
+    }
+
+    private static final class Block {
+        private static final int ARRAY_LIMIT = 4096;
+
+        private char[] values = new char[4];
+        private long[] bits;
+        private int size;
+
+        boolean contains(char low) {
+            if (bits != null) {
+                return (bits[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, size, low) >= 0;
+        }
+
+        boolean add(char low) {
+            if (bits != null) {
+                long mask = 1L << low;
+                if ((bits[low >>> 6] & mask) != 0) {
+                    return false;
+                }
+                bits[low >>> 6] |= mask;
+                size++;
+                return true;
+            }
+            int at = Arrays.binarySearch(values, 0, size, low);
+            if (at >= 0) {
+                return false;
+            }
+            if (size == ARRAY_LIMIT) {
+                toBitmap();
+                return add(low);
+            }
+            at = -at - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, at, values, at + 1, size - at);
+            values[at] = low;
+            size++;
+            return true;
+        }
+
+        private void toBitmap() {
+            bits = new long[1024];
+            for (int i = 0; i < size; i++) {
+                bits[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package com.quizgenerator.service;
+
+import com.quizgenerator.dto.QuestionStatsResponse;
+import com.quizgenerator.model.QuestionStats;
+import com.quizgenerator.repository.QuestionStatsRepository;
+import jakarta.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Per-question answer statistics kept in striped counters and flushed to question_stats in batches. Recording an
+ * answer only touches {@link LongAdder}s, and counters for questions nobody is answering are retired after a few idle
+ * flushes so memory follows the set of recently answered questions.
+ */
+@Service
+@Slf4j
+public class QuestionStatsService {
+
+    private static final String[] CHOICE_KEYS = {"A", "B", "C", "D"};
+    private static final int TIME_BUCKETS = 48;
+    private static final int SUB_BUCKETS = 4;
+    private static final long BUCKET_UNIT_MS = 125;
+    private static final int IDLE_FLUSHES_BEFORE_RETIRE = 3;
+
+    private final QuestionStatsRepository questionStatsRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Long, Counters> counters = new ConcurrentHashMap<>();
+
+    @Value("${app.stats.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.stats.flush-batch-size:500}")
+    private int flushBatchSize;
+
+    @Autowired
+    public QuestionStatsService(QuestionStatsRepository questionStatsRepository, EntityManager entityManager,
+                                PlatformTransactionManager transactionManager) {
+        this.questionStatsRepository = questionStatsRepository;
+        this.entityManager = entityManager;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void record(long questionId, int choice, boolean correct, Long timeSpentMs) {
+        if (!enabled) {
+            return;
+        }
+        while (true) {
+            Counters current = counters.computeIfAbsent(questionId, id -> new Counters());
+            if (current.enter()) {
+                try {
+                    current.record(choice, correct, timeSpentMs != null ? timeSpentMs : 0);
+                } finally {
+                    current.exit();
+                }
+                return;
+            }
+            counters.remove(questionId, current);
+        }
+    }
+
+    public Optional<QuestionStatsResponse> getStats(long questionId) {
+        return getStats(List.of(questionId)).stream().findFirst();
+    }
+
+    /**
+     * Returns flushed totals plus whatever has been recorded since the last flush, for each question that has any
+     * answers.
+     */
+    public List<QuestionStatsResponse> getStats(Collection<Long> questionIds) {
+        Map<Long, Tally> tallies = new LinkedHashMap<>();
+        for (QuestionStats stats : questionStatsRepository.findAllById(questionIds)) {
+            tallies.put(stats.getQuestionId(), Tally.of(stats));
+        }
+        for (Long questionId : questionIds) {
+            Counters live = counters.get(questionId);
+            if (live != null) {
+                tallies.merge(questionId, live.sum(), Tally::plus);
+            }
+        }
+        return questionIds.stream()
+                .filter(tallies::containsKey)
+                .map(questionId -> tallies.get(questionId).toResponse(questionId))
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${app.stats.flush-interval-ms:5000}",
+               initialDelayString = "${app.stats.flush-interval-ms:5000}")
+    public void flush() {
+        Map<Long, Tally> pending = new LinkedHashMap<>();
+        counters.forEach((questionId, live) -> {
+            Tally drained = live.drain();
+            if (!drained.isEmpty()) {
+                pending.put(questionId, drained);
+            } else if (live.idleFlush() >= IDLE_FLUSHES_BEFORE_RETIRE && live.retire()) {
+                counters.remove(questionId, live);
+                Tally leftover = live.drain();
+                if (!leftover.isEmpty()) {
+                    pending.put(questionId, leftover);
+                }
+            }
+        });
+
+        List<Long> questionIds = new ArrayList<>(pending.keySet());
+        for (int from = 0; from < questionIds.size(); from += flushBatchSize) {
+            Map<Long, Tally> batch = questionIds.subList(from, Math.min(from + flushBatchSize, questionIds.size()))
+                    .stream().collect(Collectors.toMap(Function.identity(), pending::get));
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(batch));
+            } catch (RuntimeException e) {
+                log.warn("Failed to flush stats for {} questions, keeping them for the next flush: {}",
+                        batch.size(), e.getMessage());
+                batch.forEach((questionId, tally) -> record(questionId, tally));
+            }
+        }
+        if (!pending.isEmpty()) {
+            log.debug("Flushed answer stats for {} questions", pending.size());
+        }
+    }
+
+    private void write(Map<Long, Tally> batch) {
+        Map<Long, QuestionStats> existing = questionStatsRepository.findAllById(batch.keySet()).stream()
+                .collect(Collectors.toMap(QuestionStats::getQuestionId, Function.identity()));
+        LocalDateTime now = LocalDateTime.now();
+        batch.forEach((questionId, tally) -> {
+            QuestionStats stats = existing.get(questionId);
+            boolean created = stats == null;
+            if (created) {
+                stats = new QuestionStats(questionId, CHOICE_KEYS.length, TIME_BUCKETS);
+            }
+            Tally total = Tally.of(stats).plus(tally);
+            stats.setAttempts(total.attempts());
+            stats.setCorrectAnswers(total.correct());
+            stats.setChoiceCounts(total.choices());
+            stats.setTotalTimeMs(total.totalTimeMs());
+            stats.setTimeHistogram(total.histogram());
+            stats.setUpdatedAt(now);
+            if (created) {
+                entityManager.persist(stats);
+            }
+        });
+    }
+
+    private void record(long questionId, Tally tally) {
+        while (true) {
+            Counters current = counters.computeIfAbsent(questionId, id -> new Counters());
+            if (current.enter()) {
+                try {
+                    current.add(tally);
+                } finally {
+                    current.exit();
+                }
+                return;
+            }
+            counters.remove(questionId, current);
+        }
+    }
+
+    /**
+     * Log-linear buckets: four linear 125ms buckets below 500ms, then four buckets per doubling, so a bucket is never
+     * wider than a quarter of its lower bound. The last bucket also takes everything above it.
+     */
+    private static int timeBucket(long timeSpentMs) {
+        long units = Math.max(0, timeSpentMs) / BUCKET_UNIT_MS;
+        if (units < SUB_BUCKETS) {
+            return (int) units;
+        }
+        int octave = 63 - Long.numberOfLeadingZeros(units);
+        int sub = (int) (units >> (octave - 2)) & (SUB_BUCKETS - 1);
+        return (int) Math.min(TIME_BUCKETS - 1, (long) SUB_BUCKETS * (octave - 1) + sub);
+    }
+
+    private static long bucketLowerBoundMs(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket * BUCKET_UNIT_MS;
+        }
+        int octave = bucket / SUB_BUCKETS + 1;
+        return ((long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << (octave - 2)) * BUCKET_UNIT_MS;
+    }
+
+    private record Tally(long attempts, long correct, long[] choices, long totalTimeMs, long[] histogram) {
+
+        static Tally of(QuestionStats stats) {
+            return new Tally(stats.getAttempts(), stats.getCorrectAnswers(),
+                    resize(stats.getChoiceCounts(), CHOICE_KEYS.length), stats.getTotalTimeMs(),
+                    resize(stats.getTimeHistogram(), TIME_BUCKETS));
+        }
+
+        boolean isEmpty() {
+            if (attempts != 0 || correct != 0 || totalTimeMs != 0) {
+                return false;
+            }
+            for (long count : choices) {
+                if (count != 0) {
+                    return false;
+                }
+            }
+            for (long count : histogram) {
+                if (count != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Tally plus(Tally other) {
+            long[] summedChoices = choices.clone();
+            long[] summedHistogram = histogram.clone();
+            for (int i = 0; i < summedChoices.length; i++) {
+                summedChoices[i] += other.choices[i];
+            }
+            for (int i = 0; i < summedHistogram.length; i++) {
+                summedHistogram[i] += other.histogram[i];
+            }
+            return new Tally(attempts + other.attempts, correct + other.correct, summedChoices,
+                    totalTimeMs + other.totalTimeMs, summedHistogram);
+        }
+
+        QuestionStatsResponse toResponse(long questionId) {
+            Map<String, Long> distribution = new LinkedHashMap<>();
+            for (int i = 0; i < CHOICE_KEYS.length; i++) {
+                distribution.put(CHOICE_KEYS[i], choices[i]);
+            }
+            return new QuestionStatsResponse(questionId, attempts, correct,
+                    attempts > 0 ? 100.0 * correct / attempts : null, distribution,
+                    attempts > 0 ? totalTimeMs / attempts : null, medianTimeMs());
+        }
+
+        /**
+         * Interpolates the median linearly within the histogram bucket that holds it.
+         */
+        private Long medianTimeMs() {
+            if (attempts == 0) {
+                return null;
+            }
+            double half = attempts / 2.0;
+            long seen = 0;
+            for (int bucket = 0; bucket < histogram.length; bucket++) {
+                if (histogram[bucket] > 0 && seen + histogram[bucket] >= half) {
+                    long lower = bucketLowerBoundMs(bucket);
+                    long upper = bucketLowerBoundMs(bucket + 1);
+                    return lower + Math.round((upper - lower) * (half - seen) / histogram[bucket]);
+                }
+                seen += histogram[bucket];
+            }
+            return null;
+        }
+
+        private static long[] resize(long[] values, int length) {
+            long[] resized = new long[length];
+            if (values != null) {
+                System.arraycopy(values, 0, resized, 0, Math.min(values.length, length));
+            }
+            return resized;
+        }
+    }
+
+    private static final class Counters {
+        private final LongAdder attempts = new LongAdder();
+        private final LongAdder correct = new LongAdder();
+        private final LongAdder[] choices = adders(CHOICE_KEYS.length);
+        private final LongAdder totalTimeMs = new LongAdder();
+        private final LongAdder[] histogram = adders(TIME_BUCKETS);
+        private final AtomicInteger writers = new AtomicInteger();
+        private int idleFlushes;
+
+        boolean enter() {
+            int current;
+            do {
+                current = writers.get();
+                if (current < 0) {
+                    return false;
+                }
+            } while (!writers.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void exit() {
+            writers.decrementAndGet();
+        }
+
+        boolean retire() {
+            return writers.compareAndSet(0, -1);
+        }
+
+        int idleFlush() {
+            return ++idleFlushes;
+        }
+
+        void record(int choice, boolean answeredCorrectly, long timeSpentMs) {
+            if (choice >= 0 && choice < choices.length) {
+                choices[choice].increment();
+            }
+            if (answeredCorrectly) {
+                correct.increment();
+            }
+            totalTimeMs.add(Math.max(0, timeSpentMs));
+            histogram[timeBucket(timeSpentMs)].increment();
+            attempts.increment();
+        }
+
+        void add(Tally tally) {
+            for (int i = 0; i < choices.length; i++) {
+                choices[i].add(tally.choices()[i]);
+            }
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i].add(tally.histogram()[i]);
+            }
+            correct.add(tally.correct());
+            totalTimeMs.add(tally.totalTimeMs());
+            attempts.add(tally.attempts());
+        }
+
+        Tally sum() {
+            return new Tally(attempts.sum(), correct.sum(), sums(choices, false), totalTimeMs.sum(),
+                    sums(histogram, false));
+        }
+
+        Tally drain() {
+            Tally drained = new Tally(attempts.sumThenReset(), correct.sumThenReset(), sums(choices, true),
+                    totalTimeMs.sumThenReset(), sums(histogram, true));
+            if (!drained.isEmpty()) {
+                idleFlushes = 0;
+            }
+            return drained;
+        }
+
+        private static LongAdder[] adders(int count) {
+            LongAdder[] adders = new LongAdder[count];
+            for (int i = 0; i < count; i++) {
+                adders[i] = new LongAdder();
+            }
+            return adders;
+        }
+
+        private static long[] sums(LongAdder[] adders, boolean reset) {
+            long[] sums = new long[adders.length];
+            for (int i = 0; i < adders.length; i++) {
+                sums[i] = reset ? adders[i].sumThenReset() : adders[i].sum();
+            }
+            return sums;
+        }
+    }
+}
@@ -0,0 +1,1004 @@
+package com.quizgenerator.service;
+
+import com.quizgenerator.service.QuestionGenerator.StandardPromptSpec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds multiple-choice questions procedurally from a seed, in the same shape Claude is asked to return.
+ * Answers are computed exactly and every distractor is rendered in the same canonical form as the answer, so a
+ * distractor can never be an equivalent of the correct choice.
+ */
+@Component
+public class QuestionTemplateEngine {
+
+    private static final String[] KEYS = GeneratedQuestion.KEYS;
+    private static final Pattern FRACTION = Pattern.compile("(?:(\\d+) )?(\\d+)/(\\d+)(.*)");
+    private static final Pattern POINT = Pattern.compile("\\((\\d+), (\\d+)\\)");
+    private static final String[] NAMES = {"Maya", "Jordan", "Priya", "Luis", "Aiden", "Zoe", "Sam", "Grace"};
+    private static final Map<String, String> ANGLE_KINDS = new LinkedHashMap<>();
+
+    static {
+        ANGLE_KINDS.put("acute", "Confused acute angles (less than 90°) with larger angles");
+        ANGLE_KINDS.put("right", "Thought any angle near a corner is a right angle");
+        ANGLE_KINDS.put("obtuse", "Confused obtuse angles (between 90° and 180°) with other angles");
+        ANGLE_KINDS.put("straight", "Did not recognize that a straight angle is 180°");
+    }
+
+    private final Map<String, ItemTemplate> templates = new HashMap<>();
+    private final Counter generatedCounter;
+
+    @Autowired
+    public QuestionTemplateEngine(MeterRegistry meterRegistry) {
+        this.generatedCounter = Counter.builder("quiz.generation.template.questions")
+                .description("Questions built by the procedural template engine")
+                .register(meterRegistry);
+
+        templates.put("5.NS.1", this::compareDecimals);
+        templates.put("5.NS.2", this::fractionAsDivision);
+        templates.put("5.NS.3", this::powersOfTen);
+        templates.put("5.NS.4", this::percentAsFraction);
+        templates.put("5.CA.1", this::divisionWithRemainder);
+        templates.put("5.CA.2", this::wholeNumberMultiplyDivide);
+        templates.put("5.CA.3", this::addSubtractFractions);
+        templates.put("5.CA.4", this::addSubtractFractions);
+        templates.put("5.CA.5", this::multiplyFractions);
+        templates.put("5.CA.6", this::divideFractions);
+        templates.put("5.CA.7", this::multiplyFractions);
+        templates.put("5.CA.8", this::divideFractions);
+        templates.put("5.CA.9", this::decimalOperations);
+        templates.put("5.CA.10", this::decimalOperations);
+        templates.put("5.CA.11", this::coordinatePoint);
+        templates.put("5.G.1", this::classifyAngle);
+        templates.put("5.G.2", this::coordinateDistance);
+        templates.put("5.M.1", this::convertUnits);
+        templates.put("5.M.2", this::fractionalArea);
+        templates.put("5.M.3", this::polygonArea);
+        templates.put("5.M.4", this::prismVolume);
+        templates.put("5.M.5", this::missingDimension);
+        templates.put("5.DA.1", this::barGraphDifference);
+        templates.put("5.DA.2", this::measureOfCenter);
+    }
+
+    public boolean supports(String standardCode) {
+        return templates.containsKey(standardCode);
+    }
+
+    public List<GeneratedQuestion> generate(StandardPromptSpec standard, String type, long seed) {
+        Random random = new Random(seed);
+        ItemTemplate template = templates.getOrDefault(standard.code(), this::wholeNumberArithmetic);
+        int difficulty = Math.max(1, Math.min(5, standard.difficulty()));
+        List<String> subSkills = subSkills(standard);
+        List<GeneratedQuestion> questions = new ArrayList<>(standard.count());
+
+        for (int i = 0; i < standard.count(); i++) {
+            Problem problem = template.create(random, difficulty);
+            questions.add(toQuestion(standard, type, subSkill(subSkills, problem), problem, random));
+        }
+
+        generatedCounter.increment(questions.size());
+        return questions;
+    }
+
+    private Problem compareDecimals(Random random, int difficulty) {
+        int tenths = between(random, 1, 8);
+        int digit = between(random, 1, 9);
+        String largest = "0." + (tenths + 1);
+        String more = difficulty >= 3 ? "0." + tenths + digit + between(random, 1, 9) : "0." + tenths + digit;
+        String zero = "0." + tenths + "0" + digit;
+        String small = "0.0" + (tenths + 1) + digit;
+
+        return new Problem(
+                List.of("Place decimals to thousandths on number lines"),
+                "Which number is the greatest: " + String.join(", ", shuffledCopy(random, largest, more, zero, small)) + "?",
+                "Four rain gauges collected " + String.join(", ", shuffledCopy(random, largest, more, zero, small))
+                        + " inches of rain. Which amount is the greatest?",
+                "Each of these decimals is marked on a number line from 0 to 1: "
+                        + String.join(", ", shuffledCopy(random, largest, more, zero, small)) + ". Which point is farthest to the right?",
+                largest,
+                largest + " has the most tenths, so it is farthest from 0 on the number line.",
+                distractors(more, "Thought a decimal with more digits is always greater",
+                        zero, "Ignored the zero holding the hundredths place",
+                        small, "Compared the digits as whole numbers instead of by place value"));
+    }
+
+    private Problem fractionAsDivision(Random random, int difficulty) {
+        int people = between(random, 3, difficulty >= 3 ? 12 : 8);
+        int wholes = between(random, 1, people - 1);
+        String item = pick(random, "pizzas", "sandwiches", "cakes", "yards of ribbon");
+        String answer = Fraction.of(wholes, people).toString();
+
+        return new Problem(
+                List.of("Understand fractions as division"),
+                "What fraction is equal to " + wholes + " ÷ " + people + "?",
+                pick(random, NAMES) + " shares " + wholes + " " + item + " equally among " + people
+                        + " friends. How much does each friend get?",
+                wholes + " " + item + " are drawn, and each is cut into " + people + " equal parts to share among " + people
+                        + " friends. How much does each friend get?",
+                answer,
+                "Sharing " + wholes + " wholes among " + people + " gives " + wholes + " ÷ " + people + " = " + answer + " each.",
+                distractors(Fraction.of(people, wholes).toString(), "Reversed the dividend and the divisor",
+                        Fraction.of(1, people).toString(), "Ignored how many wholes were being shared",
+                        Fraction.of(wholes, wholes + people).toString(), "Added the two numbers to make the denominator"));
+    }
+
+    private Problem powersOfTen(Random random, int difficulty) {
+        int exponent = between(random, 1, difficulty >= 3 ? 4 : 3);
+        BigDecimal power = BigDecimal.TEN.pow(exponent);
+        BigDecimal number = difficulty >= 3
+                ? BigDecimal.valueOf(between(random, 11, 999), 2)
+                : BigDecimal.valueOf(between(random, 2, 99));
+        String answer = decimal(number.multiply(power));
+        String powerText = "10^" + exponent;
+
+        return new Problem(
+                List.of("Multiply by powers of 10"),
+                "What is " + decimal(number) + " × " + powerText + "?",
+                "A factory packs " + decimal(number) + " kilograms of flour into each crate and ships " + decimal(power)
+                        + " crates. How many kilograms of flour does it ship?",
+                "A place-value chart shows " + decimal(number) + " being multiplied by " + powerText
+                        + ". What number does the chart show after the digits shift?",
+                answer,
+                "Multiplying by " + powerText + " shifts every digit " + exponent + " places to the left: " + answer + ".",
+                distractors(decimal(number.multiply(BigDecimal.TEN.pow(exponent - 1))), "Shifted the digits one place too few",
+                        decimal(number.multiply(BigDecimal.TEN.pow(exponent + 1))), "Shifted the digits one place too many",
+                        number.scale() > 0 ? number.toPlainString() + "0".repeat(exponent) : decimal(number.multiply(BigDecimal.valueOf(exponent))),
+                        number.scale() > 0 ? "Wrote zeros on the end without moving the decimal point" : "Multiplied by the exponent instead of the power of 10"));
+    }
+
+    private Problem percentAsFraction(Random random, int difficulty) {
+        int percent = 5 * between(random, 1, 19);
+        if (percent == 50) {
+            percent = difficulty >= 3 ? 35 : 25;
+        }
+        Fraction answer = Fraction.of(percent, 100);
+
+        return new Problem(
+                List.of("Find equivalent fractions for percents", "Convert between percents and fractions"),
+                "Which fraction is equal to " + percent + "%?",
+                "In a survey, " + percent + "% of students chose soccer as their favorite sport. What fraction of the students chose soccer?",
+                "A 10-by-10 grid has " + percent + " of its 100 squares shaded. What fraction of the grid is shaded?",
+                answer.toString(),
+                percent + "% means " + percent + " out of 100, which simplifies to " + answer + ".",
+                distractors(Fraction.of(percent, 10).toString(), "Treated the percent as parts of 10 instead of 100",
+                        Fraction.of(100 - percent, 100).toString(), "Found the part that is not shaded",
+                        Fraction.of(answer.denominator(), answer.numerator()).toString(), "Reversed the numerator and the denominator"));
+    }
+
+    private Problem divisionWithRemainder(Random random, int difficulty) {
+        int divisor = difficulty >= 3 ? between(random, 11, 48) : between(random, 3, 9);
+        int quotient = difficulty >= 3 ? between(random, 21, 199) : between(random, 12, 99);
+        int remainder = between(random, 1, divisor - 1);
+        int dividend = divisor * quotient + remainder;
+        String answer = quotient + " R " + remainder;
+
+        return new Problem(
+                List.of("Find quotients and remainders"),
+                "What is " + dividend + " ÷ " + divisor + "?",
+                "A school has " + dividend + " chairs to set up in rows of " + divisor
+                        + ". How many full rows can it make, and how many chairs are left over?",
+                dividend + " counters are arranged in groups of " + divisor
+                        + ". How many full groups are there, and how many counters are left over?",
+                answer,
+                divisor + " × " + quotient + " = " + (divisor * quotient) + ", and " + dividend + " - " + (divisor * quotient)
+                        + " = " + remainder + ", so the answer is " + answer + ".",
+                distractors(String.valueOf(quotient), "Dropped the remainder",
+                        quotient + " R " + (divisor - remainder), "Subtracted the remainder from the divisor",
+                        (quotient - 1) + " R " + (remainder + divisor), "Stopped dividing while the remainder was still larger than the divisor"));
+    }
+
+    private Problem wholeNumberMultiplyDivide(Random random, int difficulty) {
+        int groups = between(random, 12, difficulty >= 3 ? 99 : 40);
+        int perGroup = between(random, 6, difficulty >= 3 ? 48 : 25);
+        int total = groups * perGroup;
+        String name = pick(random, NAMES);
+
+        if (random.nextBoolean()) {
+            return new Problem(
+                    List.of("Identify multiplication problems in context"),
+                    "What is " + groups + " × " + perGroup + "?",
+                    name + " orders " + groups + " boxes of markers with " + perGroup + " markers in each box. How many markers is that?",
+                    "An array has " + groups + " rows with " + perGroup + " dots in each row. How many dots are in the array?",
+                    String.valueOf(total),
+                    groups + " groups of " + perGroup + " is " + groups + " × " + perGroup + " = " + total + ".",
+                    distractors(String.valueOf(groups + perGroup), "Added instead of multiplying",
+                            String.valueOf(groups * (perGroup % 10) + (groups * (perGroup / 10))), "Did not shift the tens partial product one place",
+                            String.valueOf(total + perGroup), "Counted one extra group"));
+        }
+
+        return new Problem(
+                List.of("Identify division problems in context"),
+                "What is " + total + " ÷ " + perGroup + "?",
+                name + " packs " + total + " apples into bags of " + perGroup + ". How many bags are filled?",
+                total + " dots are arranged in rows of " + perGroup + ". How many rows are there?",
+                String.valueOf(groups),
+                perGroup + " × " + groups + " = " + total + ", so " + total + " ÷ " + perGroup + " = " + groups + ".",
+                distractors(String.valueOf(total - perGroup), "Subtracted the divisor instead of dividing",
+                        String.valueOf(groups * 10), "Placed a quotient digit in the wrong place value",
+                        String.valueOf(groups + 1), "Counted one group too many"));
+    }
+
+    private Problem addSubtractFractions(Random random, int difficulty) {
+        Fraction first = properFraction(random, difficulty);
+        Fraction second = properFraction(random, difficulty);
+        while (second.denominator() == first.denominator()) {
+            second = properFraction(random, difficulty);
+        }
+
+        boolean subtract = random.nextBoolean();
+        if (subtract && first.compareTo(second) < 0) {
+            Fraction swap = first;
+            first = second;
+            second = swap;
+        }
+        Fraction answer = subtract ? first.minus(second) : first.plus(second);
+        String operator = subtract ? " - " : " + ";
+        String name = pick(random, NAMES);
+
+        String story = subtract
+                ? name + " had " + first + " of a pan of brownies and gave away " + second + " of the pan. How much is left?"
+                : name + " walked " + first + " of a mile to school and " + second + " of a mile to the library. How far did "
+                        + name + " walk in all?";
+        long combinedNumerators = subtract ? first.numerator() - second.numerator() : first.numerator() + second.numerator();
+        long combinedDenominators = subtract ? Math.abs(first.denominator() - second.denominator()) : first.denominator() + second.denominator();
+
+        return new Problem(
+                subtract
+                        ? List.of("Subtract fractions with unlike denominators", "Set up fraction subtraction problems")
+                        : List.of("Add fractions with unlike denominators", "Set up fraction addition problems"),
+                "What is " + first + operator + second + "?",
+                story,
+                "Two fraction bars show " + first + " and " + second + ". What is " + first + operator + second + "?",
+                answer.toString(),
+                "Rewrite both fractions with the common denominator " + first.commonDenominator(second) + ", then "
+                        + (subtract ? "subtract" : "add") + " the numerators: " + answer + ".",
+                distractors(fractionOrNull(combinedNumerators, combinedDenominators),
+                        subtract ? "Subtracted the numerators and the denominators" : "Added the numerators and the denominators",
+                        fractionOrNull(combinedNumerators, Math.max(first.denominator(), second.denominator())),
+                        "Combined the numerators without finding a common denominator",
+                        fractionOrNull(combinedNumerators, first.denominator() * second.denominator()),
+                        "Multiplied the denominators but did not rename the numerators",
+                        (subtract ? first.plus(second) : first.minus(second).abs()).toString(),
+                        subtract ? "Added instead of subtracting" : "Subtracted instead of adding"));
+    }
+
+    private Problem multiplyFractions(Random random, int difficulty) {
+        Fraction fraction = properFraction(random, difficulty);
+        String name = pick(random, NAMES);
+
+        if (difficulty <= 2) {
+            int whole = between(random, 2, 9);
+            Fraction answer = fraction.times(Fraction.of(whole, 1));
+            return new Problem(
+                    List.of("Multiply fractions by whole numbers", "Set up fraction multiplication problems"),
+                    "What is " + whole + " × " + fraction + "?",
+                    name + " runs " + fraction + " of a mile each day for " + whole + " days. How far does " + name + " run in all?",
+                    "A model shows " + whole + " groups of " + fraction + ". What is the total?",
+                    answer.toString(),
+                    "Multiply the whole number by the numerator: " + whole + " × " + fraction.numerator() + "/" + fraction.denominator()
+                            + " = " + (whole * fraction.numerator()) + "/" + fraction.denominator() + ", which is " + answer + ".",
+                    distractors(Fraction.of(fraction.numerator(), fraction.denominator() * whole).toString(), "Multiplied the denominator instead of the numerator",
+                            Fraction.of(fraction.numerator() + whole, fraction.denominator()).toString(), "Added the whole number to the numerator",
+                            Fraction.of(whole * fraction.denominator(), fraction.numerator()).toString(), "Divided by the fraction instead of multiplying"));
+        }
+
+        Fraction other = properFraction(random, difficulty);
+        Fraction answer = fraction.times(other);
+        return new Problem(
+                List.of("Multiply fractions by fractions", "Set up fraction multiplication problems"),
+                "What is " + fraction + " × " + other + "?",
+                "A recipe uses " + other + " of a cup of sugar. " + name + " makes " + fraction + " of the recipe. How much sugar is used?",
+                "An area model shades " + fraction + " of a square one way and " + other + " of it the other way. What fraction is double-shaded?",
+                answer.toString(),
+                "Multiply the numerators and the denominators: " + fraction.numerator() + " × " + other.numerator() + " over "
+                        + fraction.denominator() + " × " + other.denominator() + " = " + answer + ".",
+                distractors(Fraction.of(fraction.numerator() * other.denominator(), fraction.denominator() * other.numerator()).toString(),
+                        "Cross-multiplied as if dividing",
+                        fractionOrNull(fraction.numerator() + other.numerator(), fraction.denominator() + other.denominator()),
+                        "Added the numerators and the denominators",
+                        fraction.plus(other).toString(), "Added the fractions instead of multiplying"));
+    }
+
+    private Problem divideFractions(Random random, int difficulty) {
+        int unitDenominator = between(random, 2, difficulty >= 3 ? 12 : 8);
+        int whole = between(random, 2, 9);
+        Fraction unit = Fraction.of(1, unitDenominator);
+        String name = pick(random, NAMES);
+
+        if (random.nextBoolean()) {
+            Fraction answer = unit.dividedBy(Fraction.of(whole, 1));
+            return new Problem(
+                    List.of("Divide fractions by whole numbers", "Set up fraction division problems"),
+                    "What is " + unit + " ÷ " + whole + "?",
+                    name + " has " + unit + " of a pound of trail mix to split equally into " + whole + " bags. How much goes in each bag?",
+                    "A fraction strip shows " + unit + " cut into " + whole + " equal parts. How big is each part?",
+                    answer.toString(),
+                    "Splitting " + unit + " into " + whole + " equal parts gives 1/" + (unitDenominator * whole) + ".",
+                    distractors(Fraction.of(whole, unitDenominator).toString(), "Multiplied instead of dividing",
+                            String.valueOf(unitDenominator * whole), "Inverted the answer",
+                            fractionOrNull(1, unitDenominator + whole), "Added the whole number to the denominator"));
+        }
+
+        Fraction answer = Fraction.of(whole, 1).dividedBy(unit);
+        return new Problem(
+                List.of("Divide whole numbers by fractions", "Set up fraction division problems"),
+                "What is " + whole + " ÷ " + unit + "?",
+                name + " has " + whole + " feet of rope and cuts it into pieces that are each " + unit + " of a foot long. How many pieces are there?",
+                "A number line from 0 to " + whole + " is split into jumps of " + unit + ". How many jumps are there?",
+                answer.toString(),
+                "Each whole holds " + unitDenominator + " pieces of size " + unit + ", so " + whole + " wholes hold "
+                        + (whole * unitDenominator) + ".",
+                distractors(Fraction.of(whole, unitDenominator).toString(), "Divided the whole number by the denominator",
+                        Fraction.of(1, whole * unitDenominator).toString(), "Inverted the answer",
+                        String.valueOf(whole + unitDenominator), "Added the whole number and the denominator"));
+    }
+
+    private Problem decimalOperations(Random random, int difficulty) {
+        BigDecimal first = BigDecimal.valueOf(between(random, 110, difficulty >= 3 ? 9_999 : 999), 2);
+        BigDecimal second = BigDecimal.valueOf(between(random, 11, 99), 1);
+        String name = pick(random, NAMES);
+
+        return switch (random.nextInt(difficulty >= 3 ? 3 : 2)) {
+            case 0 -> {
+                BigDecimal answer = first.add(second);
+                BigDecimal misaligned = rightAligned(first).add(rightAligned(second));
+                yield new Problem(
+                        List.of("Add decimals to hundredths", "Solve decimal computation problems"),
+                        "What is " + decimal(first) + " + " + decimal(second) + "?",
+                        name + " buys a book for $" + money(first) + " and a pen for $" + money(second) + ". How much does "
+                                + name + " spend?",
+                        "Base-ten blocks show " + decimal(first) + " and " + decimal(second) + ". What is their sum?",
+                        decimal(answer),
+                        "Line up the decimal points and add: " + decimal(first) + " + " + decimal(second) + " = " + decimal(answer) + ".",
+                        distractors(decimal(misaligned), "Lined up the last digits instead of the decimal points",
+                                decimal(answer.add(BigDecimal.ONE)), "Regrouped into the ones place twice",
+                                decimal(first.subtract(second).abs()), "Subtracted instead of adding"));
+            }
+            case 1 -> {
+                BigDecimal larger = first.max(second);
+                BigDecimal smaller = first.min(second);
+                BigDecimal answer = larger.subtract(smaller);
+                yield new Problem(
+                        List.of("Subtract decimals to hundredths", "Solve decimal computation problems"),
+                        "What is " + decimal(larger) + " - " + decimal(smaller) + "?",
+                        name + " has $" + money(larger) + " and spends $" + money(smaller) + ". How much money is left?",
+                        "A number line shows a jump from " + decimal(smaller) + " up to " + decimal(larger) + ". How long is the jump?",
+                        decimal(answer),
+                        "Line up the decimal points and subtract: " + decimal(larger) + " - " + decimal(smaller) + " = " + decimal(answer) + ".",
+                        distractors(decimal(rightAligned(larger).subtract(rightAligned(smaller)).abs()), "Lined up the last digits instead of the decimal points",
+                                decimal(larger.add(smaller)), "Added instead of subtracting",
+                                decimal(answer.add(BigDecimal.ONE)), "Forgot to reduce a digit after regrouping"));
+            }
+            default -> {
+                int factor = between(random, 2, 9);
+                BigDecimal answer = first.multiply(BigDecimal.valueOf(factor));
+                yield new Problem(
+                        List.of("Multiply decimals to hundredths", "Solve decimal computation problems"),
+                        "What is " + decimal(first) + " × " + factor + "?",
+                        name + " buys " + factor + " tickets that cost $" + money(first) + " each. What is the total cost?",
+                        "A model shows " + factor + " groups of " + decimal(first) + ". What is the total?",
+                        decimal(answer),
+                        "Multiply as whole numbers, then place the decimal point two places from the right: " + decimal(answer) + ".",
+                        distractors(decimal(answer.movePointRight(1)), "Placed the decimal point one place too far right",
+                                decimal(answer.movePointLeft(1)), "Placed the decimal point one place too far left",
+                                decimal(first.add(BigDecimal.valueOf(factor))), "Added instead of multiplying"));
+            }
+        };
+    }
+
+    private Problem coordinatePoint(Random random, int difficulty) {
+        int x = between(random, 1, difficulty >= 3 ? 15 : 9);
+        int y = between(random, 1, difficulty >= 3 ? 15 : 9);
+        while (y == x) {
+            y = between(random, 1, difficulty >= 3 ? 15 : 9);
+        }
+        String answer = point(x, y);
+        String name = pick(random, NAMES);
+
+        return new Problem(
+                List.of("Plot ordered pairs", "Identify point coordinates"),
+                "A point is " + x + " units to the right of the origin and " + y + " units up. What are its coordinates?",
+                name + " starts at the school at (0, 0), walks " + x + " blocks east and then " + y
+                        + " blocks north. What ordered pair names where " + name + " ends up?",
+                "On a coordinate grid, a dot is plotted " + x + " units across the x-axis and " + y + " units up. What ordered pair names the dot?",
+                answer,
+                "The x-coordinate tells how far right and the y-coordinate tells how far up: " + answer + ".",
+                distractors(point(y, x), "Swapped the x- and y-coordinates",
+                        point(x, x), "Used the horizontal distance for both coordinates",
+                        point(x + y, 0), "Added the two distances together"));
+    }
+
+    private Problem classifyAngle(Random random, int difficulty) {
+        int kind = random.nextInt(4);
+        int measure = switch (kind) {
+            case 0 -> between(random, 10, 85);
+            case 1 -> 90;
+            case 2 -> between(random, 95, 175);
+            default -> 180;
+        };
+        String[] names = ANGLE_KINDS.keySet().toArray(String[]::new);
+
+        Map<String, String> distractors = new LinkedHashMap<>(ANGLE_KINDS);
+        distractors.remove(names[kind]);
+
+        return new Problem(
+                List.of("Classify angles by measure"),
+                "An angle measures " + measure + "°. What kind of angle is it?",
+                "Two streets meet at a " + measure + "° angle. What kind of angle do they form?",
+                "A protractor shows an angle of " + measure + "°. What kind of angle is it?",
+                names[kind],
+                "Acute angles are less than 90°, right angles are exactly 90°, obtuse angles are between 90° and 180°, "
+                        + "and straight angles are exactly 180°, so " + measure + "° is " + names[kind] + ".",
+                distractors);
+    }
+
+    private Problem coordinateDistance(Random random, int difficulty) {
+        int y = between(random, 1, 9);
+        int x1 = between(random, 1, difficulty >= 3 ? 12 : 6);
+        int x2 = x1 + between(random, 2, difficulty >= 3 ? 12 : 6);
+        int answer = x2 - x1;
+
+        return new Problem(
+                List.of("Find distances on coordinate plane"),
+                "How many units apart are the points " + point(x1, y) + " and " + point(x2, y) + "?",
+                "On a town map, the library is at " + point(x1, y) + " and the park is at " + point(x2, y)
+                        + ". How many blocks apart are they?",
+                "Two points are plotted at " + point(x1, y) + " and " + point(x2, y) + " on a grid. How many units apart are they?",
+                units(answer),
+                "The points share a y-coordinate, so subtract the x-coordinates: " + x2 + " - " + x1 + " = " + answer + ".",
+                distractors(units(x1 + x2), "Added the x-coordinates instead of subtracting",
+                        units(answer + 1), "Counted the grid points instead of the spaces between them",
+                        units(y), "Used the y-coordinate as the distance"));
+    }
+
+    private Problem convertUnits(Random random, int difficulty) {
+        String[][] conversions = {
+                {"feet", "inches", "12", "Convert length measurements"},
+                {"yards", "feet", "3", "Convert length measurements"},
+                {"meters", "centimeters", "100", "Convert length measurements"},
+                {"kilograms", "grams", "1000", "Convert weight measurements"},
+                {"liters", "milliliters", "1000", "Convert capacity measurements"},
+                {"gallons", "quarts", "4", "Convert capacity measurements"},
+                {"hours", "minutes", "60", "Convert time measurements"},
+                {"pounds", "ounces", "16", "Convert weight measurements"}
+        };
+        String[] conversion = conversions[random.nextInt(difficulty >= 3 ? conversions.length : 6)];
+        int factor = Integer.parseInt(conversion[2]);
+        int amount = between(random, 2, difficulty >= 3 ? 24 : 9);
+        int answer = amount * factor;
+        int wrongFactor = factor == 100 ? 10 : (factor == 1000 ? 100 : 10);
+
+        return new Problem(
+                List.of(conversion[3]),
+                "How many " + conversion[1] + " are in " + amount + " " + conversion[0] + "?",
+                pick(random, NAMES) + " needs " + amount + " " + conversion[0] + " of supplies for a project. How many "
+                        + conversion[1] + " is that?",
+                "A conversion table shows 1 " + singular(conversion[0]) + " = " + factor + " " + conversion[1]
+                        + ". How many " + conversion[1] + " are in " + amount + " " + conversion[0] + "?",
+                answer + " " + conversion[1],
+                "Each " + singular(conversion[0]) + " is " + factor + " " + conversion[1] + ", so multiply: "
+                        + amount + " × " + factor + " = " + answer + ".",
+                distractors(decimal(BigDecimal.valueOf(amount).divide(BigDecimal.valueOf(factor), 2, RoundingMode.HALF_UP)) + " " + conversion[1],
+                        "Divided instead of multiplying",
+                        (amount * wrongFactor) + " " + conversion[1], "Used the wrong conversion factor",
+                        (amount + factor) + " " + conversion[1], "Added the conversion factor instead of multiplying"));
+    }
+
+    private Problem fractionalArea(Random random, int difficulty) {
+        Fraction length = difficulty >= 3 ? mixedNumber(random) : properFraction(random, difficulty);
+        Fraction width = properFraction(random, difficulty);
+        Fraction answer = length.times(width);
+        Fraction perimeter = length.plus(width).times(Fraction.of(2, 1));
+
+        return new Problem(
+                List.of("Calculate area with fractional lengths", "Multiply fractional side lengths"),
+                "What is the area of a rectangle that is " + length + " units long and " + width + " units wide?",
+                "A garden bed is " + length + " yards long and " + width + " yards wide. What is its area in square yards?",
+                "A rectangle tiled with unit fraction squares has side lengths " + length + " and " + width + ". What is its area?",
+                answer + " square units",
+                "Area is length × width: " + length + " × " + width + " = " + answer + ".",
+                distractors(perimeter + " square units", "Found the perimeter instead of the area",
+                        length.plus(width) + " square units", "Added the side lengths instead of multiplying",
+                        fractionOrNull(length.numerator() * width.numerator(), length.denominator() + width.denominator()) + " square units",
+                        "Multiplied the numerators but added the denominators"));
+    }
+
+    private Problem polygonArea(Random random, int difficulty) {
+        int base = 2 * between(random, 2, difficulty >= 3 ? 15 : 8);
+        int height = between(random, 3, difficulty >= 3 ? 20 : 10);
+
+        return switch (random.nextInt(difficulty >= 3 ? 3 : 2)) {
+            case 0 -> new Problem(
+                    List.of("Apply triangle area formula"),
+                    "What is the area of a triangle with a base of " + base + " cm and a height of " + height + " cm?",
+                    "A triangular sail has a base of " + base + " feet and a height of " + height + " feet. What is its area?",
+                    "A triangle is drawn on a grid with a base of " + base + " units and a height of " + height + " units. What is its area?",
+                    (base * height / 2) + " square units",
+                    "Area of a triangle = ½ × base × height = ½ × " + base + " × " + height + " = " + (base * height / 2) + ".",
+                    distractors((base * height) + " square units", "Forgot to multiply by ½",
+                            (base + height) + " square units", "Added the base and height",
+                            (base * height / 4) + " square units", "Halved the product twice"));
+            case 1 -> new Problem(
+                    List.of("Apply parallelogram area formula"),
+                    "What is the area of a parallelogram with a base of " + base + " m and a height of " + height + " m?",
+                    "A parking space shaped like a parallelogram has a base of " + base + " feet and a height of " + height + " feet. What is its area?",
+                    "A parallelogram on a grid has a base of " + base + " units and a height of " + height + " units. What is its area?",
+                    (base * height) + " square units",
+                    "Area of a parallelogram = base × height = " + base + " × " + height + " = " + (base * height) + ".",
+                    distractors((base * height / 2) + " square units", "Used the triangle formula",
+                            (2 * (base + height)) + " square units", "Found the perimeter of a rectangle instead",
+                            (base + height) + " square units", "Added the base and height"));
+            default -> {
+                int otherBase = base + 2 * between(random, 1, 5);
+                int area = (base + otherBase) * height / 2;
+                yield new Problem(
+                        List.of("Apply trapezoid area formula"),
+                        "What is the area of a trapezoid with bases of " + base + " in and " + otherBase + " in and a height of " + height + " in?",
+                        "A trapezoid-shaped patio has parallel sides of " + base + " feet and " + otherBase + " feet and is "
+                                + height + " feet deep. What is its area?",
+                        "A trapezoid on a grid has bases of " + base + " and " + otherBase + " units and a height of " + height + " units. What is its area?",
+                        area + " square units",
+                        "Area of a trapezoid = ½ × (base₁ + base₂) × height = ½ × " + (base + otherBase) + " × " + height + " = " + area + ".",
+                        distractors(((base + otherBase) * height) + " square units", "Forgot to multiply by ½",
+                                (otherBase * height) + " square units", "Used only the longer base",
+                                (base * otherBase * height / 2) + " square units", "Multiplied the bases instead of adding them"));
+            }
+        };
+    }
+
+    private Problem prismVolume(Random random, int difficulty) {
+        int length = between(random, 2, difficulty >= 3 ? 12 : 6);
+        int width = between(random, 2, difficulty >= 3 ? 10 : 5);
+        int height = between(random, 2, difficulty >= 3 ? 10 : 5);
+        int volume = length * width * height;
+
+        return new Problem(
+                List.of("Calculate volume of rectangular prisms", "Apply volume formulas"),
+                "What is the volume of a rectangular prism that is " + length + " units long, " + width + " units wide and "
+                        + height + " units tall?",
+                "A toy box is " + length + " feet long, " + width + " feet wide and " + height + " feet tall. What is its volume?",
+                "A prism is built from unit cubes: " + length + " cubes long, " + width + " cubes wide and " + height
+                        + " layers tall. How many cubes are used?",
+                volume + " cubic units",
+                "Volume = length × width × height = " + length + " × " + width + " × " + height + " = " + volume + ".",
+                distractors((length * width) + " cubic units", "Counted only the bottom layer",
+                        (length + width + height) + " cubic units", "Added the dimensions",
+                        (2 * (length * width + length * height + width * height)) + " cubic units", "Found the surface area instead of the volume"));
+    }
+
+    private Problem missingDimension(Random random, int difficulty) {
+        int length = between(random, 2, difficulty >= 3 ? 12 : 6);
+        int width = between(random, 2, difficulty >= 3 ? 10 : 5);
+        int height = between(random, 2, difficulty >= 3 ? 12 : 6);
+        int volume = length * width * height;
+
+        return new Problem(
+                List.of("Apply volume formulas to word problems", "Apply volume formulas"),
+                "A rectangular prism has a volume of " + volume + " cubic units, a length of " + length + " units and a width of "
+                        + width + " units. What is its height?",
+                "A fish tank holds " + volume + " cubic feet of water. It is " + length + " feet long and " + width
+                        + " feet wide. How deep is the water?",
+                "A box of unit cubes holds " + volume + " cubes, with " + length + " by " + width + " cubes in each layer. How many layers tall is it?",
+                units(height),
+                "Divide the volume by the base area: " + volume + " ÷ (" + length + " × " + width + ") = " + height + ".",
+                distractors(units(volume / length), "Divided by only one dimension",
+                        units(volume - length * width), "Subtracted the base area instead of dividing",
+                        units(volume), "Gave the volume instead of the height"));
+    }
+
+    private Problem barGraphDifference(Random random, int difficulty) {
+        String[] categories = {"apples", "bananas", "grapes", "oranges"};
+        int scale = difficulty >= 3 ? 5 : 1;
+        int[] counts = new int[categories.length];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = scale * between(random, 2, 15);
+        }
+        int first = random.nextInt(categories.length);
+        int second = (first + 1 + random.nextInt(categories.length - 1)) % categories.length;
+        if (counts[first] == counts[second]) {
+            counts[first] += scale;
+        }
+        if (counts[first] < counts[second]) {
+            int swap = first;
+            first = second;
+            second = swap;
+        }
+        int total = Arrays.stream(counts).sum();
+        StringBuilder graph = new StringBuilder();
+        for (int i = 0; i < categories.length; i++) {
+            graph.append(i > 0 ? ", " : "").append(categories[i]).append(" = ").append(counts[i]);
+        }
+
+        return new Problem(
+                List.of("Answer questions about data", "Interpret data displays"),
+                "A bar graph shows " + graph + ". How many more students chose " + categories[first] + " than "
+                        + categories[second] + "?",
+                "The class voted on a favorite fruit and graphed the results: " + graph + ". How many more votes did "
+                        + categories[first] + " get than " + categories[second] + "?",
+                "A bar graph has bars labeled " + graph + ". How much taller is the " + categories[first] + " bar than the "
+                        + categories[second] + " bar?",
+                String.valueOf(counts[first] - counts[second]),
+                "Subtract the two bars: " + counts[first] + " - " + counts[second] + " = " + (counts[first] - counts[second]) + ".",
+                distractors(String.valueOf(counts[first] + counts[second]), "Added the two bars instead of comparing them",
+                        String.valueOf(counts[first]), "Read only one bar",
+                        String.valueOf(total), "Found the total of all the bars"));
+    }
+
+    private Problem measureOfCenter(Random random, int difficulty) {
+        int size = difficulty >= 3 ? 5 : 4;
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < size - 1; i++) {
+            values.add(between(random, 2, 20));
+        }
+        int partial = values.stream().mapToInt(Integer::intValue).sum();
+        int last = size - (partial % size);
+        last += last < 2 ? size : 0;
+        values.add(last);
+        Collections.shuffle(values, random);
+
+        int sum = values.stream().mapToInt(Integer::intValue).sum();
+        int mean = sum / size;
+        List<Integer> sorted = new ArrayList<>(values);
+        Collections.sort(sorted);
+        BigDecimal median = size % 2 == 1
+                ? BigDecimal.valueOf(sorted.get(size / 2))
+                : BigDecimal.valueOf(sorted.get(size / 2 - 1) + sorted.get(size / 2)).divide(BigDecimal.valueOf(2), 1, RoundingMode.UNNECESSARY);
+        int range = sorted.get(size - 1) - sorted.get(0);
+        String data = values.toString().replace("[", "").replace("]", "");
+
+        return new Problem(
+                List.of("Calculate mean"),
+                "What is the mean of " + data + "?",
+                pick(random, NAMES) + " scored " + data + " points in " + size + " games. What is the mean score?",
+                "A line plot shows the values " + data + ". What is the mean?",
+                String.valueOf(mean),
+                "Add the values (" + sum + ") and divide by how many there are (" + size + "): " + sum + " ÷ " + size + " = " + mean + ".",
+                distractors(decimal(median), "Found the median instead of the mean",
+                        String.valueOf(sum), "Forgot to divide the sum by the number of values",
+                        String.valueOf(range), "Found the range instead of the mean"));
+    }
+
+    private Problem wholeNumberArithmetic(Random random, int difficulty) {
+        int digits = Math.min(4, difficulty + 1);
+        int low = (int) Math.pow(10, digits - 1);
+        int high = (int) Math.pow(10, digits) - 1;
+        int a = between(random, low, high);
+        int b = between(random, low, high);
+        String name = pick(random, NAMES);
+
+        if (random.nextBoolean()) {
+            return new Problem(
+                    List.of("Add whole numbers"),
+                    "What is " + a + " + " + b + "?",
+                    name + " collected " + a + " cans on Monday and " + b + " cans on Tuesday. How many cans is that in all?",
+                    "A number line shows a jump of " + b + " starting at " + a + ". Where does the jump end?",
+                    String.valueOf(a + b),
+                    "Add each place value and regroup: " + a + " + " + b + " = " + (a + b) + ".",
+                    distractors(String.valueOf(addWithoutCarry(a, b)), "Added each place value but forgot to regroup",
+                            String.valueOf(Math.abs(a - b)), "Subtracted instead of adding",
+                            String.valueOf(a + b + 10), "Regrouped into the wrong place value"));
+        }
+
+        int larger = Math.max(a, b);
+        int smaller = Math.min(a, b);
+        return new Problem(
+                List.of("Subtract whole numbers"),
+                "What is " + larger + " - " + smaller + "?",
+                name + " had " + larger + " stickers and gave away " + smaller + ". How many stickers are left?",
+                "A number line shows a jump from " + smaller + " up to " + larger + ". How long is the jump?",
+                String.valueOf(larger - smaller),
+                "Subtract each place value, regrouping where needed: " + larger + " - " + smaller + " = " + (larger - smaller) + ".",
+                distractors(String.valueOf(subtractSmallerDigit(larger, smaller)), "Subtracted the smaller digit from the larger digit in each place",
+                        String.valueOf(larger + smaller), "Added instead of subtracting",
+                        String.valueOf(larger - smaller + 10), "Forgot to reduce the digit after regrouping"));
+    }
+
+    private GeneratedQuestion toQuestion(StandardPromptSpec standard, String type, String subSkill,
+                                         Problem problem, Random random) {
+        Set<String> options = new LinkedHashSet<>();
+        options.add(problem.answer());
+        Map<String, String> misconceptionByOption = new LinkedHashMap<>();
+        problem.distractors().forEach((option, misconception) -> {
+            if (option != null && options.size() < KEYS.length && options.add(option)) {
+                misconceptionByOption.put(option, misconception);
+            }
+        });
+        for (Map.Entry<String, String> filler : nearMisses(problem.answer()).entrySet()) {
+            if (options.size() >= KEYS.length) {
+                break;
+            }
+            if (options.add(filler.getKey())) {
+                misconceptionByOption.put(filler.getKey(), filler.getValue());
+            }
+        }
+
+        String[] choices = options.toArray(String[]::new);
+        for (int i = choices.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            String swap = choices[i];
+            choices[i] = choices[j];
+            choices[j] = swap;
+        }
+
+        String[] misconceptions = new String[choices.length];
+        int correctIndex = -1;
+        for (int i = 0; i < choices.length; i++) {
+            if (choices[i].equals(problem.answer())) {
+                correctIndex = i;
+            } else {
+                misconceptions[i] = misconceptionByOption.get(choices[i]);
+            }
+        }
+
+        String question = switch (type) {
+            case "word_problem" -> problem.story();
+            case "visual" -> problem.model();
+            default -> problem.direct();
+        };
+        return new GeneratedQuestion(standard.code(), question, choices, correctIndex, problem.explanation(),
+                standard.difficulty(), misconceptions, subSkill);
+    }
+
+    /**
+     * Wrong values close to the answer, each with the slip that produces it, used when a template's own distractors
+     * collapse into fewer than three distinct options. Every value is computed from the answer and is never negative.
+     */
+    private Map<String, String> nearMisses(String answer) {
+        Map<String, String> misses = new LinkedHashMap<>();
+        if (ANGLE_KINDS.containsKey(answer)) {
+            ANGLE_KINDS.forEach((kind, mistake) -> {
+                if (!kind.equals(answer)) {
+                    misses.put(kind, mistake);
+                }
+            });
+            return misses;
+        }
+
+        Matcher point = POINT.matcher(answer);
+        if (point.matches()) {
+            int x = Integer.parseInt(point.group(1));
+            int y = Integer.parseInt(point.group(2));
+            misses.put(point(x + 1, y), "Counted one unit too many along the x-axis");
+            misses.put(point(x, y + 1), "Counted one unit too many along the y-axis");
+            if (x > 0) {
+                misses.put(point(x - 1, y), "Counted one unit too few along the x-axis");
+            }
+            if (y > 0) {
+                misses.put(point(x, y - 1), "Counted one unit too few along the y-axis");
+            }
+            return misses;
+        }
+
+        Matcher fraction = FRACTION.matcher(answer);
+        if (fraction.matches()) {
+            long denominator = Long.parseLong(fraction.group(3));
+            long whole = fraction.group(1) != null ? Long.parseLong(fraction.group(1)) : 0;
+            Fraction value = Fraction.of(whole * denominator + Long.parseLong(fraction.group(2)), denominator);
+            for (int offset = 1; misses.size() < KEYS.length; offset++) {
+                Fraction step = Fraction.of(offset, denominator);
+                String counted = offset == 1 ? "one unit fraction" : offset + " unit fractions";
+                misses.put(value.plus(step) + fraction.group(4), "Counted " + counted + " too many");
+                if (value.compareTo(step) > 0) {
+                    misses.put(value.minus(step) + fraction.group(4), "Counted " + counted + " too few");
+                }
+            }
+            return misses;
+        }
+
+        int split = 0;
+        while (split < answer.length() && (Character.isDigit(answer.charAt(split)) || answer.charAt(split) == '.')) {
+            split++;
+        }
+        if (split == 0) {
+            return misses;
+        }
+
+        BigDecimal value = new BigDecimal(answer.substring(0, split));
+        String suffix = answer.substring(split);
+        BigDecimal step = value.scale() > 0 ? BigDecimal.ONE.movePointLeft(value.scale()) : BigDecimal.ONE;
+        for (int offset = 1; misses.size() < KEYS.length; offset++) {
+            BigDecimal delta = step.multiply(BigDecimal.valueOf(offset));
+            misses.put(decimal(value.add(delta)) + suffix, "Counted " + decimal(delta) + " too many in the last step");
+            if (value.compareTo(delta) > 0) {
+                misses.put(decimal(value.subtract(delta)) + suffix, "Counted " + decimal(delta) + " too few in the last step");
+            }
+        }
+        return misses;
+    }
+
+    private List<String> subSkills(StandardPromptSpec standard) {
+        if (standard.subSkills() == null || standard.subSkills().isBlank()) {
+            return List.of();
+        }
+        return Arrays.stream(standard.subSkills().split(",\\s*")).toList();
+    }
+
+    /**
+     * The standard's own entry for the first sub-skill the problem practices, or "general" when the standard lists
+     * none of them.
+     */
+    private static String subSkill(List<String> standardSubSkills, Problem problem) {
+        for (String practiced : problem.subSkills()) {
+            for (String listed : standardSubSkills) {
+                if (listed.equalsIgnoreCase(practiced)) {
+                    return listed;
+                }
+            }
+        }
+        return "general";
+    }
+
+    private Fraction properFraction(Random random, int difficulty) {
+        int denominator = between(random, 2, difficulty >= 3 ? 12 : 8);
+        return Fraction.of(between(random, 1, denominator - 1), denominator);
+    }
+
+    private Fraction mixedNumber(Random random) {
+        int denominator = between(random, 2, 8);
+        return Fraction.of(between(random, 1, 4) * denominator + between(random, 1, denominator - 1), denominator);
+    }
+
+    private static String fractionOrNull(long numerator, long denominator) {
+        return numerator > 0 && denominator > 0 ? Fraction.of(numerator, denominator).toString() : null;
+    }
+
+    private static String decimal(BigDecimal value) {
+        BigDecimal stripped = value.stripTrailingZeros();
+        return (stripped.scale() < 0 ? stripped.setScale(0) : stripped).toPlainString();
+    }
+
+    private static BigDecimal rightAligned(BigDecimal value) {
+        return value.movePointLeft(2 - value.scale());
+    }
+
+    private static String money(BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_UP).toPlainString();
+    }
+
+    private static String point(int x, int y) {
+        return "(" + x + ", " + y + ")";
+    }
+
+    private static String units(int value) {
+        return value + " units";
+    }
+
+    private static String singular(String unit) {
+        return unit.equals("feet") ? "foot" : unit.substring(0, unit.length() - 1);
+    }
+
+    private static List<String> shuffledCopy(Random random, String... values) {
+        List<String> copy = new ArrayList<>(List.of(values));
+        Collections.shuffle(copy, random);
+        return copy;
+    }
+
+    @SafeVarargs
+    private static <T> T pick(Random random, T... values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static int between(Random random, int low, int high) {
+        return low + random.nextInt(high - low + 1);
+    }
+
+    /**
+     * Pairs each candidate option with its misconception, in preference order; null options are skipped.
+     */
+    private static Map<String, String> distractors(String... optionsAndMisconceptions) {
+        Map<String, String> distractors = new LinkedHashMap<>();
+        for (int i = 0; i + 1 < optionsAndMisconceptions.length; i += 2) {
+            if (optionsAndMisconceptions[i] != null) {
+                distractors.putIfAbsent(optionsAndMisconceptions[i], optionsAndMisconceptions[i + 1]);
+            }
+        }
+        return distractors;
+    }
+
+    private static int addWithoutCarry(int a, int b) {
+        int result = 0;
+        int place = 1;
+        while (a > 0 || b > 0) {
+            result += ((a % 10 + b % 10) % 10) * place;
+            a /= 10;
+            b /= 10;
+            place *= 10;
+        }
+        return result;
+    }
+
+    private static int subtractSmallerDigit(int larger, int smaller) {
+        int result = 0;
+        int place = 1;
+        while (larger > 0 || smaller > 0) {
+            result += Math.abs(larger % 10 - smaller % 10) * place;
+            larger /= 10;
+            smaller /= 10;
+            place *= 10;
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    private interface ItemTemplate {
+        Problem create(Random random, int difficulty);
+    }
+
+    /**
+     * One generated item. subSkills names what the item practices in preference order, worded as the standards file
+     * words its sub-skills.
+     */
+    private record Problem(List<String> subSkills, String direct, String story, String model, String answer,
+                           String explanation, Map<String, String> distractors) {
+    }
+
+    private record Fraction(long numerator, long denominator) implements Comparable<Fraction> {
+
+        static Fraction of(long numerator, long denominator) {
+            long divisor = gcd(Math.abs(numerator), Math.abs(denominator));
+            long sign = denominator < 0 ? -1 : 1;
+            return new Fraction(sign * numerator / divisor, sign * denominator / divisor);
+        }
+
+        Fraction plus(Fraction other) {
+            return of(numerator * other.denominator + other.numerator * denominator, denominator * other.denominator);
+        }
+
+        Fraction minus(Fraction other) {
+            return of(numerator * other.denominator - other.numerator * denominator, denominator * other.denominator);
+        }
+
+        Fraction times(Fraction other) {
+            return of(numerator * other.numerator, denominator * other.denominator);
+        }
+
+        Fraction abs() {
+            return numerator < 0 ? new Fraction(-numerator, denominator) : this;
+        }
+
+        Fraction dividedBy(Fraction other) {
+            return of(numerator * other.denominator, denominator * other.numerator);
+        }
+
+        long commonDenominator(Fraction other) {
+            return denominator / gcd(denominator, other.denominator) * other.denominator;
+        }
+
+        @Override
+        public int compareTo(Fraction other) {
+            return Long.compare(numerator * other.denominator, other.numerator * denominator);
+        }
+
+        @Override
+        public String toString() {
+            if (denominator == 1) {
+                return String.valueOf(numerator);
+            }
+            if (Math.abs(numerator) > denominator) {
+                return (numerator / denominator) + " " + Math.abs(numerator % denominator) + "/" + denominator;
+            }
+            return numerator + "/" + denominator;
+        }
+
+        private static long gcd(long a, long b) {
+            return b == 0 ? Math.max(a, 1) : gcd(b, a % b);
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package com.quizgenerator.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.quizgenerator.dto.QuizGenerationRequest;
 import com.quizgenerator.dto.QuizResponse;
 import com.quizgenerator.dto.TargetedQuizRequest;
@@ -16,28 +14,80 @@ import com.quizgenerator.repository.StudentRepository;
 import com.quizgenerator.repository.StandardPerformanceRepository;
 import com.quizgenerator.repository.QuizSessionRepository;
 import com.quizgenerator.repository.QuestionRepository;
+import com.quizgenerator.service.LlmCallScheduler.CallContext;
+import com.quizgenerator.service.LlmCallScheduler.Priority;
+import com.quizgenerator.service.QuestionDedupIndex.Admission;
+import com.quizgenerator.service.QuestionGenerator.StandardPromptSpec;
+import com.quizgenerator.service.QuestionInventoryService.BucketKey;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
 @Slf4j
 public class QuizService {
     
+    private static final int FALLBACK_ATTEMPTS = 3;
+    
     private final QuestionRepository questionRepository;
     private final StandardsService standardsService;
-    private final ClaudeApiService claudeApiService;
+    private final QuestionGenerator questionGenerator;
     private final StudentRepository studentRepository;
     private final StandardPerformanceRepository standardPerformanceRepository;
     private final QuizSessionRepository quizSessionRepository;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final QuestionInventoryService questionInventoryService;
+    private final InFlightRequestCoalescer inFlightRequestCoalescer;
+    private final QuestionTemplateEngine questionTemplateEngine;
+    private final QuestionDedupIndex questionDedupIndex;
+    private final QuestionSelectionService questionSelectionService;
+    private final GradingCache gradingCache;
+    @Qualifier("questionGenerationExecutor")
+    private final ExecutorService questionGenerationExecutor;
+    @Qualifier("questionStreamExecutor")
+    private final ExecutorService questionStreamExecutor;
+    private final QuestionPayloadCodec payloadCodec = new QuestionPayloadCodec();
+    
+    @Value("${app.generation.timeout-ms:45000}")
+    private long generationTimeoutMs;
+    
+    @Value("${app.generation.chunk-size:5}")
+    private int generationChunkSize;
+    
+    @Value("${app.generation.batch-targeted:true}")
+    private boolean batchTargetedGeneration;
+    
+    @Value("${app.generation.template.enabled:true}")
+    private boolean templateGenerationEnabled;
+    
+    @Value("${app.generation.template.max-difficulty:2}")
+    private int templateMaxDifficulty;
+    
+    @Value("${app.selection.difficulty-spread:0}")
+    private int selectionDifficultySpread;
     
     public QuizResponse generateQuiz(QuizGenerationRequest request) {
+        return await(generateQuizAsync(request));
+    }
+    
+    public CompletableFuture<QuizResponse> generateQuizAsync(QuizGenerationRequest request) {
         Optional<Standard> standardOpt = standardsService.getStandardByCode(request.getStandardCode());
         if (standardOpt.isEmpty()) {
             throw new RuntimeException("Standard not found: " + request.getStandardCode());
@@ -45,120 +95,568 @@ public class QuizService {
         
         Standard standard = standardOpt.get();
         
-        List<Question> questions = generateQuestions(standard, request.getQuestionCount(), request.getDifficulty());
+        CallContext context = CallContext.interactive(ClaudeApiService.GENERATE_QUESTIONS_SITE, request.getStudentId(), standard.getCode());
+        return generateQuestions(standard, request.getQuestionCount(), request.getDifficulty(), context)
+            .thenApply(questions -> {
+                markServed(context, questions);
+                QuizResponse response = new QuizResponse();
+                response.setId(UUID.randomUUID().toString());
+                response.setStandardCode(standard.getCode());
+                response.setStandardTitle(standard.getTitle());
+                response.setQuestions(questions);
+                response.setDifficulty(request.getDifficulty());
+                response.setAdaptiveMode(request.getStudentId() != null);
+                return response;
+            });
+    }
+    
+    public CompletableFuture<QuizResponse> streamQuiz(QuizGenerationRequest request, Consumer<Question> onQuestion) {
+        Optional<Standard> standardOpt = standardsService.getStandardByCode(request.getStandardCode());
+        if (standardOpt.isEmpty()) {
+            throw new RuntimeException("Standard not found: " + request.getStandardCode());
+        }
         
-        QuizResponse response = new QuizResponse();
-        response.setId(UUID.randomUUID().toString());
-        response.setStandardCode(standard.getCode());
-        response.setStandardTitle(standard.getTitle());
-        response.setQuestions(questions);
-        response.setDifficulty(request.getDifficulty());
-        response.setAdaptiveMode(request.getStudentId() != null);
+        Standard standard = standardOpt.get();
+        int difficulty = request.getDifficulty();
+        CallContext context = CallContext.interactive(ClaudeApiService.GENERATE_QUESTIONS_SITE, request.getStudentId(), standard.getCode());
+        Consumer<Question> deliver = question -> {
+            synchronized (onQuestion) {
+                onQuestion.accept(question);
+            }
+        };
         
-        return response;
+        List<String> questionTypes = Arrays.asList("word_problem", "direct_computation", "visual");
+        Map<String, Integer> typeDistribution = distributeQuestionTypes(questionTypes, request.getQuestionCount());
+        
+        List<CompletableFuture<List<Question>>> streams = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : typeDistribution.entrySet()) {
+            if (entry.getValue() > 0) {
+                streams.add(streamType(standard, entry.getKey(), entry.getValue(), difficulty, context, deliver));
+            }
+        }
+        
+        return CompletableFuture.allOf(streams.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            List<Question> questions = new ArrayList<>();
+            streams.forEach(stream -> questions.addAll(stream.join()));
+            markServed(context, questions);
+            
+            QuizResponse response = new QuizResponse();
+            response.setId(UUID.randomUUID().toString());
+            response.setStandardCode(standard.getCode());
+            response.setStandardTitle(standard.getTitle());
+            response.setQuestions(questions);
+            response.setDifficulty(difficulty);
+            response.setAdaptiveMode(request.getStudentId() != null);
+            return response;
+        });
     }
     
-    private List<Question> generateQuestions(Standard standard, int questionCount, int difficulty) {
-        List<Question> questions = new ArrayList<>();
+    /**
+     * Streams one question type on the stream executor under the generation deadline. Whatever was delivered when the
+     * stream finishes, fails, misses the deadline or is rejected by a full executor is topped up with fallback
+     * questions; a stream still running after its deadline is cut off at its next chunk.
+     */
+    private CompletableFuture<List<Question>> streamType(Standard standard, String type, int count, int difficulty,
+                                                         CallContext context, Consumer<Question> onQuestion) {
+        TypeStream stream = new TypeStream(count, onQuestion);
+        try {
+            return CompletableFuture.runAsync(
+                    () -> streamQuestionsByType(standard, type, difficulty, context, stream, true),
+                    questionStreamExecutor)
+                .orTimeout(generationTimeoutMs, TimeUnit.MILLISECONDS)
+                .handle((ignored, error) -> {
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                        if (cause instanceof TimeoutException) {
+                            log.warn("Question stream for {} type {} missed the {}ms deadline with {} of {} questions",
+                                    standard.getCode(), type, generationTimeoutMs, stream.size(), count);
+                        } else {
+                            log.error("Question stream for {} type {} failed after {} of {} questions: {}",
+                                    standard.getCode(), type, stream.size(), count, cause.getMessage());
+                        }
+                    }
+                    return finishStream(standard, type, difficulty, context, stream);
+                });
+        } catch (RejectedExecutionException e) {
+            log.warn("Question stream executor is saturated; serving {} {} questions for {} without streaming",
+                    count, type, standard.getCode());
+            streamQuestionsByType(standard, type, difficulty, context, stream, false);
+            return CompletableFuture.completedFuture(finishStream(standard, type, difficulty, context, stream));
+        }
+    }
+    
+    private void streamQuestionsByType(Standard standard, String type, int difficulty, CallContext context,
+                                       TypeStream stream, boolean live) {
+        takeFromBank(standard, type, stream.remaining(), difficulty, context).forEach(stream::offer);
+        if (stream.remaining() <= 0 || !live) {
+            return;
+        }
+        
+        if (servedFromTemplates(standard, type, difficulty)) {
+            generateTemplateQuestions(standard, type, stream.remaining(), difficulty, null, studentId(context))
+                .forEach(stream::offer);
+            return;
+        }
+        
+        StreamingQuestionParser parser = new StreamingQuestionParser();
+        
+        try {
+            questionGenerator.generateQuestionsStreaming(
+                promptSpec(standard, stream.remaining(), difficulty),
+                type,
+                context,
+                text -> {
+                    if (stream.isClosed()) {
+                        throw new CancellationException("Question stream closed");
+                    }
+                    for (String questionJson : parser.feed(text)) {
+                        if (stream.remaining() <= 0) {
+                            return;
+                        }
+                        saveUnique(List.of(mapToQuestion(readQuestion(questionJson), standard.getCode(), type)), studentId(context))
+                            .forEach(stream::offer);
+                    }
+                }
+            );
+        } catch (Exception e) {
+            if (!stream.isClosed()) {
+                log.error("Question stream for {} type {} broke after {} questions: {}",
+                        standard.getCode(), type, stream.size(), e.getMessage());
+            }
+        }
+    }
+    
+    private List<Question> finishStream(Standard standard, String type, int difficulty, CallContext context,
+                                        TypeStream stream) {
+        List<Question> delivered = stream.close();
+        int missing = stream.count - delivered.size();
+        if (missing <= 0) {
+            return delivered;
+        }
+        List<Question> questions = new ArrayList<>(delivered);
+        Set<Long> servedIds = delivered.stream().map(Question::getId).collect(Collectors.toCollection(HashSet::new));
+        for (Question question : topUpWithFallback(standard, type, missing, difficulty, studentId(context), servedIds)) {
+            questions.add(question);
+            stream.onQuestion.accept(question);
+        }
+        return questions;
+    }
+    
+    /**
+     * Questions delivered for one streamed type. Once closed, late questions from a stream that outlived its deadline
+     * are dropped instead of reaching the client.
+     */
+    private static final class TypeStream {
+        private final int count;
+        private final Consumer<Question> onQuestion;
+        private final List<Question> delivered = new ArrayList<>();
+        private final Set<Long> deliveredIds = new HashSet<>();
+        private boolean closed;
+        
+        private TypeStream(int count, Consumer<Question> onQuestion) {
+            this.count = count;
+            this.onQuestion = onQuestion;
+        }
+        
+        synchronized void offer(Question question) {
+            if (!closed && delivered.size() < count && deliveredIds.add(question.getId())) {
+                delivered.add(question);
+                onQuestion.accept(question);
+            }
+        }
         
+        synchronized int remaining() {
+            return count - delivered.size();
+        }
+        
+        synchronized int size() {
+            return delivered.size();
+        }
+        
+        synchronized boolean isClosed() {
+            return closed;
+        }
+        
+        synchronized List<Question> close() {
+            closed = true;
+            return List.copyOf(delivered);
+        }
+    }
+    
+    private GeneratedQuestion readQuestion(String questionJson) {
+        try {
+            return payloadCodec.readQuestion(questionJson);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private CompletableFuture<List<Question>> generateQuestions(Standard standard, int questionCount, int difficulty,
+                                                               CallContext context) {
         List<String> questionTypes = Arrays.asList("word_problem", "direct_computation", "visual");
         Map<String, Integer> typeDistribution = distributeQuestionTypes(questionTypes, questionCount);
         
+        List<GenerationChunk> chunks = new ArrayList<>();
         for (Map.Entry<String, Integer> entry : typeDistribution.entrySet()) {
             String type = entry.getKey();
-            int count = entry.getValue();
-            
-            try {
-                List<Question> typeQuestions = generateQuestionsByType(standard, type, count, difficulty);
-                questions.addAll(typeQuestions);
-            } catch (Exception e) {
-                log.error("Failed to generate {} questions for type {}: {}", count, type, e.getMessage());
-                questions.addAll(generateFallbackQuestions(standard, type, count, difficulty));
+            chunks.addAll(planChunks(standard, type, entry.getValue(), difficulty, null, context));
+        }
+        
+        return collectChunks(chunks, context);
+    }
+    
+    private List<GenerationChunk> planChunks(Standard standard, String type, int count, int difficulty, String focusArea,
+                                             CallContext context) {
+        List<GenerationChunk> chunks = new ArrayList<>();
+        int remaining = count;
+        if (focusArea == null) {
+            List<Question> banked = takeFromBank(standard, type, count, difficulty, context);
+            if (!banked.isEmpty()) {
+                chunks.add(new GenerationChunk(standard, type, banked.size(), difficulty,
+                        CompletableFuture.completedFuture(banked)));
+                remaining -= banked.size();
             }
         }
+        remaining = takeFromTemplates(standard, type, remaining, difficulty, focusArea, context, chunks);
+        remaining = takeFromInventory(standard, type, remaining, difficulty, focusArea, context, chunks);
+        chunks.addAll(planLiveChunks(standard, type, remaining, difficulty, focusArea, context));
+        return chunks;
+    }
+    
+    private List<GenerationChunk> planLiveChunks(Standard standard, String type, int count, int difficulty, String focusArea,
+                                                 CallContext context) {
+        List<GenerationChunk> chunks = new ArrayList<>();
+        int remaining = count;
+        
+        while (remaining > 0) {
+            int chunkCount = Math.min(remaining, generationChunkSize);
+            chunks.add(new GenerationChunk(standard, chunkType(type, focusArea), chunkCount, difficulty,
+                    generateQuestionsByType(standard, type, chunkCount, difficulty, focusArea, context)));
+            remaining -= chunkCount;
+        }
         
-        Collections.shuffle(questions);
-        return questions;
+        return chunks;
+    }
+    
+    private List<Question> takeFromBank(Standard standard, String type, int count, int difficulty, CallContext context) {
+        List<Long> ids = questionSelectionService.select(studentId(context), standard.getCode(),
+                difficulty - selectionDifficultySpread, difficulty + selectionDifficultySpread, type, count);
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        List<Question> banked = questionRepository.findAllById(ids);
+        gradingCache.putAll(banked);
+        return banked;
+    }
+    
+    private void markServed(CallContext context, List<Question> questions) {
+        String studentId = studentId(context);
+        if (studentId != null) {
+            questions.forEach(question -> questionSelectionService.markSeen(studentId, question.getId()));
+        }
     }
     
-    private List<Question> generateQuestionsByType(Standard standard, String type, int count, int difficulty) throws IOException {
+    private String studentId(CallContext context) {
+        String tenant = context.tenant();
+        return CallContext.ANONYMOUS_TENANT.equals(tenant) || CallContext.SYSTEM_TENANT.equals(tenant) ? null : tenant;
+    }
+    
+    private int takeFromTemplates(Standard standard, String type, int count, int difficulty, String focusArea,
+                                  CallContext context, List<GenerationChunk> chunks) {
+        if (count <= 0 || !servedFromTemplates(standard, type, difficulty)) {
+            return count;
+        }
+        chunks.add(new GenerationChunk(standard, chunkType(type, focusArea), count, difficulty,
+                CompletableFuture.completedFuture(
+                        generateTemplateQuestions(standard, type, count, difficulty, focusArea, studentId(context)))));
+        return 0;
+    }
+    
+    private boolean servedFromTemplates(Standard standard, String type, int difficulty) {
+        return templateGenerationEnabled
+                && "direct_computation".equals(type)
+                && difficulty <= templateMaxDifficulty
+                && questionTemplateEngine.supports(standard.getCode());
+    }
+    
+    private List<Question> generateTemplateQuestions(Standard standard, String type, int count, int difficulty, String focusArea,
+                                                     String studentId) {
+        List<Question> questions = new ArrayList<>();
+        for (GeneratedQuestion generated : questionTemplateEngine.generate(
+                promptSpec(standard, count, difficulty), type, ThreadLocalRandom.current().nextLong())) {
+            questions.add(toGeneratedQuestion(generated, standard.getCode(), type, focusArea));
+        }
+        return saveUnique(questions, studentId);
+    }
+    
+    /**
+     * Takes stocked questions for the chunk. Refills can merge into stored questions, so stock the student has already
+     * seen is dropped rather than served again.
+     */
+    private int takeFromInventory(Standard standard, String type, int count, int difficulty, String focusArea,
+                                  CallContext context, List<GenerationChunk> chunks) {
+        if (count <= 0) {
+            return count;
+        }
+        String studentId = studentId(context);
+        List<Question> stocked = questionInventoryService.take(
+                new BucketKey(standard.getCode(), difficulty, type, focusArea), count).stream()
+                .filter(question -> !questionSelectionService.hasSeen(studentId, question.getId()))
+                .toList();
+        if (!stocked.isEmpty()) {
+            chunks.add(new GenerationChunk(standard, chunkType(type, focusArea), stocked.size(), difficulty,
+                    CompletableFuture.completedFuture(stocked)));
+        }
+        return count - stocked.size();
+    }
+    
+    private String chunkType(String type, String focusArea) {
+        return focusArea != null ? "targeted" : type;
+    }
+    
+    public CompletableFuture<List<Question>> generateForInventory(BucketKey key, int count) {
+        Standard standard = standardsService.getStandardByCode(key.standardCode())
+                .orElseThrow(() -> new RuntimeException("Standard not found: " + key.standardCode()));
+        CallContext context = CallContext.background(ClaudeApiService.GENERATE_QUESTIONS_SITE, standard.getCode());
+        return generateQuestionsByType(standard, key.type(), count, key.difficulty(), key.focusArea(), context);
+    }
+    
+    private CompletableFuture<List<Question>> generateQuestionsByType(Standard standard, String type, int count,
+                                                                      int difficulty, String focusArea, CallContext context) {
+        GenerationKey generationKey = new GenerationKey(standard.getCode(), type, count, difficulty, context.priority());
+        
+        CompletableFuture<String> upstream = inFlightRequestCoalescer.execute(generationKey,
+            () -> questionGenerator.generateQuestionsAsync(promptSpec(standard, count, difficulty), type, context));
+        return withDeadline(upstream, upstream.thenApplyAsync(
+            claudeResponse -> saveGeneratedQuestions(claudeResponse, standard.getCode(), type, focusArea, context),
+            questionGenerationExecutor));
+    }
+    
+    /**
+     * Bounds a chunk by the generation deadline. If the chunk misses it or its save step is rejected by the executor,
+     * the upstream call is cancelled too, so its scheduler ticket and HTTP slot are freed instead of held until the
+     * response arrives.
+     */
+    private <T> CompletableFuture<T> withDeadline(CompletableFuture<?> upstream, CompletableFuture<T> chunk) {
+        chunk.orTimeout(generationTimeoutMs, TimeUnit.MILLISECONDS).whenComplete((result, error) -> {
+            if (error != null) {
+                upstream.cancel(true);
+            }
+        });
+        return chunk;
+    }
+    
+    private StandardPromptSpec promptSpec(Standard standard, int count, int difficulty) {
         String subSkills = standard.getSubSkills() != null ? String.join(", ", standard.getSubSkills()) : "";
-        
-        String claudeResponse = claudeApiService.generateQuestions(
-            standard.getCode(),
-            standard.getTitle(),
-            standard.getDescription(),
-            subSkills,
-            type,
-            count,
-            difficulty
-        );
-        
-        Map<String, Object> responseMap = objectMapper.readValue(claudeResponse, new TypeReference<Map<String, Object>>() {});
-        List<Map<String, Object>> questionsData = (List<Map<String, Object>>) responseMap.get("questions");
-        
+        return new StandardPromptSpec(standard.getCode(), standard.getTitle(), standard.getDescription(), subSkills,
+                count, difficulty);
+    }
+    
+    /**
+     * Saves a generated batch. Inventory refills run in the background and keep only new questions, so stock never
+     * holds a stored question that was already served.
+     */
+    private List<Question> saveGeneratedQuestions(String claudeResponse, String standardCode, String type, String focusArea,
+                                                  CallContext context) {
         List<Question> questions = new ArrayList<>();
-        for (Map<String, Object> questionData : questionsData) {
-            Question question = mapToQuestion(questionData, standard.getCode(), type);
-            questionRepository.save(question);
-            questions.add(question);
+        for (GeneratedQuestion generated : readQuestions(claudeResponse)) {
+            questions.add(toGeneratedQuestion(generated, standardCode, type, focusArea));
         }
         
-        return questions;
+        return saveUnique(questions, studentId(context), context.priority() == Priority.INTERACTIVE);
     }
     
-    private Question mapToQuestion(Map<String, Object> questionData, String standardCode, String type) {
-        Question question = new Question();
-        question.setQuestion((String) questionData.get("question"));
+    private List<Question> saveUnique(List<Question> questions, String studentId) {
+        return saveUnique(questions, studentId, true);
+    }
+    
+    /**
+     * Saves the questions that are not near-duplicates. If serveDuplicates is set, a duplicate of a stored question is
+     * served as that question when it has the same type and targeting and the student has not seen it; any other
+     * duplicate is dropped and the caller tops up the shortfall.
+     */
+    private List<Question> saveUnique(List<Question> questions, String studentId, boolean serveDuplicates) {
+        List<Question> unique = new ArrayList<>();
+        Map<Long, Question> mergedInto = new LinkedHashMap<>();
+        for (Question question : questions) {
+            Admission admission = questionDedupIndex.admit(question);
+            if (!admission.duplicate()) {
+                unique.add(question);
+            } else if (admission.existingId() != null) {
+                mergedInto.putIfAbsent(admission.existingId(), question);
+            }
+        }
         
-        Map<String, String> originalChoices = (Map<String, String>) questionData.get("choices");
-        String originalCorrectKey = (String) questionData.get("correctAnswer");
-        String correctAnswerText = originalChoices.get(originalCorrectKey);
+        try {
+            questionRepository.saveAll(unique);
+        } catch (RuntimeException e) {
+            questionDedupIndex.discard(unique);
+            throw e;
+        }
+        questionDedupIndex.confirm(unique);
+        questionSelectionService.register(unique);
+        gradingCache.putAll(unique);
         
-        List<String> answerTexts = new ArrayList<>(originalChoices.values());
-        Collections.shuffle(answerTexts);
+        if (mergedInto.isEmpty() || !serveDuplicates) {
+            return unique;
+        }
+        List<Question> merged = questionRepository.findAllById(mergedInto.keySet()).stream()
+                .filter(stored -> servableAs(stored, mergedInto.get(stored.getId()), studentId))
+                .toList();
+        if (merged.size() < mergedInto.size()) {
+            log.debug("Dropped {} near-duplicates whose stored question cannot be served in their place",
+                    mergedInto.size() - merged.size());
+        }
+        gradingCache.putAll(merged);
+        List<Question> saved = new ArrayList<>(unique);
+        saved.addAll(merged);
+        return saved;
+    }
+    
+    private boolean servableAs(Question stored, Question duplicate, String studentId) {
+        return Objects.equals(stored.getType(), duplicate.getType())
+                && Boolean.TRUE.equals(stored.getIsTargeted()) == Boolean.TRUE.equals(duplicate.getIsTargeted())
+                && Objects.equals(stored.getFocusArea(), duplicate.getFocusArea())
+                && !questionSelectionService.hasSeen(studentId, stored.getId());
+    }
+    
+    private Question toGeneratedQuestion(GeneratedQuestion generated, String standardCode, String type, String focusArea) {
+        Question question = mapToQuestion(generated, standardCode, type);
+        if (focusArea != null) {
+            question.setIsTargeted(true);
+            question.setFocusArea(focusArea);
+        }
+        return question;
+    }
+    
+    private List<GeneratedQuestion> readQuestions(String claudeResponse) {
+        try {
+            return payloadCodec.readQuestions(claudeResponse);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private CompletableFuture<List<Question>> collectChunks(List<GenerationChunk> chunks, CallContext context) {
+        CompletableFuture<?>[] futures = chunks.stream()
+                .map(GenerationChunk::future)
+                .toArray(CompletableFuture[]::new);
+        String studentId = studentId(context);
+        
+        // assembled on whichever thread completes the last chunk, so a saturated executor cannot fail the whole quiz
+        return CompletableFuture.allOf(futures).handle((ignored, error) -> {
+            List<Question> questions = new ArrayList<>();
+            Set<Long> servedIds = new HashSet<>();
+            
+            for (GenerationChunk chunk : chunks) {
+                int served = 0;
+                try {
+                    for (Question question : chunk.future().join()) {
+                        if (served < chunk.count() && servedIds.add(question.getId())) {
+                            questions.add(question);
+                            served++;
+                        }
+                    }
+                    if (served < chunk.count()) {
+                        log.warn("Generation returned {} of {} {} questions for {}",
+                                served, chunk.count(), chunk.type(), chunk.standard().getCode());
+                    }
+                } catch (CompletionException | CancellationException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    if (cause instanceof TimeoutException) {
+                        log.warn("Generation of {} {} questions for {} missed the {}ms deadline",
+                                chunk.count(), chunk.type(), chunk.standard().getCode(), generationTimeoutMs);
+                    } else if (cause instanceof RejectedExecutionException) {
+                        log.warn("Generation executor is saturated; serving {} fallback {} questions for {}",
+                                chunk.count(), chunk.type(), chunk.standard().getCode());
+                    } else {
+                        log.error("Failed to generate {} questions for type {}: {}", chunk.count(), chunk.type(), cause.getMessage());
+                    }
+                }
+                if (served < chunk.count()) {
+                    questions.addAll(topUpWithFallback(chunk.standard(), chunk.type(), chunk.count() - served,
+                            chunk.difficulty(), studentId, servedIds));
+                }
+            }
+            
+            Collections.shuffle(questions);
+            return questions;
+        });
+    }
+    
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+    
+    private record GenerationKey(String standardCode, String type, int count, int difficulty, Priority priority) {
+    }
+    
+    private record PlannedStandard(Standard standard, int count, int difficulty) {
+    }
+    
+    private record BatchGenerationKey(List<StandardPromptSpec> standards, String type) {
+    }
+    
+    private record GenerationChunk(Standard standard, String type, int count, int difficulty,
+                                   CompletableFuture<List<Question>> future) {
+    }
+    
+    private Question mapToQuestion(GeneratedQuestion generated, String standardCode, String type) {
+        Question question = new Question();
+        question.setQuestion(generated.question());
         
+        int[] order = shuffledOrder(generated.choices().length);
+        String[] misconceptions = generated.misconceptions();
         Map<String, String> shuffledChoices = new LinkedHashMap<>();
+        Map<String, String> shuffledMisconceptions = misconceptions != null ? new HashMap<>() : null;
         String newCorrectKey = null;
-        String[] keys = {"A", "B", "C", "D"};
         
-        for (int i = 0; i < answerTexts.size() && i < keys.length; i++) {
-            String answerText = answerTexts.get(i);
-            shuffledChoices.put(keys[i], answerText);
-            
-            if (answerText.equals(correctAnswerText)) {
-                newCorrectKey = keys[i];
+        for (int i = 0; i < order.length; i++) {
+            String key = GeneratedQuestion.KEYS[i];
+            int source = order[i];
+            shuffledChoices.put(key, generated.choices()[source]);
+            if (source == generated.correctIndex()) {
+                newCorrectKey = key;
+            }
+            if (misconceptions != null && misconceptions[source] != null) {
+                shuffledMisconceptions.put(key, misconceptions[source]);
             }
         }
         
         question.setChoices(shuffledChoices);
         question.setCorrectAnswer(newCorrectKey);
-        question.setExplanation((String) questionData.get("explanation"));
-        question.setDifficulty((Integer) questionData.get("difficulty"));
-        question.setSubSkill((String) questionData.get("subSkill"));
+        question.setExplanation(generated.explanation());
+        question.setDifficulty(generated.difficulty());
+        question.setSubSkill(generated.subSkill());
         question.setStandardCode(standardCode);
         question.setType(type);
-        
-        Map<String, String> originalMisconceptions = (Map<String, String>) questionData.get("misconceptions");
-        if (originalMisconceptions != null) {
-            Map<String, String> shuffledMisconceptions = new HashMap<>();
-            for (Map.Entry<String, String> entry : shuffledChoices.entrySet()) {
-                String key = entry.getKey();
-                String answerText = entry.getValue();
-                
-                for (Map.Entry<String, String> origEntry : originalChoices.entrySet()) {
-                    if (origEntry.getValue().equals(answerText) && originalMisconceptions.containsKey(origEntry.getKey())) {
-                        shuffledMisconceptions.put(key, originalMisconceptions.get(origEntry.getKey()));
-                        break;
-                    }
-                }
-            }
-            question.setMisconceptions(shuffledMisconceptions);
-        }
+        question.setMisconceptions(shuffledMisconceptions);
         
         return question;
     }
     
+    private int[] shuffledOrder(int size) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+        return order;
+    }
+    
     private Map<String, Integer> distributeQuestionTypes(List<String> types, int totalCount) {
         Map<String, Integer> distribution = new HashMap<>();
         int baseCount = totalCount / types.size();
@@ -172,80 +670,75 @@ public class QuizService {
         return distribution;
     }
     
-    private List<Question> generateFallbackQuestions(Standard standard, String type, int count, int difficulty) {
+    private List<Question> generateFallbackQuestions(Standard standard, String type, int count, int difficulty,
+                                                     String studentId) {
         List<Question> fallbackQuestions = new ArrayList<>();
-        Random random = new Random();
         
-        for (int i = 0; i < count; i++) {
-            Question question = new Question();
-            question.setQuestion(String.format("Sample %s question for %s", type, standard.getTitle()));
-            
-            List<String> answerTexts = Arrays.asList(
-                "Sample choice A",
-                "Sample choice B", 
-                "Sample choice C",
-                "Sample choice D"
-            );
-            
-            Collections.shuffle(answerTexts);
-            
-            Map<String, String> choices = new LinkedHashMap<>();
-            String[] keys = {"A", "B", "C", "D"};
-            for (int j = 0; j < keys.length; j++) {
-                choices.put(keys[j], answerTexts.get(j));
-            }
-            
-            String correctKey = keys[random.nextInt(keys.length)];
-            
-            question.setChoices(choices);
-            question.setCorrectAnswer(correctKey);
-            question.setExplanation("This is a fallback question generated when API call fails. The correct answer is " + correctKey + ": " + choices.get(correctKey));
-            question.setDifficulty(difficulty);
-            question.setSubSkill(standard.getSubSkills() != null && !standard.getSubSkills().isEmpty() 
-                ? standard.getSubSkills().get(0) : "general");
-            question.setStandardCode(standard.getCode());
-            question.setType(type);
+        for (GeneratedQuestion generated : questionTemplateEngine.generate(
+                promptSpec(standard, count, difficulty), type, ThreadLocalRandom.current().nextLong())) {
+            Question question = mapToQuestion(generated, standard.getCode(), type);
             question.setIsFallback(true);
-            
-            questionRepository.save(question);
             fallbackQuestions.add(question);
         }
         
-        return fallbackQuestions;
+        return saveUnique(fallbackQuestions, studentId);
+    }
+    
+    /**
+     * Fallback questions whose ids are not in {@code servedIds}, drawing again when templates repeat a question that
+     * was already served. Adds the returned ids to {@code servedIds}.
+     */
+    private List<Question> topUpWithFallback(Standard standard, String type, int count, int difficulty, String studentId,
+                                             Set<Long> servedIds) {
+        List<Question> questions = new ArrayList<>();
+        for (int attempt = 0; attempt < FALLBACK_ATTEMPTS && questions.size() < count; attempt++) {
+            for (Question question : generateFallbackQuestions(standard, type, count - questions.size(), difficulty, studentId)) {
+                if (questions.size() < count && servedIds.add(question.getId())) {
+                    questions.add(question);
+                }
+            }
+        }
+        if (questions.size() < count) {
+            log.warn("Served {} of {} fallback {} questions for {}", questions.size(), count, type, standard.getCode());
+        }
+        return questions;
     }
     
     public Optional<Question> getQuestionById(Long questionId) {
         return questionRepository.findById(questionId);
     }
     
-    public List<Question> getQuestionsByStandard(String standardCode) {
-        return questionRepository.findByStandardCode(standardCode);
+    public TargetedQuizResponse generateTargetedQuiz(TargetedQuizRequest request) {
+        return await(generateTargetedQuizAsync(request));
     }
     
-    public TargetedQuizResponse generateTargetedQuiz(TargetedQuizRequest request) {
+    public CompletableFuture<TargetedQuizResponse> generateTargetedQuizAsync(TargetedQuizRequest request) {
         if (!studentRepository.existsById(request.getStudentId())) {
             throw new StudentNotFoundException("Student not found: " + request.getStudentId());
         }
         
-        List<Standard> targetedStandards = new ArrayList<>();
-        Map<String, StandardPerformance> performanceMap = new HashMap<>();
+        List<String> standardCodes = request.getStandardCodes().stream().distinct().toList();
+        Map<String, Standard> standardsByCode = standardsService.getStandardsByCodes(standardCodes).stream()
+                .collect(Collectors.toMap(Standard::getCode, standard -> standard, (first, second) -> first));
         
-        for (String standardCode : request.getStandardCodes()) {
-            Optional<Standard> standardOpt = standardsService.getStandardByCode(standardCode);
-            if (standardOpt.isPresent()) {
-                targetedStandards.add(standardOpt.get());
-                
-                Optional<StandardPerformance> performance = standardPerformanceRepository
-                        .findByStudentIdAndStandardCode(request.getStudentId(), standardCode);
-                performance.ifPresent(p -> performanceMap.put(standardCode, p));
-            }
-        }
+        List<Standard> targetedStandards = standardCodes.stream()
+                .map(standardsByCode::get)
+                .filter(Objects::nonNull)
+                .toList();
         
         if (targetedStandards.isEmpty()) {
             throw new IllegalArgumentException("No valid standards found for the provided codes");
         }
         
-        List<Question> allQuestions = new ArrayList<>();
+        Map<String, StandardPerformance> performanceMap = standardPerformanceRepository
+                .findByStudentIdAndStandardCodeIn(request.getStudentId(), standardsByCode.keySet()).stream()
+                .collect(Collectors.toMap(StandardPerformance::getStandardCode, performance -> performance, (first, second) -> first));
+        
+        String focusArea = request.getFocusArea();
+        String questionType = determineQuestionType(focusArea);
+        CallContext context = CallContext.interactive(ClaudeApiService.GENERATE_TARGETED_QUESTIONS_SITE, request.getStudentId(), null);
+        List<GenerationChunk> chunks = new ArrayList<>();
+        List<PlannedStandard> batch = new ArrayList<>();
         int questionsPerStandard = Math.max(1, request.getQuestionCount() / targetedStandards.size());
         int remainingQuestions = request.getQuestionCount();
         
@@ -253,36 +746,77 @@ public class QuizService {
             int questionsForThisStandard = Math.min(questionsPerStandard, remainingQuestions);
             if (questionsForThisStandard <= 0) break;
             
-            int difficulty = determineDifficultyLevel(
-                    performanceMap.get(standard.getCode()), request.getFocusArea());
+            int difficulty = determineDifficultyLevel(performanceMap.get(standard.getCode()), focusArea);
             
-            try {
-                List<Question> questions = generateQuestionsForTargeted(
-                        standard, questionsForThisStandard, difficulty, request.getFocusArea());
-                allQuestions.addAll(questions);
-                remainingQuestions -= questionsForThisStandard;
-            } catch (Exception e) {
-                log.error("Failed to generate targeted questions for standard {}: {}", 
-                         standard.getCode(), e.getMessage());
-                
-                List<Question> fallbackQuestions = generateFallbackQuestions(
-                        standard, "targeted", questionsForThisStandard, difficulty);
-                allQuestions.addAll(fallbackQuestions);
-                remainingQuestions -= questionsForThisStandard;
+            if (batchTargetedGeneration) {
+                int remaining = takeFromTemplates(standard, questionType, questionsForThisStandard, difficulty, focusArea,
+                        context, chunks);
+                remaining = takeFromInventory(standard, questionType, remaining, difficulty, focusArea, context, chunks);
+                if (remaining > 0) {
+                    batch.add(new PlannedStandard(standard, remaining, difficulty));
+                }
+            } else {
+                chunks.addAll(planChunks(standard, questionType, questionsForThisStandard, difficulty, focusArea, context));
             }
+            remainingQuestions -= questionsForThisStandard;
         }
         
-        Collections.shuffle(allQuestions);
+        if (batch.size() == 1) {
+            PlannedStandard only = batch.get(0);
+            chunks.addAll(planLiveChunks(only.standard(), questionType, only.count(), only.difficulty(), focusArea, context));
+        } else if (!batch.isEmpty()) {
+            chunks.addAll(planBatchedChunks(batch, questionType, focusArea, context));
+        }
         
-        return TargetedQuizResponse.builder()
-                .id(UUID.randomUUID().toString())
-                .sessionId(UUID.randomUUID().toString())
-                .questions(allQuestions)
-                .studentId(request.getStudentId())
-                .focusArea(request.getFocusArea())
-                .targetedStandards(request.getStandardCodes())
-                .isTargeted(true)
-                .build();
+        return collectChunks(chunks, context).thenApply(allQuestions -> {
+            markServed(context, allQuestions);
+            return TargetedQuizResponse.builder()
+                    .id(UUID.randomUUID().toString())
+                    .sessionId(UUID.randomUUID().toString())
+                    .questions(allQuestions)
+                    .studentId(request.getStudentId())
+                    .focusArea(focusArea)
+                    .targetedStandards(request.getStandardCodes())
+                    .isTargeted(true)
+                    .build();
+        });
+    }
+    
+    private List<GenerationChunk> planBatchedChunks(List<PlannedStandard> batch, String type, String focusArea,
+                                                    CallContext context) {
+        List<StandardPromptSpec> specs = batch.stream()
+                .map(planned -> promptSpec(planned.standard(), planned.count(), planned.difficulty()))
+                .toList();
+        
+        CompletableFuture<String> upstream = inFlightRequestCoalescer
+                .execute(new BatchGenerationKey(specs, type), () -> questionGenerator.generateTargetedQuestionsAsync(specs, type, context));
+        CompletableFuture<Map<String, List<Question>>> generated = withDeadline(upstream, upstream.thenApplyAsync(
+                claudeResponse -> saveBatchedQuestions(claudeResponse, type, focusArea, studentId(context)),
+                questionGenerationExecutor));
+        
+        return batch.stream()
+                .map(planned -> new GenerationChunk(planned.standard(), chunkType(type, focusArea), planned.count(), planned.difficulty(),
+                        generated.thenApply(byStandard -> {
+                            List<Question> questions = byStandard.getOrDefault(planned.standard().getCode(), List.of());
+                            return questions.size() > planned.count() ? questions.subList(0, planned.count()) : questions;
+                        })))
+                .toList();
+    }
+    
+    private Map<String, List<Question>> saveBatchedQuestions(String claudeResponse, String type, String focusArea,
+                                                           String studentId) {
+        Map<String, List<Question>> questionsByStandard = new HashMap<>();
+        for (GeneratedQuestion generated : readQuestions(claudeResponse)) {
+            String standardCode = generated.standardCode();
+            if (standardCode == null) {
+                log.warn("Skipping batched question without a standardCode");
+                continue;
+            }
+            questionsByStandard.computeIfAbsent(standardCode, code -> new ArrayList<>())
+                    .add(toGeneratedQuestion(generated, standardCode, type, focusArea));
+        }
+        questionsByStandard.replaceAll((standardCode, questions) -> saveUnique(questions, studentId));
+        return questionsByStandard;
     }
     
     private int determineDifficultyLevel(StandardPerformance performance, String focusArea) {
@@ -297,36 +831,6 @@ public class QuizService {
         };
     }
     
-    private List<Question> generateQuestionsForTargeted(Standard standard, int count, 
-                                                       int difficulty, String focusArea) throws IOException {
-        String subSkills = standard.getSubSkills() != null ? String.join(", ", standard.getSubSkills()) : "";
-        String questionType = determineQuestionType(focusArea);
-        
-        String claudeResponse = claudeApiService.generateQuestions(
-            standard.getCode(),
-            standard.getTitle(),
-            standard.getDescription(),
-            subSkills,
-            questionType,
-            count,
-            difficulty
-        );
-        
-        Map<String, Object> responseMap = objectMapper.readValue(claudeResponse, new TypeReference<Map<String, Object>>() {});
-        List<Map<String, Object>> questionsData = (List<Map<String, Object>>) responseMap.get("questions");
-        
-        List<Question> questions = new ArrayList<>();
-        for (Map<String, Object> questionData : questionsData) {
-            Question question = mapToQuestion(questionData, standard.getCode(), questionType);
-            question.setIsTargeted(true);
-            question.setFocusArea(focusArea);
-            questionRepository.save(question);
-            questions.add(question);
-        }
-        
-        return questions;
-    }
-    
     private String determineQuestionType(String focusArea) {
         return switch (focusArea.toLowerCase()) {
             case "struggling" -> "direct_computation";
@@ -4,6 +4,8 @@ import com.quizgenerator.dto.*;
 import com.quizgenerator.model.*;
 import com.quizgenerator.repository.*;
 import com.quizgenerator.exception.StudentNotFoundException;
+import com.quizgenerator.service.ActiveSessionRegistry.ActiveSession;
+import com.quizgenerator.service.ActiveSessionRegistry.Totals;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,9 +22,12 @@ public class QuizSessionService {
 
     private final QuizSessionRepository quizSessionRepository;
     private final QuizAnswerRepository quizAnswerRepository;
+    private final AnswerEventRepository answerEventRepository;
     private final StudentRepository studentRepository;
     private final QuizService quizService;
     private final AnalyticsService analyticsService;
+    private final AnswerIngestionService answerIngestionService;
+    private final ActiveSessionRegistry activeSessionRegistry;
 
     public SessionStartResponse startQuizSession(SessionStartRequest request) {
         try {
@@ -37,6 +42,7 @@ public class QuizSessionService {
             
             QuizSession session = new QuizSession(sessionId, request.getStudentId(), quizId, request.getStandardCode());
             quizSessionRepository.save(session);
+            activeSessionRegistry.register(session);
             
             log.info("Started quiz session {} for student {} with standard {}", 
                 sessionId, request.getStudentId(), request.getStandardCode());
@@ -53,6 +59,10 @@ public class QuizSessionService {
     }
 
     public SessionCompleteResponse completeQuizSession(SessionCompleteRequest request) {
+        if (answerIngestionService.isJournaled()) {
+            answerIngestionService.flush();
+        }
+        
         Optional<QuizSession> sessionOpt = quizSessionRepository.findByIdAndStudentId(
             request.getSessionId(), request.getStudentId());
         
@@ -62,16 +72,30 @@ public class QuizSessionService {
 
         QuizSession session = sessionOpt.get();
         
-        Long totalQuestions = quizAnswerRepository.countTotalAnswersBySessionId(request.getSessionId());
-        Long correctAnswers = quizAnswerRepository.countCorrectAnswersBySessionId(request.getSessionId());
-        Long totalTimeMs = quizAnswerRepository.sumTimeSpentBySessionId(request.getSessionId());
+        Optional<Totals> activeTotals = activeSessionRegistry.complete(request.getSessionId(), request.getStudentId());
+        Long totalQuestions;
+        Long correctAnswers;
+        Long totalTimeMs;
+        if (activeTotals.isPresent()) {
+            totalQuestions = (long) activeTotals.get().totalQuestions();
+            correctAnswers = (long) activeTotals.get().correctAnswers();
+            totalTimeMs = activeTotals.get().totalTimeMs();
+        } else {
+            totalQuestions = quizAnswerRepository.countTotalAnswersBySessionId(request.getSessionId());
+            correctAnswers = quizAnswerRepository.countCorrectAnswersBySessionId(request.getSessionId());
+            totalTimeMs = quizAnswerRepository.sumTimeSpentBySessionId(request.getSessionId());
+        }
         
-        session.setTotalQuestions(totalQuestions.intValue());
-        session.setCorrectAnswers(correctAnswers.intValue());
-        session.setTotalTimeMs(totalTimeMs != null ? totalTimeMs : 0L);
+        session.applyTotals(totalQuestions.intValue(), correctAnswers.intValue(), totalTimeMs != null ? totalTimeMs : 0L);
         session.completeSession();
         
-        quizSessionRepository.save(session);
+        try {
+            quizSessionRepository.save(session);
+        } finally {
+            if (activeTotals.isPresent()) {
+                activeSessionRegistry.settle(request.getSessionId());
+            }
+        }
         
         updateStudentStatistics(request.getStudentId());
         
@@ -94,25 +118,24 @@ public class QuizSessionService {
         return new SessionCompleteResponse(request.getSessionId(), results);
     }
 
-    public boolean isValidSession(String sessionId, String studentId) {
-        Optional<QuizSession> session = quizSessionRepository.findByIdAndStudentId(sessionId, studentId);
-        return session.isPresent() && session.get().getStatus() == QuizSession.SessionStatus.ACTIVE;
+    /**
+     * Looks the session up in the {@link ActiveSessionRegistry}, so validating an answer normally needs no query.
+     */
+    public Optional<ActiveSession> findActiveSession(String sessionId, String studentId) {
+        return activeSessionRegistry.find(sessionId, studentId);
     }
 
-    public void recordAnswer(String sessionId, String questionId, Integer answer, 
+    /**
+     * Records an answer in the caller's transaction. The session's running totals are kept by the registry and only
+     * counted once the answer commits.
+     */
+    public void recordAnswer(ActiveSession session, String quizId, String questionId, Integer answer,
                            Boolean isCorrect, Long timeSpent) {
-        QuizAnswer quizAnswer = new QuizAnswer(sessionId, questionId, answer, isCorrect, timeSpent);
-        quizAnswerRepository.save(quizAnswer);
-        
-        Optional<QuizSession> sessionOpt = quizSessionRepository.findById(sessionId);
-        if (sessionOpt.isPresent()) {
-            QuizSession session = sessionOpt.get();
-            session.addAnswer(isCorrect, timeSpent);
-            quizSessionRepository.save(session);
-        }
+        AnswerEvent answerEvent = new AnswerEvent(session.getId(), session.getStudentId(), quizId, questionId,
+            answer, isCorrect, timeSpent);
+        answerEventRepository.save(answerEvent);
     }
 
-
     private void updateStudentStatistics(String studentId) {
         Optional<Student> studentOpt = studentRepository.findById(studentId);
         if (studentOpt.isEmpty()) {
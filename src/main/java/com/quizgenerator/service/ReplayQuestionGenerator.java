@@ -0,0 +1,42 @@
+package com.quizgenerator.service;
+
+import com.quizgenerator.service.LlmCallScheduler.CallContext;
+import com.quizgenerator.service.LlmResponseCache.Policy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Answers only from responses recorded in the LLM response cache (run once with the questions cache policy set to
+ * read-through to record them); a request that was never recorded fails instead of reaching the API.
+ */
+@Component
+@ConditionalOnProperty(name = "app.generation.generator", havingValue = "replay")
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class ReplayQuestionGenerator implements QuestionGenerator {
+
+    private final ClaudeApiService claudeApiService;
+
+    @Override
+    public CompletableFuture<String> generateQuestionsAsync(StandardPromptSpec standard, String type, CallContext context) {
+        return claudeApiService.generateQuestionsAsync(standard, type, context, Policy.REPLAY_ONLY);
+    }
+
+    @Override
+    public void generateQuestionsStreaming(StandardPromptSpec standard, String type, CallContext context,
+                                           Consumer<String> onText) throws IOException {
+        claudeApiService.generateQuestionsStreaming(standard, type, context, Policy.REPLAY_ONLY, onText);
+    }
+
+    @Override
+    public CompletableFuture<String> generateTargetedQuestionsAsync(List<StandardPromptSpec> standards, String type,
+                                                                    CallContext context) {
+        return claudeApiService.generateTargetedQuestionsAsync(standards, type, context, Policy.REPLAY_ONLY);
+    }
+}
@@ -33,6 +33,10 @@ public class StandardsService {
         return standardRepository.findByCode(code);
     }
     
+    public List<Standard> getStandardsByCodes(List<String> codes) {
+        return standardRepository.findByCodes(codes);
+    }
+    
     public List<Standard> getStandardsByTopic(String topic) {
         return standardRepository.findByTopicContaining(topic);
     }
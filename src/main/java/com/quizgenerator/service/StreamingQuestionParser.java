@@ -0,0 +1,91 @@
+package com.quizgenerator.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Returns the raw JSON of each "questions" array element as soon as the streamed text completes it.
+ */
+public class StreamingQuestionParser {
+
+    private static final Pattern ARRAY_START = Pattern.compile("\"questions\"\\s*:\\s*\\[");
+
+    private final StringBuilder buffer = new StringBuilder();
+    private boolean inArray;
+    private boolean finished;
+    private int position;
+    private int depth;
+    private int objectStart = -1;
+    private boolean inString;
+    private boolean escaped;
+
+    public List<String> feed(String chunk) {
+        List<String> completed = new ArrayList<>();
+        if (finished) {
+            return completed;
+        }
+
+        buffer.append(chunk);
+
+        if (!inArray) {
+            Matcher matcher = ARRAY_START.matcher(buffer);
+            if (!matcher.find()) {
+                return completed;
+            }
+            inArray = true;
+            position = matcher.end();
+        }
+
+        while (position < buffer.length()) {
+            char c = buffer.charAt(position);
+
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{') {
+                if (depth == 0) {
+                    objectStart = position;
+                }
+                depth++;
+            } else if (c == '}') {
+                depth--;
+                if (depth == 0 && objectStart >= 0) {
+                    completed.add(buffer.substring(objectStart, position + 1));
+                    objectStart = -1;
+                }
+            } else if (c == ']' && depth == 0) {
+                finished = true;
+                break;
+            }
+
+            position++;
+        }
+
+        compact();
+        return completed;
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    private void compact() {
+        int keepFrom = objectStart >= 0 ? objectStart : position;
+        if (keepFrom > 0) {
+            buffer.delete(0, keepFrom);
+            position -= keepFrom;
+            if (objectStart >= 0) {
+                objectStart = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.quizgenerator.service;
+
+import com.quizgenerator.model.MasteryState;
+import com.quizgenerator.model.StudentProfile;
+import com.quizgenerator.repository.StudentProfileRepository;
+import com.quizgenerator.service.GradingCache.GradingRecord;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Folds a graded answer into a student's profile: totals, per-sub-skill mastery, per-difficulty performance,
+ * misconception counts and average time.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class StudentProfileUpdater {
+
+    private final StudentProfileRepository studentProfileRepository;
+    
+    public void updateStudentProfile(StudentProfile profile, GradingRecord grading, String answer, 
+                                     Long timeSpent, boolean isCorrect) {
+        profile.setTotalQuestions(profile.getTotalQuestions() + 1);
+        
+        if (isCorrect) {
+            profile.setCorrectAnswers(profile.getCorrectAnswers() + 1);
+        }
+        
+        updateSubSkillMastery(profile, grading.subSkill(), isCorrect);
+        
+        updateDifficultyPerformance(profile, grading.difficulty(), isCorrect);
+        
+        if (!isCorrect) {
+            String misconception = grading.misconception(answer);
+            if (misconception != null) {
+                profile.getMisconceptions().merge(misconception, 1, Integer::sum);
+            }
+        }
+        
+        updateAverageTime(profile, timeSpent);
+        
+        profile.setLastUpdated(LocalDateTime.now());
+        studentProfileRepository.save(profile);
+    }
+    
+    private void updateSubSkillMastery(StudentProfile profile, String subSkill, boolean isCorrect) {
+        profile.getSubSkillMastery().computeIfAbsent(subSkill, skill -> new MasteryState()).record(isCorrect);
+    }
+    
+    private void updateDifficultyPerformance(StudentProfile profile, Integer difficulty, boolean isCorrect) {
+        profile.getDifficultyPerformance().computeIfAbsent(difficulty, level -> new MasteryState()).record(isCorrect);
+    }
+    
+    private void updateAverageTime(StudentProfile profile, Long timeSpent) {
+        if (timeSpent != null && timeSpent > 0) {
+            double currentAverage = profile.getAverageTime();
+            int totalQuestions = profile.getTotalQuestions();
+            
+            if (totalQuestions == 1) {
+                profile.setAverageTime(timeSpent.doubleValue());
+            } else {
+                double newAverage = ((currentAverage * (totalQuestions - 1)) + timeSpent) / totalQuestions;
+                profile.setAverageTime(newAverage);
+            }
+        }
+    }
+}
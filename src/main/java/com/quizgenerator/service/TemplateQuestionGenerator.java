@@ -0,0 +1,51 @@
+package com.quizgenerator.service;
+
+import com.quizgenerator.service.LlmCallScheduler.CallContext;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+@Component
+@ConditionalOnProperty(name = "app.generation.generator", havingValue = "template")
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class TemplateQuestionGenerator implements QuestionGenerator {
+
+    private final QuestionTemplateEngine templateEngine;
+    private final QuestionPayloadCodec payloadCodec = new QuestionPayloadCodec();
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Override
+    public CompletableFuture<String> generateQuestionsAsync(StandardPromptSpec standard, String type, CallContext context) {
+        return CompletableFuture.completedFuture(render(List.of(standard), type));
+    }
+
+    @Override
+    public void generateQuestionsStreaming(StandardPromptSpec standard, String type, CallContext context,
+                                           Consumer<String> onText) throws IOException {
+        onText.accept(render(List.of(standard), type));
+    }
+
+    @Override
+    public CompletableFuture<String> generateTargetedQuestionsAsync(List<StandardPromptSpec> standards, String type,
+                                                                    CallContext context) {
+        return CompletableFuture.completedFuture(render(standards, type));
+    }
+
+    private String render(List<StandardPromptSpec> standards, String type) {
+        List<GeneratedQuestion> questions = new ArrayList<>();
+        for (StandardPromptSpec standard : standards) {
+            long seed = Objects.hash(standard.code(), type, standard.difficulty()) * 31L + sequence.getAndIncrement();
+            questions.addAll(templateEngine.generate(standard, type, seed));
+        }
+        return payloadCodec.writeQuestions(questions);
+    }
+}
@@ -0,0 +1,115 @@
+package com.quizgenerator.service;
+
+import com.quizgenerator.dto.AnswerSubmissionRequest;
+import com.quizgenerator.dto.AnswerSubmissionResponse;
+import com.quizgenerator.dto.SessionStartRequest;
+import com.quizgenerator.dto.SessionStartResponse;
+import com.quizgenerator.dto.StudentRegistrationRequest;
+import com.quizgenerator.model.Question;
+import com.quizgenerator.repository.QuestionRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Pins the number of SQL statements one answer submission costs once the student's profile exists and the question
+ * is in the grading cache: read the profile, insert the answer event, update the profile. Answer event ids come from a
+ * pooled sequence, so its fetch is amortized over 50 answers and kept out of the measured one. Scheduled flushes are
+ * pushed out of the way so only the submission is counted.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.jpa.show-sql=false",
+        "app.ingestion.mode=sync",
+        "app.ingestion.flush-interval-ms=3600000",
+        "app.calibration.flush-interval-ms=3600000",
+        "app.inventory.refill-interval-ms=3600000",
+        "app.sessions.snapshot-interval-ms=3600000",
+        "app.sessions.sweep-interval-ms=3600000",
+        "app.stats.flush-interval-ms=3600000"
+})
+class AdaptiveServiceQueryCountTest {
+
+    private static final long STATEMENTS_PER_SUBMISSION = 3;
+
+    @Autowired
+    private AdaptiveService adaptiveService;
+
+    @Autowired
+    private QuizSessionService quizSessionService;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private GradingCache gradingCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Test
+    void submitAnswerRunsAFixedNumberOfStatements() {
+        StudentRegistrationRequest registration = new StudentRegistrationRequest();
+        registration.setStudentId("query-count-student");
+        registration.setName("Query Count");
+        registration.setEmail("query-count@example.org");
+        adaptiveService.registerStudent(registration);
+
+        SessionStartRequest start = new SessionStartRequest();
+        start.setStudentId("query-count-student");
+        start.setStandardCode("5.NS.1");
+        start.setQuestionCount(2);
+        SessionStartResponse session = quizSessionService.startQuizSession(start);
+
+        Question first = questionRepository.save(question("Which is greater: 0.5 or 0.45?"));
+        Question second = questionRepository.save(question("Which is greater: 0.3 or 0.29?"));
+        Question third = questionRepository.save(question("Which is greater: 0.7 or 0.69?"));
+
+        // the first answer creates the profile and the second primes the pooled id range; the measured question is
+        // cached as it would be after selection
+        adaptiveService.submitAnswer(answer(session, first));
+        adaptiveService.submitAnswer(answer(session, second));
+        gradingCache.get(third.getId());
+
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        AnswerSubmissionResponse response = adaptiveService.submitAnswer(answer(session, third));
+
+        assertTrue(response.getSessionValid());
+        assertEquals(STATEMENTS_PER_SUBMISSION, statistics.getPrepareStatementCount());
+    }
+
+    private static Question question(String text) {
+        Question question = new Question();
+        question.setQuestion(text);
+        question.setChoices(Map.of("A", "0.5", "B", "0.45", "C", "0.05", "D", "0.4"));
+        question.setCorrectAnswer("A");
+        question.setExplanation("Compare tenths first.");
+        question.setDifficulty(1);
+        question.setSubSkill("Place decimals to thousandths on number lines");
+        question.setStandardCode("5.NS.1");
+        question.setType("direct_computation");
+        question.setGeneratedAt(LocalDateTime.now());
+        return question;
+    }
+
+    private static AnswerSubmissionRequest answer(SessionStartResponse session, Question question) {
+        AnswerSubmissionRequest request = new AnswerSubmissionRequest();
+        request.setSessionId(session.getSessionId());
+        request.setStudentId("query-count-student");
+        request.setQuizId(session.getQuizId());
+        request.setQuestionId(String.valueOf(question.getId()));
+        request.setAnswer(0);
+        request.setTimeSpent(1500L);
+        return request;
+    }
+}